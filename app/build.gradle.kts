@@ -1,7 +1,68 @@
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.util.zip.CRC32
+
 plugins {
     alias(libs.plugins.android.application)
 }
 
+/**
+ * Compiles src/main/quests/quests.tsv into assets/quests.bin.
+ *
+ * Layout (big-endian, read by QuestCatalog):
+ *   int magic "QCAT", int format version, int CRC32 of the records, int record count
+ *   per record: int id, UTF mood, short reward, short timer_minutes, UTF title, UTF description
+ */
+abstract class QuestCatalogTask : DefaultTask() {
+
+    @get:InputFile
+    abstract val source: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun build() {
+        val records = ByteArrayOutputStream()
+        val out = DataOutputStream(records)
+        var count = 0
+
+        source.get().asFile.readLines(Charsets.UTF_8).forEachIndexed { index, line ->
+            if (line.isBlank() || line.startsWith("#")) return@forEachIndexed
+
+            val fields = line.split("\t")
+            require(fields.size == 6) { "quests.tsv:${index + 1}: expected 6 columns, got ${fields.size}" }
+
+            out.writeInt(fields[0].trim().toInt())
+            out.writeUTF(fields[1].trim())
+            out.writeShort(fields[2].trim().toInt())
+            out.writeShort(fields[3].trim().toInt())
+            out.writeUTF(fields[4].trim())
+            out.writeUTF(fields[5].trim())
+            count++
+        }
+        out.flush()
+
+        val payload = records.toByteArray()
+        val crc = CRC32().apply { update(payload) }
+
+        val file = outputDir.get().file("quests.bin").asFile
+        file.parentFile.mkdirs()
+        DataOutputStream(file.outputStream().buffered()).use { header ->
+            header.writeInt(0x51434154) // "QCAT"
+            header.writeInt(1)
+            header.writeInt(crc.value.toInt())
+            header.writeInt(count)
+            header.write(payload)
+        }
+    }
+}
+
+val buildQuestCatalog = tasks.register<QuestCatalogTask>("buildQuestCatalog") {
+    source.set(layout.projectDirectory.file("src/main/quests/quests.tsv"))
+    outputDir.set(layout.buildDirectory.dir("generated/questCatalog"))
+}
+
 android {
     namespace = "com.example.virtualcompanion"
     compileSdk {
@@ -31,6 +92,15 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests.all {
+            // JVM benchmarks are slow and only mean something on a quiet
+            // machine - run them with -Pbenchmarks
+            if (!project.hasProperty("benchmarks")) {
+                it.exclude("**/*Benchmark.class")
+            }
+        }
+    }
     sourceSets {
         getByName("main") {
             assets {
@@ -40,6 +110,12 @@ android {
     }
 }
 
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(buildQuestCatalog, QuestCatalogTask::outputDir)
+    }
+}
+
 dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
@@ -0,0 +1,219 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Backs up one in-memory database and restores it into another
+ */
+@RunWith(AndroidJUnit4.class)
+public class CompanionBackupTest {
+
+    // Five years of three moods a day
+    private static final int DAYS = 5 * 365;
+    private static final int MOODS_PER_DAY = 3;
+    private static final int FIRST_DAY = 18000;
+
+    // Fill the rollups from the whole mood table
+    private static final String SQL_REBUILD_MOOD_DAILY =
+            "INSERT OR REPLACE INTO mood_daily (profile_id, day, count, total, min_value, max_value) " +
+                    "SELECT profile_id, day, COUNT(*), SUM(value), MIN(value), MAX(value) FROM mood " +
+                    "GROUP BY profile_id, day";
+    private static final String SQL_REBUILD_MOOD_WEEKLY =
+            "INSERT OR REPLACE INTO mood_weekly (profile_id, week, count, total, min_value, max_value) " +
+                    "SELECT profile_id, (day + 3) / 7, SUM(count), SUM(total), MIN(min_value), MAX(max_value) " +
+                    "FROM mood_daily GROUP BY profile_id, (day + 3) / 7";
+
+    private DatabaseHelper sourceHelper;
+    private DatabaseHelper targetHelper;
+    private SQLiteDatabase source;
+    private SQLiteDatabase target;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        sourceHelper = new DatabaseHelper(context, null); // in-memory
+        targetHelper = new DatabaseHelper(context, null);
+        source = sourceHelper.getWritableDatabase();
+        target = targetHelper.getWritableDatabase();
+
+        source.execSQL("UPDATE user SET name='MOCHI', pet_gender='female', coins=735 WHERE id=1");
+        source.execSQL("INSERT INTO profile_item (profile_id, item_id, type, equipped) " +
+                "SELECT 1, id, type, 1 FROM accessory WHERE item_key='hat.cowboy'");
+        source.execSQL("INSERT INTO quest_progress (profile_id, quest_id, progress, rewarded) VALUES (1, 3, 100, 1)");
+        source.execSQL("INSERT INTO quest_completion (quest_id, reward, completed_at, mood, duration_ms) " +
+                "VALUES (3, 30, 1767600000000, 2, 95000)");
+        source.execSQL("INSERT INTO quest_completion (quest_id, reward, completed_at) VALUES (5, 30, NULL)");
+
+        SQLiteStatement insert = source.compileStatement(
+                "INSERT INTO mood (value, day, created_at) VALUES (?,?,?)");
+        source.beginTransaction();
+        try {
+            for (int day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+                for (int i = 0; i < MOODS_PER_DAY; i++) {
+                    insert.bindLong(1, 1 + (day + i) % 5);
+                    insert.bindLong(2, day);
+                    insert.bindLong(3, day * 86_400_000L + i);
+                    insert.executeInsert();
+                }
+            }
+            source.setTransactionSuccessful();
+        } finally {
+            source.endTransaction();
+            insert.close();
+        }
+        source.execSQL(SQL_REBUILD_MOOD_DAILY);
+        source.execSQL(SQL_REBUILD_MOOD_WEEKLY);
+    }
+
+    @After
+    public void tearDown() {
+        sourceHelper.close();
+        targetHelper.close();
+    }
+
+    @Test
+    public void roundTripRestoresEverything() throws IOException {
+        byte[] backup = export();
+        restore(backup);
+
+        assertEquals("MOCHI", queryString(target, "SELECT name FROM user WHERE id=1"));
+        assertEquals("female", queryString(target, "SELECT pet_gender FROM user WHERE id=1"));
+        assertEquals(735, queryLong(target, "SELECT coins FROM user WHERE id=1"));
+        assertEquals(735, queryLong(target, "SELECT SUM(delta) FROM coin_ledger"));
+
+        assertEquals(1, queryLong(target, "SELECT p.equipped FROM profile_item p " +
+                "JOIN accessory a ON a.id = p.item_id WHERE a.item_key='hat.cowboy'"));
+        assertEquals(100, queryLong(target, "SELECT progress FROM quest_progress WHERE profile_id=1 AND quest_id=3"));
+        assertEquals(2, queryLong(target, "SELECT COUNT(*) FROM quest_completion"));
+        assertEquals(1767600000000L, queryLong(target, "SELECT completed_at FROM quest_completion WHERE quest_id=3"));
+        assertEquals(1, queryLong(target, "SELECT COUNT(*) FROM quest_completion WHERE completed_at IS NULL"));
+        assertEquals(2, queryLong(target, "SELECT mood FROM quest_completion WHERE quest_id=3"));
+        assertEquals(95000, queryLong(target, "SELECT duration_ms FROM quest_completion WHERE quest_id=3"));
+
+        // The streak and the quest counters are rebuilt from the restored history
+        assertEquals(1, queryLong(target, "SELECT best FROM quest_streak WHERE profile_id=1"));
+        assertEquals(1, queryLong(target, "SELECT completed FROM quest_stats WHERE profile_id=1 AND quest_id=3"));
+
+        for (String table : new String[]{"mood", "mood_daily", "mood_weekly"}) {
+            assertEquals(table, queryLong(source, "SELECT COUNT(*) FROM " + table),
+                    queryLong(target, "SELECT COUNT(*) FROM " + table));
+        }
+        assertEquals(queryLong(source, "SELECT SUM(total) FROM mood_weekly"),
+                queryLong(target, "SELECT SUM(total) FROM mood_weekly"));
+    }
+
+    @Test
+    public void restoreOnlyReplacesItsProfile() throws IOException {
+        byte[] backup = export();
+
+        // Target: profile 1 has a mood of its own, the backup goes into profile 2
+        target.execSQL(DatabaseManager.SQL_ADD_PROFILE, new Object[]{DatabaseHelper.STARTING_COINS});
+        target.execSQL("INSERT INTO mood (profile_id, value, day, created_at) VALUES (1, 4, 20000, 0)");
+        target.execSQL(SQL_REBUILD_MOOD_DAILY);
+        restore(backup, 2);
+
+        assertEquals("MOCHI", queryString(target, "SELECT name FROM user WHERE id=2"));
+        assertEquals(150, queryLong(target, "SELECT coins FROM user WHERE id=1"));
+        assertEquals(1, queryLong(target, "SELECT COUNT(*) FROM mood WHERE profile_id=1"));
+        assertEquals(1, queryLong(target, "SELECT COUNT(*) FROM mood_daily WHERE profile_id=1"));
+        assertEquals(DAYS * MOODS_PER_DAY, queryLong(target, "SELECT COUNT(*) FROM mood WHERE profile_id=2"));
+        assertEquals(0, queryLong(target, "SELECT COUNT(*) FROM quest_progress WHERE profile_id=1"));
+        assertEquals(2, queryLong(target, "SELECT COUNT(*) FROM quest_completion WHERE profile_id=2"));
+    }
+
+    @Test
+    public void yearsOfHistoryTakeUnderASecond() throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        byte[] backup = export();
+        long exportMs = SystemClock.elapsedRealtime() - start;
+
+        start = SystemClock.elapsedRealtime();
+        restore(backup);
+        long restoreMs = SystemClock.elapsedRealtime() - start;
+
+        assertTrue("Export took " + exportMs + " ms", exportMs < 1000);
+        assertTrue("Restore took " + restoreMs + " ms", restoreMs < 1000);
+    }
+
+    @Test
+    public void damagedBackupChangesNothing() throws IOException {
+        byte[] backup = export();
+        backup[backup.length / 2] ^= 0x01;
+
+        target.beginTransaction();
+        try {
+            CompanionBackup.read(target, 1, new ByteArrayInputStream(backup));
+            fail("Damaged backup was accepted");
+        } catch (IOException expected) {
+            // checksum mismatch (or a record that no longer parses)
+        } finally {
+            target.endTransaction(); // not successful - rolls back
+        }
+
+        assertEquals(150, queryLong(target, "SELECT coins FROM user WHERE id=1"));
+        assertEquals(0, queryLong(target, "SELECT COUNT(*) FROM mood"));
+    }
+
+    // ================= HELPERS =================
+
+    private byte[] export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.beginTransaction();
+        try {
+            CompanionBackup.write(source, 1, "MOCHI", true, out);
+        } finally {
+            source.endTransaction();
+        }
+        return out.toByteArray();
+    }
+
+    private void restore(byte[] backup) throws IOException {
+        restore(backup, 1);
+    }
+
+    private void restore(byte[] backup, long profileId) throws IOException {
+        target.beginTransaction();
+        try {
+            CompanionBackup.Contents contents = CompanionBackup.read(target, profileId, new ByteArrayInputStream(backup));
+            assertEquals("MOCHI", contents.petName);
+            assertTrue(contents.hasCustomized);
+            target.setTransactionSuccessful();
+        } finally {
+            target.endTransaction();
+        }
+    }
+
+    private static long queryLong(SQLiteDatabase db, String sql) {
+        Cursor c = db.rawQuery(sql, null);
+        assertTrue("No row for: " + sql, c.moveToFirst());
+        long value = c.getLong(0);
+        c.close();
+        return value;
+    }
+
+    private static String queryString(SQLiteDatabase db, String sql) {
+        Cursor c = db.rawQuery(sql, null);
+        assertTrue("No row for: " + sql, c.moveToFirst());
+        String value = c.getString(0);
+        c.close();
+        return value;
+    }
+}
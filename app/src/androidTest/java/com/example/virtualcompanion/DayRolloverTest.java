@@ -0,0 +1,79 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * The midnight job against a day the app already started: the inexact
+ * alarm may fire after the user has opened the app and finished quests.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DayRolloverTest {
+
+    private static final long DAY_MS = 86_400_000L;
+
+    // Noon on 2026-01-05 (UTC)
+    private long now = 20458 * DAY_MS + DAY_MS / 2;
+
+    private DatabaseManager db;
+
+    @Before
+    public void setUp() {
+        AppClock.setForTesting(new AppClock(() -> now, TimeZone.getTimeZone("UTC")));
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = DatabaseManager.get(context);
+        db.deleteDatabaseForTesting();
+    }
+
+    @After
+    public void tearDown() {
+        db.deleteDatabaseForTesting();
+        AppClock.setForTesting(null);
+    }
+
+    @Test
+    public void secondRolloverOnTheSameDayChangesNothing() {
+        db.rolloverDay();
+        List<Integer> session = questIds(db.getQuestsForMood(0));
+        db.markFirstQuestCompleted();
+
+        // The alarm fires late, after the day already started
+        db.rolloverDay();
+
+        assertTrue(db.hasCompletedFirstQuestToday());
+        assertEquals(session, questIds(db.getQuestsForMood(0)));
+    }
+
+    @Test
+    public void nextDayStillRollsOver() {
+        db.rolloverDay();
+        db.getQuestsForMood(0);
+        db.markFirstQuestCompleted();
+
+        now += DAY_MS;
+        db.rolloverDay();
+
+        assertFalse(db.hasCompletedFirstQuestToday());
+    }
+
+    private static List<Integer> questIds(List<Quest> quests) {
+        List<Integer> ids = new ArrayList<>();
+        for (Quest quest : quests) {
+            ids.add(quest.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the old connection setup (rollback journal, synchronous=FULL)
+ * with DatabaseHelper.onConfigure (WAL, synchronous=NORMAL) on the app's
+ * own mix of small writes and reads.
+ *
+ * Every operation commits on its own, like the app does, so each one pays
+ * its journal sync. Per-operation median and p95 are logged under the
+ * "JournalModeBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class JournalModeBenchmark {
+
+    private static final String TAG = "JournalModeBenchmark";
+    private static final String DB_NAME = "journal_benchmark.db";
+    private static final int ROUNDS = 300;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void compareJournalModes() {
+        long[] rollback = runWorkload(false);
+        context.deleteDatabase(DB_NAME);
+        long[] wal = runWorkload(true);
+
+        report("rollback/FULL", rollback);
+        report("WAL/NORMAL   ", wal);
+        Log.i(TAG, String.format("median speedup: %.2fx",
+                (double) percentile(rollback, 50) / percentile(wal, 50)));
+    }
+
+    @Test
+    public void helperConfiguresConnection() {
+        DatabaseHelper helper = new DatabaseHelper(context, DB_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals("wal", pragma(db, "journal_mode").toLowerCase());
+        assertEquals("1", pragma(db, "synchronous")); // NORMAL
+        assertEquals("1", pragma(db, "foreign_keys"));
+        helper.close();
+    }
+
+    /**
+     * Run ROUNDS of mood logging, quest completion, purchase and reads.
+     * Returns the latency of every operation in nanoseconds.
+     */
+    private long[] runWorkload(boolean wal) {
+        DatabaseHelper helper = new DatabaseHelper(context, DB_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        if (!wal) {
+            // What the app had before onConfigure existed
+            db.disableWriteAheadLogging();
+            db.execSQL("PRAGMA synchronous=FULL");
+        }
+
+        db.execSQL("UPDATE user SET coins = 1000000 WHERE id=1");
+
+        long[] latencies = new long[ROUNDS * 4];
+        int n = 0;
+
+        for (int i = 0; i < ROUNDS; i++) {
+            int questId = (i % 105) + 1;
+
+            // Mood logging
+            long start = System.nanoTime();
+            db.execSQL(DatabaseManager.SQL_SAVE_MOOD, new Object[]{1, (i % 5) + 1, 20454, System.currentTimeMillis()});
+            latencies[n++] = System.nanoTime() - start;
+
+            // Quest completion (same shape as DatabaseManager.completeQuest)
+            start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                db.execSQL(DatabaseManager.SQL_ENSURE_QUEST_PROGRESS, new Object[]{1, questId});
+                db.execSQL(DatabaseManager.SQL_COMPLETE_QUEST, new Object[]{1, questId});
+                db.execSQL(DatabaseManager.SQL_ADD_COINS, new Object[]{30, 1});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            latencies[n++] = System.nanoTime() - start;
+
+            // Purchase
+            start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                db.execSQL(DatabaseManager.SQL_ADD_COINS, new Object[]{-10, 1});
+                db.execSQL(DatabaseManager.SQL_MARK_OWNED, new Object[]{1, 16}); // hat.cowboy
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            latencies[n++] = System.nanoTime() - start;
+
+            // Reads the screens do after each of the above
+            start = System.nanoTime();
+            query(db, DatabaseManager.SQL_USER_ROW, "1");
+            query(db, DatabaseManager.SQL_MOOD_LOGGED_ON_DAY, "1", "20454");
+            latencies[n++] = System.nanoTime() - start;
+        }
+
+        helper.close();
+        return latencies;
+    }
+
+    private static void query(SQLiteDatabase db, String sql, String... args) {
+        Cursor c = db.rawQuery(sql, args);
+        c.moveToFirst();
+        c.close();
+    }
+
+    private static String pragma(SQLiteDatabase db, String name) {
+        Cursor c = db.rawQuery("PRAGMA " + name, null);
+        String value = c.moveToFirst() ? c.getString(0) : null;
+        c.close();
+        return value;
+    }
+
+    private static void report(String label, long[] latencies) {
+        Log.i(TAG, label + ": median " + (percentile(latencies, 50) / 1000) + " us, p95 "
+                + (percentile(latencies, 95) / 1000) + " us");
+    }
+
+    private static long percentile(long[] latencies, int p) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+    }
+}
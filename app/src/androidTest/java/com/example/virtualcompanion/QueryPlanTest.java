@@ -0,0 +1,286 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on every DatabaseManager query against a
+ * fresh in-memory schema and checks which index each table is searched
+ * through, so a dropped or unused index shows up here.
+ *
+ * When a new query is added to DatabaseManager, add it here too.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    // Plan wording for the two kinds of key lookups
+    private static final String ROWID = "INTEGER PRIMARY KEY";
+    private static final String PRIMARY_KEY = "PRIMARY KEY";
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // in-memory
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    // ================= USER =================
+
+    @Test
+    public void userQueriesUsePrimaryKey() {
+        assertSearches("user", ROWID, DatabaseManager.SQL_USER_ROW, 1);
+        assertSearches("user", ROWID, DatabaseManager.SQL_SET_NAME, "ECHO", 1);
+        assertSearches("user", ROWID, DatabaseManager.SQL_SET_GENDER, "male", 1);
+        assertSearches("user", ROWID, DatabaseManager.SQL_ADD_COINS, 10, 1);
+        assertSearches("user", ROWID, DatabaseManager.SQL_SPEND_COINS, 150, 1, 150);
+    }
+
+    @Test
+    public void profileListWalksRowidInOrder() {
+        // One row per companion: SCAN user in rowid order, never a sort
+        for (String detail : explain(DatabaseManager.SQL_PROFILES)) {
+            assertFalse(detail, detail.contains("TEMP B-TREE"));
+        }
+    }
+
+    @Test
+    public void coinLedgerQueriesUseProfileIndex() {
+        assertSearches("coin_ledger", "idx_coin_ledger_profile", DatabaseManager.SQL_LEDGER_FIRST_ID, 1);
+        assertSearches("coin_ledger", "idx_coin_ledger_profile", DatabaseManager.SQL_LEDGER_LAST_ID, 1);
+        assertSearches("coin_ledger", "idx_coin_ledger_profile", DatabaseManager.SQL_LEDGER_FOLD_UP_TO, 1, 500);
+        assertSearches("coin_ledger", "idx_coin_ledger_profile", DatabaseManager.SQL_LEDGER_SUM_UP_TO, 1, 800);
+        assertSearches("coin_ledger", "idx_coin_ledger_profile", DatabaseManager.SQL_LEDGER_DELETE_UP_TO, 1, 800);
+
+        for (String detail : explain(DatabaseManager.SQL_LEDGER_FOLD_UP_TO, 1, 500)) {
+            assertFalse(detail, detail.contains("TEMP B-TREE"));
+        }
+    }
+
+    // ================= MOOD =================
+
+    @Test
+    public void moodQueriesUseDayIndex() {
+        assertSearches("mood_daily", "sqlite_autoindex_mood_daily_1", DatabaseManager.SQL_MOOD_LOGGED_ON_DAY, 1, 20454);
+        assertSearches("mood_daily", "sqlite_autoindex_mood_daily_1", DatabaseManager.SQL_ADD_MOOD_DAILY, 3, 3, 3, 1, 20454);
+        assertSearches("mood_weekly", "sqlite_autoindex_mood_weekly_1", DatabaseManager.SQL_ADD_MOOD_WEEKLY, 3, 3, 3, 1, 2922);
+    }
+
+    @Test
+    public void moodStatsReadOnlyRollups() {
+        assertSearches("mood_daily", "sqlite_autoindex_mood_daily_1", MoodStats.SQL_DAILY_RANGE, 1, 20000, 20454);
+        assertSearches("mood_weekly", "sqlite_autoindex_mood_weekly_1", MoodStats.SQL_WEEKLY_RANGE, 1, 2870, 2922);
+    }
+
+    @Test
+    public void latestMoodWalksDayIndexBackwards() {
+        // The (profile_id, day) index walked from the end, stopping after one row - it must not sort
+        assertSearches("mood", "idx_mood_day", DatabaseManager.SQL_LATEST_MOOD, 1);
+        for (String detail : explain(DatabaseManager.SQL_LATEST_MOOD, 1)) {
+            assertFalse(detail, detail.contains("TEMP B-TREE"));
+        }
+
+        assertSearches("mood", "idx_mood_day", DatabaseManager.SQL_LATEST_MOOD_AT, 1);
+        for (String detail : explain(DatabaseManager.SQL_LATEST_MOOD_AT, 1)) {
+            assertFalse(detail, detail.contains("TEMP B-TREE"));
+        }
+    }
+
+    @Test
+    public void moodGainReadsNewestCompletionsOnly() {
+        // The profile index walked from the end, at most 10 rows - however long the history
+        assertSearches("quest_completion", "idx_quest_completion_profile", DatabaseManager.SQL_RECENT_COMPLETIONS, 1);
+        for (String detail : explain(DatabaseManager.SQL_RECENT_COMPLETIONS, 1)) {
+            assertFalse(detail, detail.contains("TEMP B-TREE"));
+        }
+    }
+
+    // ================= QUEST =================
+
+    @Test
+    public void questSelectionUsesMoodIndex() {
+        assertSearches("quest", "idx_quest_mood", DatabaseManager.SQL_QUEST_IDS_FOR_MOOD, "neutral");
+        assertSearches("p", PRIMARY_KEY, DatabaseManager.SQL_COUNT_COMPLETED_FOR_MOOD, 1, "neutral");
+        assertSearches("q", "idx_quest_mood", DatabaseManager.SQL_COUNT_COMPLETED_FOR_MOOD, 1, "neutral");
+    }
+
+    @Test
+    public void questLookupsUsePrimaryKey() {
+        assertSearches("quest_progress", PRIMARY_KEY, DatabaseManager.SQL_QUEST_PROGRESS, 1, 1);
+        assertSearches("quest_progress", PRIMARY_KEY, DatabaseManager.SQL_QUEST_REWARDED, 1, 1);
+        assertSearches("q", ROWID, DatabaseManager.SQL_QUEST_REWARD_STATE, 1, 1);
+        assertSearches("p", PRIMARY_KEY, DatabaseManager.SQL_QUEST_REWARD_STATE, 1, 1);
+        assertSearches("quest_progress", PRIMARY_KEY, DatabaseManager.SQL_RESET_QUEST_PROGRESS, 1);
+        assertSearches("quest", ROWID, DatabaseManager.SQL_ENSURE_QUEST_PROGRESS, 1, 1);
+        assertSearches("quest_progress", PRIMARY_KEY, DatabaseManager.SQL_COMPLETE_QUEST, 1, 1);
+        assertSearches("quest_streak", ROWID, DatabaseManager.SQL_QUEST_STREAK, 1);
+    }
+
+    @Test
+    public void questStatsUsePrimaryKey() {
+        assertSearches("quest_stats", PRIMARY_KEY, DatabaseManager.SQL_QUEST_STATS, 1);
+        assertSearches("quest", ROWID, DatabaseManager.SQL_ENSURE_QUEST_STATS, 1, 1);
+        assertSearches("quest_stats", PRIMARY_KEY, DatabaseManager.SQL_ADD_QUEST_SHOWN, 20458, 1, 1);
+        assertSearches("quest_stats", PRIMARY_KEY, DatabaseManager.SQL_ADD_QUEST_COMPLETED, 1, 1);
+        assertSearches("quest_stats", PRIMARY_KEY, DatabaseManager.SQL_ADD_QUEST_ABANDONED, 1, 1);
+        assertSearches("quest_stats", PRIMARY_KEY, DatabaseManager.SQL_ADD_QUEST_MOOD_GAIN, 2, 1, 1);
+    }
+
+    @Test
+    public void questSearchUsesFullTextIndex() {
+        // "SCAN quest_fts VIRTUAL TABLE INDEX n:" - the MATCH goes through the index
+        assertNoTableScan(DatabaseManager.SQL_SEARCH_QUEST_RANKS, "breath OR breath*");
+        assertNoTableScan(DatabaseManager.SQL_SEARCH_QUEST_ROWS_FOR_IDS + "1,2,3)", 1, "breath OR breath*");
+        assertSearches("q", ROWID, DatabaseManager.SQL_SEARCH_QUEST_ROWS_FOR_IDS + "1,2,3)", 1, "breath OR breath*");
+        assertSearches("p", PRIMARY_KEY, DatabaseManager.SQL_SEARCH_QUEST_ROWS_FOR_IDS + "1,2,3)", 1, "breath OR breath*");
+    }
+
+    @Test
+    public void pagedListsSeekByRowid() {
+        // Keyset pages: a rowid range seek, never OFFSET or a sort
+        assertSearches("q", ROWID, DatabaseManager.SQL_QUEST_CATALOG_PAGE, 1, 50, 50);
+        assertSearches("p", PRIMARY_KEY, DatabaseManager.SQL_QUEST_CATALOG_PAGE, 1, 50, 50);
+        assertSearches("c", "idx_quest_completion_profile", DatabaseManager.SQL_QUEST_HISTORY_PAGE, 1, 5000, 50);
+        assertSearches("q", ROWID, DatabaseManager.SQL_QUEST_HISTORY_PAGE, 1, 5000, 50);
+
+        for (String detail : explain(DatabaseManager.SQL_QUEST_HISTORY_PAGE, 1, 5000, 50)) {
+            assertFalse(detail, detail.contains("TEMP B-TREE"));
+        }
+    }
+
+    // ================= QUEST SESSION =================
+
+    @Test
+    public void questSessionQueriesUseIndexes() {
+        assertSearches("s", "idx_quest_session_active", DatabaseManager.SQL_CURRENT_SESSION_QUESTS, 1, "2026-01-01", "neutral");
+        assertSearches("q", ROWID, DatabaseManager.SQL_CURRENT_SESSION_QUESTS, 1, "2026-01-01", "neutral");
+        assertSearches("p", PRIMARY_KEY, DatabaseManager.SQL_CURRENT_SESSION_QUESTS, 1, "2026-01-01", "neutral");
+        assertSearches("s", "idx_quest_session_active", DatabaseManager.SQL_CURRENT_SESSION_PROGRESS, 1);
+        assertSearches("p", PRIMARY_KEY, DatabaseManager.SQL_CURRENT_SESSION_PROGRESS, 1);
+        assertSearches("quest_session", "sqlite_autoindex_quest_session_1", DatabaseManager.SQL_NEXT_SESSION_SLOT, 1, "2026-01-01", "neutral");
+        assertSearches("quest_session", "sqlite_autoindex_quest_session_1", DatabaseManager.SQL_SESSION_QUEST_IDS, 1, "2026-01-01", "neutral");
+        assertSearches("quest_session", "idx_quest_session_active", DatabaseManager.SQL_DEACTIVATE_SESSION, 1);
+    }
+
+    @Test
+    public void dayRolloverQueriesUseIndexes() {
+        assertSearches("quest_session", "sqlite_autoindex_quest_session_1", DatabaseManager.SQL_DELETE_OTHER_DAYS_SESSIONS, 1, "2026-01-01", "2026-01-01");
+        assertSearches("quest_plan", "sqlite_autoindex_quest_plan_1", DatabaseManager.SQL_DELETE_OTHER_DAYS_PLANS, 1, "2026-01-01", "2026-01-01");
+        assertSearches("quest_session", "idx_quest_session_active", DatabaseManager.SQL_DELETE_ALL_SESSIONS, 1);
+        assertSearches("quest_plan", "sqlite_autoindex_quest_plan_1", DatabaseManager.SQL_DELETE_ALL_PLANS, 1);
+        assertSearches("quest_plan", "sqlite_autoindex_quest_plan_1", DatabaseManager.SQL_HAS_PLAN, 1, "2026-01-01", "neutral");
+        assertSearches("quest_plan", "sqlite_autoindex_quest_plan_1", DatabaseManager.SQL_ACTIVATE_PLAN, 1, "2026-01-01", "neutral");
+        assertSearches("quest_plan", "sqlite_autoindex_quest_plan_1", DatabaseManager.SQL_DELETE_PLAN_FOR_MOOD, 1, "2026-01-01", "neutral");
+    }
+
+    // ================= WARDROBE =================
+
+    @Test
+    public void itemResetsUseProfileKey() {
+        assertSearches("profile_item", PRIMARY_KEY, DatabaseManager.SQL_RESET_ALL_ITEMS, 1);
+        assertSearches("profile_item", PRIMARY_KEY, DatabaseManager.SQL_RESET_ITEM_CATEGORY, 1, "top");
+    }
+
+    @Test
+    public void wardrobeQueriesUseIndexes() {
+        assertSearches("profile_item", PRIMARY_KEY, DatabaseManager.SQL_WARDROBE, 1);
+        assertSearches("a", ROWID, DatabaseManager.SQL_ITEM_PRICE_OWNED, 1, 5);
+        assertSearches("p", PRIMARY_KEY, DatabaseManager.SQL_ITEM_PRICE_OWNED, 1, 5);
+        assertSearches("accessory", ROWID, DatabaseManager.SQL_MARK_OWNED, 1, 5);
+        assertSearches("profile_item", "idx_profile_item_one_equipped", DatabaseManager.SQL_UNEQUIP_TYPE, 1, "top");
+        assertSearches("profile_item", PRIMARY_KEY, DatabaseManager.SQL_EQUIP_ITEM, 1, 5);
+    }
+
+    @Test
+    public void onlyOneItemEquippedPerType() {
+        db.execSQL("INSERT OR IGNORE INTO profile_item (profile_id, item_id, type) SELECT 1, id, type FROM accessory");
+        db.execSQL(DatabaseManager.SQL_EQUIP_ITEM, new Object[]{1, 0}); // top.boy_flannel
+
+        try {
+            db.execSQL(DatabaseManager.SQL_EQUIP_ITEM, new Object[]{1, 1}); // top.girl_pink
+            fail("Second equipped top was allowed");
+        } catch (android.database.sqlite.SQLiteConstraintException expected) {
+            // idx_profile_item_one_equipped
+        }
+    }
+
+    @Test
+    public void otherProfileCanEquipTheSameType() {
+        db.execSQL(DatabaseManager.SQL_ADD_PROFILE, new Object[]{DatabaseHelper.STARTING_COINS});
+        db.execSQL("INSERT OR IGNORE INTO profile_item (profile_id, item_id, type) SELECT 1, id, type FROM accessory");
+        db.execSQL("INSERT OR IGNORE INTO profile_item (profile_id, item_id, type) SELECT 2, id, type FROM accessory");
+
+        db.execSQL(DatabaseManager.SQL_EQUIP_ITEM, new Object[]{1, 0});
+        db.execSQL(DatabaseManager.SQL_EQUIP_ITEM, new Object[]{2, 1});
+    }
+
+    // ================= HELPERS =================
+
+    /**
+     * Fail unless the plan has no table scan and searches the table
+     * (or join alias) through the given index
+     */
+    private void assertSearches(String table, String index, String sql, Object... args) {
+        assertNoTableScan(sql, args);
+
+        List<String> plan = explain(sql, args);
+        for (String detail : plan) {
+            boolean onTable = detail.startsWith("SEARCH " + table + " USING ");
+            boolean viaIndex = detail.contains("USING " + index + " (") || detail.contains("INDEX " + index + " (");
+            if (onTable && viaIndex) {
+                return;
+            }
+        }
+        fail("\"" + sql + "\" doesn't search " + table + " by " + index + ": " + plan);
+    }
+
+    /**
+     * Fail if any plan step is a SCAN that doesn't go through an index
+     */
+    private void assertNoTableScan(String sql, Object... args) {
+        List<String> plan = explain(sql, args);
+        assertFalse("Empty plan for: " + sql, plan.isEmpty());
+
+        for (String detail : plan) {
+            boolean tableScan = detail.startsWith("SCAN") && !detail.contains("INDEX");
+            assertFalse("Full table scan in \"" + sql + "\": " + detail, tableScan);
+        }
+    }
+
+    private List<String> explain(String sql, Object... args) {
+        String[] bindArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            bindArgs[i] = String.valueOf(args[i]);
+        }
+
+        List<String> details = new ArrayList<>();
+        Cursor c = db.rawQuery("EXPLAIN QUERY PLAN " + sql, bindArgs);
+        int detailColumn = c.getColumnIndexOrThrow("detail");
+        while (c.moveToNext()) {
+            details.add(c.getString(detailColumn));
+        }
+        c.close();
+        return details;
+    }
+}
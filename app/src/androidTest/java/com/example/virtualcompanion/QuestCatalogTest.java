@@ -0,0 +1,109 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the generated assets/quests.bin and how DatabaseHelper installs it.
+ *
+ * Also logs how long creating a fresh database takes (tag
+ * "QuestCatalogTest") - this is the cost OpeningActivity pays on a
+ * first launch.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QuestCatalogTest {
+
+    private static final String TAG = "QuestCatalogTest";
+    private static final String DB_NAME = "quest_catalog_test.db";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void catalogHas21QuestsPerMood() throws Exception {
+        QuestCatalog catalog = QuestCatalog.read(context);
+
+        Set<Integer> ids = new HashSet<>();
+        Map<String, Integer> perMood = new HashMap<>();
+        for (QuestCatalog.Entry entry : catalog.getEntries()) {
+            assertTrue("Duplicate id " + entry.id, ids.add(entry.id));
+            assertFalse(entry.title.isEmpty());
+            perMood.merge(entry.mood, 1, Integer::sum);
+        }
+
+        assertEquals(105, ids.size());
+        assertEquals(5, perMood.size());
+        for (int count : perMood.values()) {
+            assertEquals(21, count);
+        }
+
+        assertEquals(catalog.getChecksum(), QuestCatalog.readChecksum(context));
+    }
+
+    @Test
+    public void freshDatabaseInstallsCatalog() {
+        long start = SystemClock.elapsedRealtime();
+        DatabaseHelper helper = new DatabaseHelper(context, DB_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        Log.i(TAG, "Fresh database created in " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        assertEquals(105, count(db, "SELECT COUNT(*) FROM quest"));
+        assertEquals(21, count(db, "SELECT COUNT(*) FROM quest WHERE mood='sad'"));
+        helper.close();
+    }
+
+    @Test
+    public void changedCatalogReinstallsWithoutLosingProgress() {
+        DatabaseHelper helper = new DatabaseHelper(context, DB_NAME);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        // Simulate an older install: stale text, some progress, different checksum
+        db.execSQL("UPDATE quest SET title='old', progress=100, rewarded=1 WHERE id=1");
+        db.execSQL("DELETE FROM quest WHERE id=105");
+        db.execSQL("UPDATE meta SET value='0' WHERE key='quest_catalog_crc'");
+        helper.close();
+
+        helper = new DatabaseHelper(context, DB_NAME);
+        db = helper.getWritableDatabase();
+
+        assertEquals(105, count(db, "SELECT COUNT(*) FROM quest"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM quest WHERE title='old'"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM quest WHERE id=1 AND progress=100 AND rewarded=1"));
+        helper.close();
+    }
+
+    private static int count(SQLiteDatabase db, String sql) {
+        Cursor c = db.rawQuery(sql, null);
+        int count = c.moveToFirst() ? c.getInt(0) : -1;
+        c.close();
+        return count;
+    }
+}
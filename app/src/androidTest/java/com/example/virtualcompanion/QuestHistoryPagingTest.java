@@ -0,0 +1,117 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Walks a long quest history and the catalog page by page, the way the
+ * history and browse screens do
+ */
+@RunWith(AndroidJUnit4.class)
+public class QuestHistoryPagingTest {
+
+    private static final int COMPLETIONS = 10_000;
+    private static final int PAGE_SIZE = 50;
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // in-memory
+        db = helper.getWritableDatabase();
+
+        SQLiteStatement insert = db.compileStatement(DatabaseManager.SQL_ADD_QUEST_COMPLETION);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < COMPLETIONS; i++) {
+                insert.bindLong(1, DatabaseHelper.FIRST_PROFILE_ID);
+                insert.bindLong(2, 1 + i % 100);
+                insert.bindLong(3, 30);
+                insert.bindLong(4, 1_767_600_000_000L + i * 60_000L);
+                insert.bindLong(5, 1 + i % 5);
+                insert.bindLong(6, 60_000);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void historyPagesCoverEveryCompletionNewestFirst() {
+        long beforeId = Long.MAX_VALUE;
+        long previousId = Long.MAX_VALUE;
+        int seen = 0;
+
+        while (true) {
+            Cursor c = db.rawQuery(DatabaseManager.SQL_QUEST_HISTORY_PAGE,
+                    new String[]{String.valueOf(DatabaseHelper.FIRST_PROFILE_ID),
+                            String.valueOf(beforeId), String.valueOf(PAGE_SIZE)});
+            int rows = c.getCount();
+            while (c.moveToNext()) {
+                long id = c.getLong(0);
+                assertTrue("Out of order at " + id, id < previousId);
+                previousId = id;
+                seen++;
+            }
+            c.close();
+
+            if (rows < PAGE_SIZE) {
+                break;
+            }
+            beforeId = previousId;
+        }
+
+        assertEquals(COMPLETIONS, seen);
+    }
+
+    @Test
+    public void catalogPagesCoverEveryQuestOnce() {
+        long total = 0;
+        int afterId = 0;
+
+        while (true) {
+            Cursor c = db.rawQuery(DatabaseManager.SQL_QUEST_CATALOG_PAGE,
+                    new String[]{String.valueOf(DatabaseHelper.FIRST_PROFILE_ID),
+                            String.valueOf(afterId), String.valueOf(PAGE_SIZE)});
+            int rows = c.getCount();
+            while (c.moveToNext()) {
+                int id = c.getInt(0);
+                assertTrue(id > afterId);
+                afterId = id;
+                total++;
+            }
+            c.close();
+
+            if (rows < PAGE_SIZE) {
+                break;
+            }
+        }
+
+        Cursor c = db.rawQuery("SELECT COUNT(*) FROM quest", null);
+        c.moveToFirst();
+        assertEquals(c.getLong(0), total);
+        c.close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * quest_fts against the real catalog in an in-memory database
+ */
+@RunWith(AndroidJUnit4.class)
+public class QuestSearchTest {
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DatabaseHelper(context, null); // in-memory
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void stemmedWordsMatch() {
+        // "breathing" finds "Breathe in for 4 counts" as well as "Box Breathing"
+        List<Integer> ids = search("breathing");
+        assertTrue(ids.contains(1));  // Box Breathing
+        assertTrue(ids.contains(43)); // Extended Exhale - description only
+    }
+
+    @Test
+    public void halfTypedWordMatchesAsPrefix() {
+        List<Integer> ids = search("wat");
+        assertTrue(ids.contains(2));  // Water Sipping
+        assertTrue(ids.contains(69)); // Cold Water Splash
+    }
+
+    @Test
+    public void titleHitsRankAboveDescriptionHits() {
+        List<Integer> ids = search("breathing");
+        assertTrue(ids.indexOf(1) < ids.indexOf(43));
+    }
+
+    @Test
+    public void indexFollowsQuestEdits() {
+        db.execSQL("UPDATE quest SET title='Lantern Walk', description='' WHERE id=1");
+        assertFalse(search("box").contains(1));
+        assertTrue(search("lantern").contains(1));
+
+        // Other column updates leave the index alone (and intact)
+        db.execSQL("UPDATE quest SET reward=40 WHERE id=1");
+        assertTrue(search("lantern").contains(1));
+
+        db.execSQL("DELETE FROM quest WHERE id=1");
+        assertTrue(search("lantern").isEmpty());
+
+        // Throws if the index no longer matches the quest table
+        db.execSQL("INSERT INTO quest_fts (quest_fts) VALUES ('integrity-check')");
+    }
+
+    // ================= HELPERS =================
+
+    /**
+     * Quest ids for the typed text, best match first (as DatabaseManager ranks them)
+     */
+    private List<Integer> search(String text) {
+        List<double[]> ranked = new ArrayList<>();
+        Cursor c = db.rawQuery(DatabaseManager.SQL_SEARCH_QUEST_RANKS,
+                new String[]{QuestSearchQuery.toMatchExpression(text)});
+        while (c.moveToNext()) {
+            ranked.add(new double[]{QuestSearchQuery.score(c.getBlob(1)), c.getInt(0)});
+        }
+        c.close();
+
+        ranked.sort((a, b) -> Double.compare(b[0], a[0]));
+        List<Integer> ids = new ArrayList<>();
+        for (double[] r : ranked) {
+            ids.add((int) r[1]);
+        }
+        return ids;
+    }
+}
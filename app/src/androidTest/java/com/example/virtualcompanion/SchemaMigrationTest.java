@@ -0,0 +1,280 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds a database at every old schema version, upgrades it with
+ * DatabaseHelper and checks that the result matches a fresh install:
+ * same tables, columns, foreign keys, indexes and triggers, with the
+ * user's data kept.
+ *
+ * When a migration step is added, add the schema its version shipped
+ * with here.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SchemaMigrationTest {
+
+    private static final String FRESH_DB = "schema_migration_fresh.db";
+    private static final String UPGRADED_DB = "schema_migration_upgraded.db";
+
+    // ================= HISTORICAL SCHEMAS =================
+    // Copied from onCreate as it shipped
+
+    private static final String USER_V6 =
+            "CREATE TABLE IF NOT EXISTS user (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, " +
+                    "coins INTEGER NOT NULL DEFAULT 0, pet_gender TEXT NOT NULL CHECK " +
+                    "(pet_gender IN ('male','female')));";
+
+    private static final String QUEST_V6 =
+            "CREATE TABLE IF NOT EXISTS quest (id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT NOT NULL, " +
+                    "description TEXT, reward INTEGER NOT NULL DEFAULT 0, progress INTEGER NOT NULL DEFAULT 0, " +
+                    "rewarded INTEGER NOT NULL DEFAULT 0 CHECK (rewarded IN (0,1)), mood TEXT NOT NULL CHECK " +
+                    "(mood IN ('neutral','happy','sad','angry','anxious')));";
+
+    private static final String QUEST_V7 =
+            "CREATE TABLE IF NOT EXISTS quest (id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT NOT NULL, " +
+                    "description TEXT, reward INTEGER NOT NULL DEFAULT 0, timer_minutes INTEGER NOT NULL DEFAULT 5, " +
+                    "progress INTEGER NOT NULL DEFAULT 0, rewarded INTEGER NOT NULL DEFAULT 0 CHECK (rewarded IN (0,1)), " +
+                    "mood TEXT NOT NULL CHECK (mood IN ('neutral','happy','sad','angry','anxious')));";
+
+    private static final String MOOD_V6 =
+            "CREATE TABLE IF NOT EXISTS mood (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "value INTEGER NOT NULL CHECK (value BETWEEN 1 AND 5), date TEXT NOT NULL);";
+
+    private static final String ACCESSORY_V8 =
+            "CREATE TABLE IF NOT EXISTS accessory (id INTEGER PRIMARY KEY AUTOINCREMENT, image INTEGER NOT NULL, " +
+                    "price INTEGER NOT NULL, type TEXT NOT NULL CHECK (type IN ('top','bottom','hat','glasses')), " +
+                    "owned INTEGER NOT NULL DEFAULT 0 CHECK (owned IN (0,1)), " +
+                    "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1)));";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(FRESH_DB);
+        context.deleteDatabase(UPGRADED_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(FRESH_DB);
+        context.deleteDatabase(UPGRADED_DB);
+    }
+
+    // ================= SCHEMA =================
+
+    @Test
+    public void everyOldVersionUpgradesToTheFreshSchema() {
+        DatabaseHelper freshHelper = new DatabaseHelper(context, FRESH_DB);
+        List<String> fresh = describeSchema(freshHelper.getWritableDatabase());
+        freshHelper.close();
+
+        for (int version = DatabaseHelper.OLDEST_UPGRADABLE_VERSION; version < DatabaseHelper.DB_VERSION; version++) {
+            context.deleteDatabase(UPGRADED_DB);
+            createOldDatabase(version);
+
+            DatabaseHelper helper = new DatabaseHelper(context, UPGRADED_DB);
+            SQLiteDatabase db = helper.getWritableDatabase();
+
+            assertEquals(DatabaseHelper.DB_VERSION, db.getVersion());
+            assertEquals("Upgrade from version " + version, fresh, describeSchema(db));
+            helper.close();
+        }
+    }
+
+    @Test
+    public void unknownOldVersionIsRecreated() {
+        DatabaseHelper freshHelper = new DatabaseHelper(context, FRESH_DB);
+        List<String> fresh = describeSchema(freshHelper.getWritableDatabase());
+        freshHelper.close();
+
+        createOldDatabase(DatabaseHelper.OLDEST_UPGRADABLE_VERSION);
+        SQLiteDatabase old = SQLiteDatabase.openDatabase(
+                context.getDatabasePath(UPGRADED_DB).getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        old.setVersion(DatabaseHelper.OLDEST_UPGRADABLE_VERSION - 1);
+        old.close();
+
+        // No steps before OLDEST_UPGRADABLE_VERSION: dropped and created fresh
+        DatabaseHelper helper = new DatabaseHelper(context, UPGRADED_DB);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(DatabaseHelper.DB_VERSION, db.getVersion());
+        assertEquals(fresh, describeSchema(db));
+        assertEquals(DatabaseHelper.STARTING_COINS, queryLong(db, "SELECT coins FROM user WHERE id=1"));
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM mood"));
+        helper.close();
+    }
+
+    // ================= DATA =================
+
+    @Test
+    public void upgradeKeepsUserData() {
+        for (int version = DatabaseHelper.OLDEST_UPGRADABLE_VERSION; version < DatabaseHelper.DB_VERSION; version++) {
+            context.deleteDatabase(UPGRADED_DB);
+            createOldDatabase(version);
+
+            DatabaseHelper helper = new DatabaseHelper(context, UPGRADED_DB);
+            SQLiteDatabase db = helper.getWritableDatabase();
+
+            assertEquals(420, queryLong(db, "SELECT coins FROM user WHERE id=1"));
+            assertEquals(420, queryLong(db, "SELECT SUM(delta) FROM coin_ledger WHERE profile_id=1"));
+
+            // 2026-01-05 = epoch day 20458
+            assertEquals(20458, queryLong(db, "SELECT day FROM mood WHERE id=1"));
+            assertEquals(4, queryLong(db, "SELECT total FROM mood_daily WHERE profile_id=1 AND day=20458"));
+
+            // Everything the one user had became profile 1's
+            assertEquals(100, queryLong(db, "SELECT progress FROM quest_progress WHERE profile_id=1 AND quest_id=1"));
+            assertEquals(1, queryLong(db, "SELECT rewarded FROM quest_progress WHERE profile_id=1 AND quest_id=1"));
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM mood WHERE profile_id!=1"));
+
+            // Free items are owned by every profile
+            assertEquals(queryLong(db, "SELECT COUNT(*) FROM accessory WHERE price=0"),
+                    queryLong(db, "SELECT COUNT(*) FROM profile_item WHERE profile_id=1"));
+
+            // Completed before history was kept: in the history, without a date
+            assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM quest_completion " +
+                    "WHERE profile_id=1 AND quest_id=1 AND completed_at IS NULL"));
+
+            // ...and counts as shown and completed once for weighted draws
+            assertEquals(1, queryLong(db, "SELECT shown FROM quest_stats WHERE profile_id=1 AND quest_id=1"));
+            assertEquals(1, queryLong(db, "SELECT completed FROM quest_stats WHERE profile_id=1 AND quest_id=1"));
+
+            // ...but starts no streak, and has no mood or duration
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM quest_streak"));
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM quest_completion " +
+                    "WHERE mood IS NOT NULL OR duration_ms IS NOT NULL"));
+
+            // Quests that existed before the search index are found by it
+            assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM quest_fts WHERE quest_fts MATCH 'breathing' AND docid=1"));
+
+            helper.close();
+        }
+    }
+
+    // ================= HELPERS =================
+
+    /**
+     * Write UPGRADED_DB as the given version would have created it, with some user data
+     */
+    private void createOldDatabase(int version) {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(UPGRADED_DB), null);
+
+        db.execSQL(USER_V6);
+        db.execSQL(version >= 7 ? QUEST_V7 : QUEST_V6);
+        db.execSQL(MOOD_V6);
+        if (version >= 8) {
+            db.execSQL(ACCESSORY_V8);
+        }
+
+        db.execSQL("INSERT INTO user (id, name, coins, pet_gender) VALUES (1,'Mochi',420,'female')");
+        db.execSQL("INSERT INTO quest (id, title, description, reward, progress, rewarded, mood) " +
+                "VALUES (1,'Box Breathing','',30,100,1,'neutral')");
+        db.execSQL("INSERT INTO mood (id, value, date) VALUES (1,4,'2026-01-05')");
+
+        db.setVersion(version);
+        db.close();
+    }
+
+    /**
+     * Tables, columns, foreign keys, indexes and triggers, sorted so that column
+     * order (ALTER TABLE appends) and creation order don't matter
+     */
+    private static List<String> describeSchema(SQLiteDatabase db) {
+        List<String> schema = new ArrayList<>();
+
+        List<String> tables = new ArrayList<>();
+        Cursor c = db.rawQuery(
+                "SELECT name FROM sqlite_master WHERE type='table' " +
+                        "AND name NOT LIKE 'sqlite_%' AND name != 'android_metadata'", null);
+        while (c.moveToNext()) {
+            tables.add(c.getString(0));
+        }
+        c.close();
+
+        for (String table : tables) {
+            c = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+            while (c.moveToNext()) {
+                schema.add("column " + table + "." + c.getString(c.getColumnIndexOrThrow("name"))
+                        + " " + c.getString(c.getColumnIndexOrThrow("type"))
+                        + " notnull=" + c.getInt(c.getColumnIndexOrThrow("notnull"))
+                        + " default=" + c.getString(c.getColumnIndexOrThrow("dflt_value"))
+                        + " pk=" + c.getInt(c.getColumnIndexOrThrow("pk")));
+            }
+            c.close();
+
+            c = db.rawQuery("PRAGMA foreign_key_list(" + table + ")", null);
+            while (c.moveToNext()) {
+                schema.add("foreign key " + table + "." + c.getString(c.getColumnIndexOrThrow("from"))
+                        + " -> " + c.getString(c.getColumnIndexOrThrow("table"))
+                        + "." + c.getString(c.getColumnIndexOrThrow("to")));
+            }
+            c.close();
+
+            List<String> indexes = new ArrayList<>();
+            c = db.rawQuery("PRAGMA index_list(" + table + ")", null);
+            while (c.moveToNext()) {
+                String index = c.getString(c.getColumnIndexOrThrow("name"));
+                indexes.add(index);
+                schema.add("index " + table + "." + index
+                        + " unique=" + c.getInt(c.getColumnIndexOrThrow("unique"))
+                        + " origin=" + c.getString(c.getColumnIndexOrThrow("origin"))
+                        + " partial=" + c.getInt(c.getColumnIndexOrThrow("partial")));
+            }
+            c.close();
+
+            for (String index : indexes) {
+                StringBuilder columns = new StringBuilder();
+                c = db.rawQuery("PRAGMA index_info(" + index + ")", null);
+                while (c.moveToNext()) {
+                    columns.append(c.getString(c.getColumnIndexOrThrow("name"))).append(',');
+                }
+                c.close();
+                schema.add("index columns " + index + " (" + columns + ")");
+            }
+        }
+
+        // Explicit indexes: the SQL also carries partial WHERE clauses
+        c = db.rawQuery("SELECT name, sql FROM sqlite_master WHERE type='index' AND sql IS NOT NULL", null);
+        while (c.moveToNext()) {
+            schema.add("index sql " + c.getString(0) + ": " + c.getString(1).replaceAll("\\s+", " "));
+        }
+        c.close();
+
+        // Virtual tables (quest_fts) and the triggers that keep them in sync
+        c = db.rawQuery("SELECT type, name, sql FROM sqlite_master WHERE type='trigger' " +
+                "OR (type='table' AND sql LIKE 'CREATE VIRTUAL TABLE%')", null);
+        while (c.moveToNext()) {
+            schema.add(c.getString(0) + " sql " + c.getString(1) + ": " + c.getString(2).replaceAll("\\s+", " "));
+        }
+        c.close();
+
+        Collections.sort(schema);
+        return schema;
+    }
+
+    private static long queryLong(SQLiteDatabase db, String sql) {
+        Cursor c = db.rawQuery(sql, null);
+        assertTrue("No row for: " + sql, c.moveToFirst());
+        long value = c.getLong(0);
+        c.close();
+        return value;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.virtualcompanion;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * AliasTable
+ *
+ * Walker's alias method (Vose's construction) for drawing an index with
+ * probability proportional to its weight:
+ * - Building the table is O(n)
+ * - Every draw is O(1): one uniform column, one biased coin
+ *
+ * Each column i keeps i with probability prob[i] and gives the rest of
+ * its share to alias[i]. Weights must be >= 0; if they are all 0 every
+ * index is equally likely.
+ *
+ * Immutable once built. Plain Java so it can be unit tested on the JVM.
+ */
+final class AliasTable {
+
+    private final double[] prob;
+    private final int[] alias;
+
+    AliasTable(double[] weights) {
+        int n = weights.length;
+        prob = new double[n];
+        alias = new int[n];
+
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        if (n == 0) {
+            return;
+        }
+
+        if (!(total > 0)) {
+            Arrays.fill(prob, 1.0);
+            return;
+        }
+
+        // Scaled so the average column is exactly 1
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // Fill each short column from a tall one
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            prob[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is 1 up to rounding
+        while (largeCount > 0) {
+            prob[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            prob[small[--smallCount]] = 1.0;
+        }
+    }
+
+    /**
+     * Number of indexes the table draws from
+     */
+    int size() {
+        return prob.length;
+    }
+
+    /**
+     * Draw one index in [0, size())
+     */
+    int sample(Random random) {
+        int column = random.nextInt(prob.length);
+        return random.nextDouble() < prob[column] ? column : alias[column];
+    }
+}
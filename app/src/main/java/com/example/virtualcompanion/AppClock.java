@@ -0,0 +1,166 @@
+package com.example.virtualcompanion;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * AppClock
+ *
+ * Single source of "now" and "today" for the app:
+ * - Caches today's epoch day and its "yyyy-MM-dd" key
+ * - Recomputes only when the time leaves the cached day (or after
+ *   invalidate(), called on time / time-zone change broadcasts)
+ * - Time source and zone are injectable, so tests can move the clock
+ *   across midnight instead of waiting for it
+ *
+ * Plain Java (no Android classes) so it can be unit tested on the JVM.
+ */
+public final class AppClock {
+
+    /**
+     * Where the current time comes from
+     */
+    public interface TimeSource {
+        long currentTimeMillis();
+    }
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static volatile AppClock instance = new AppClock(System::currentTimeMillis, null);
+
+    private final TimeSource source;
+
+    // Fixed zone for tests; null = TimeZone.getDefault() at each refresh
+    private final TimeZone zone;
+
+    // Day the clock was last in (null = recompute on next call)
+    private volatile Day cachedDay;
+
+    /**
+     * One local calendar day: [startMillis, endMillis)
+     */
+    private static final class Day {
+        final long startMillis;
+        final long endMillis;
+        final long epochDay;
+        final String key;
+
+        Day(long startMillis, long endMillis, long epochDay, String key) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.epochDay = epochDay;
+            this.key = key;
+        }
+    }
+
+    public AppClock(TimeSource source, TimeZone zone) {
+        this.source = source;
+        this.zone = zone;
+    }
+
+    /**
+     * Get the app-wide clock
+     */
+    public static AppClock get() {
+        return instance;
+    }
+
+    /**
+     * Replace the app-wide clock (tests only)
+     */
+    static void setForTesting(AppClock clock) {
+        instance = clock != null ? clock : new AppClock(System::currentTimeMillis, null);
+    }
+
+    // ================= TIME =================
+
+    public long now() {
+        return source.currentTimeMillis();
+    }
+
+    /**
+     * Today as days since 1970-01-01 in local time
+     */
+    public long today() {
+        return dayAt(now()).epochDay;
+    }
+
+    /**
+     * Today as "yyyy-MM-dd" (ASCII digits, whatever the locale)
+     */
+    public String todayKey() {
+        return dayAt(now()).key;
+    }
+
+    /**
+     * When the current day ends (ms since epoch)
+     */
+    public long nextDayStartMillis() {
+        return dayAt(now()).endMillis;
+    }
+
+    /**
+     * Local calendar day of a timestamp in this clock's zone
+     */
+    public long epochDayOf(long millis) {
+        return toEpochDay(millis, zone != null ? zone : TimeZone.getDefault());
+    }
+
+    /**
+     * Forget the cached day (time or time zone was changed)
+     */
+    public void invalidate() {
+        cachedDay = null;
+    }
+
+    private Day dayAt(long now) {
+        Day day = cachedDay;
+        if (day != null && now >= day.startMillis && now < day.endMillis) {
+            return day; // Same day - no date math at all
+        }
+
+        day = computeDay(now);
+        cachedDay = day;
+        return day;
+    }
+
+    private Day computeDay(long now) {
+        TimeZone tz = zone != null ? zone : TimeZone.getDefault();
+        Calendar cal = Calendar.getInstance(tz);
+        cal.setTimeInMillis(now);
+
+        int year = cal.get(Calendar.YEAR);
+        int month = cal.get(Calendar.MONTH) + 1;
+        int dayOfMonth = cal.get(Calendar.DAY_OF_MONTH);
+
+        // Local midnight today and tomorrow (days can be 23 or 25 hours long)
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        long start = cal.getTimeInMillis();
+        cal.add(Calendar.DAY_OF_MONTH, 1);
+        long end = cal.getTimeInMillis();
+
+        return new Day(start, end, toEpochDay(now, tz), formatKey(year, month, dayOfMonth));
+    }
+
+    // ================= HELPERS =================
+
+    /**
+     * Local calendar day of a timestamp, as days since 1970-01-01
+     */
+    public static long toEpochDay(long millis, TimeZone zone) {
+        return Math.floorDiv(millis + zone.getOffset(millis), DAY_MILLIS);
+    }
+
+    private static String formatKey(int year, int month, int day) {
+        StringBuilder sb = new StringBuilder(10);
+        sb.append(year).append('-');
+        if (month < 10) sb.append('0');
+        sb.append(month).append('-');
+        if (day < 10) sb.append('0');
+        sb.append(day);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,431 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * AppStateStore
+ *
+ * Small app state (outfit, owned items, pet name, daily flags) in one
+ * binary file instead of five SharedPreferences XML files:
+ * - Everything is read once into memory; reads never touch the disk
+ * - Edits apply to memory at once and are written together a moment
+ *   later, so a burst of edits costs one write
+ * - Each write goes to a temp file which is synced and renamed over the
+ *   old one, so the file is always either the old or the new state
+ *
+ * The old XML files are imported once, the first time the store is
+ * opened (see LegacyPrefsImporter).
+ */
+public final class AppStateStore {
+
+    private static final String TAG = "AppStateStore";
+
+    static final String FILE_NAME = "app_state.bin";
+
+    private static final int MAGIC = 0x56435354; // "VCST"
+    private static final int FORMAT_VERSION = 1;
+
+    // How long edits are collected before they are written
+    private static final long FLUSH_DELAY_MS = 200;
+
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_STRING = 4;
+    private static final byte TYPE_STRING_SET = 5;
+
+    /**
+     * A named value of a fixed type, with the value to use when it's not set
+     */
+    public static final class Key<T> {
+        final String name;
+        final byte type;
+        final T defaultValue;
+
+        private Key(String name, byte type, T defaultValue) {
+            this.name = name;
+            this.type = type;
+            this.defaultValue = defaultValue;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The same setting for one companion profile. Profile 1 keeps the
+         * plain name, so values saved before profiles existed stay its own.
+         */
+        public Key<T> forProfile(long profileId) {
+            if (profileId == DatabaseHelper.FIRST_PROFILE_ID) {
+                return this;
+            }
+            return new Key<>("profile." + profileId + "." + name, type, defaultValue);
+        }
+    }
+
+    public static Key<Boolean> booleanKey(String name, boolean defaultValue) {
+        return new Key<>(name, TYPE_BOOLEAN, defaultValue);
+    }
+
+    public static Key<Integer> intKey(String name, int defaultValue) {
+        return new Key<>(name, TYPE_INT, defaultValue);
+    }
+
+    public static Key<Long> longKey(String name, long defaultValue) {
+        return new Key<>(name, TYPE_LONG, defaultValue);
+    }
+
+    public static Key<String> stringKey(String name, String defaultValue) {
+        return new Key<>(name, TYPE_STRING, defaultValue);
+    }
+
+    public static Key<Set<String>> stringSetKey(String name) {
+        return new Key<>(name, TYPE_STRING_SET, Collections.<String>emptySet());
+    }
+
+    private static volatile AppStateStore instance;
+
+    private final File file;
+    private final ScheduledExecutorService flusher;
+
+    // Guarded by this
+    private final Map<String, Object> values = new HashMap<>();
+    private boolean dirty;
+    private boolean flushScheduled;
+
+    // Only one write to the file at a time
+    private final Object fileLock = new Object();
+
+    AppStateStore(File file, ScheduledExecutorService flusher) {
+        this.file = file;
+        this.flusher = flusher;
+    }
+
+    /**
+     * Get the app-wide store (reads the file on first use - call it off the
+     * UI thread first, StartupPipeline does)
+     */
+    public static AppStateStore get(Context context) {
+        AppStateStore store = instance;
+        if (store != null) return store;
+
+        synchronized (AppStateStore.class) {
+            if (instance == null) {
+                Context appContext = context.getApplicationContext();
+                store = new AppStateStore(
+                        new File(appContext.getFilesDir(), FILE_NAME),
+                        Executors.newSingleThreadScheduledExecutor(r -> {
+                            Thread t = new Thread(r, "state-io");
+                            t.setDaemon(true);
+                            return t;
+                        })
+                );
+
+                if (!store.load()) {
+                    LegacyPrefsImporter.importAll(appContext, store);
+                }
+                instance = store;
+            }
+            return instance;
+        }
+    }
+
+    // ================= READING =================
+
+    public <T> T get(Key<T> key) {
+        Object value;
+        synchronized (this) {
+            value = values.get(key.name);
+        }
+        return value != null && typeOf(value) == key.type ? cast(value) : key.defaultValue;
+    }
+
+    public synchronized boolean contains(Key<?> key) {
+        Object value = values.get(key.name);
+        return value != null && typeOf(value) == key.type;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    // ================= WRITING =================
+
+    public <T> void put(Key<T> key, T value) {
+        edit().put(key, value).apply();
+    }
+
+    public void remove(Key<?> key) {
+        edit().remove(key).apply();
+    }
+
+    /**
+     * Start a batch of changes that is applied all at once
+     */
+    public Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * A batch of changes. Nothing is visible until apply().
+     */
+    public final class Editor {
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+
+        private Editor() {
+        }
+
+        public <T> Editor put(Key<T> key, T value) {
+            if (value instanceof Set) {
+                // Stored sets are immutable copies, so readers can share them
+                @SuppressWarnings("unchecked")
+                Set<String> set = (Set<String>) value;
+                changes.put(key.name, Collections.unmodifiableSet(new LinkedHashSet<>(set)));
+            } else {
+                changes.put(key.name, value);
+            }
+            return this;
+        }
+
+        public Editor remove(Key<?> key) {
+            changes.put(key.name, null);
+            return this;
+        }
+
+        /**
+         * Remove everything, then apply this editor's puts
+         */
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        /**
+         * Apply to memory now, write to disk shortly
+         */
+        public void apply() {
+            synchronized (AppStateStore.this) {
+                if (clear) values.clear();
+                for (Map.Entry<String, Object> change : changes.entrySet()) {
+                    if (change.getValue() == null) {
+                        values.remove(change.getKey());
+                    } else {
+                        values.put(change.getKey(), change.getValue());
+                    }
+                }
+
+                dirty = true;
+                scheduleFlush(FLUSH_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Write pending changes soon, without waiting for more edits
+     * (the app is going to the background and may be killed)
+     */
+    public synchronized void flushSoon() {
+        if (dirty) {
+            flushScheduled = false;
+            scheduleFlush(0);
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled) return;
+        flushScheduled = true;
+
+        flusher.schedule(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                android.util.Log.e(TAG, "Could not save app state: " + e.getMessage(), e);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write pending changes now (blocking)
+     */
+    void flush() throws IOException {
+        synchronized (fileLock) {
+            Map<String, Object> snapshot;
+            synchronized (this) {
+                flushScheduled = false;
+                if (!dirty) return;
+                dirty = false;
+                snapshot = new HashMap<>(values);
+            }
+
+            try {
+                writeFile(snapshot);
+            } catch (IOException e) {
+                synchronized (this) {
+                    dirty = true; // Try again with the next edit
+                }
+                throw e;
+            }
+        }
+    }
+
+    // ================= FILE FORMAT =================
+    // MAGIC, version, CRC32 of the records, record count, then per record:
+    // UTF key, type byte, value (string sets: int size + UTF items)
+
+    /**
+     * Read the file into memory. Returns false if there was no file yet.
+     */
+    boolean load() {
+        if (!file.exists()) return false;
+
+        try (InputStream in = new FileInputStream(file)) {
+            Map<String, Object> loaded = read(in);
+            synchronized (this) {
+                values.clear();
+                values.putAll(loaded);
+            }
+        } catch (IOException e) {
+            // A torn write can't happen (rename), so this is a damaged disk -
+            // start over rather than crash on every launch
+            android.util.Log.e(TAG, "Unreadable app state, starting empty: " + e.getMessage(), e);
+        }
+        return true;
+    }
+
+    private void writeFile(Map<String, Object> snapshot) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(records);
+        for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+            writeRecord(out, entry.getKey(), entry.getValue());
+        }
+        out.flush();
+        byte[] payload = records.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream header = new DataOutputStream(fos);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeInt((int) crc.getValue());
+            header.writeInt(snapshot.size());
+            header.write(payload);
+            header.flush();
+            fos.getFD().sync();
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String key, Object value) throws IOException {
+        byte type = typeOf(value);
+        out.writeUTF(key);
+        out.writeByte(type);
+
+        switch (type) {
+            case TYPE_BOOLEAN: out.writeBoolean((Boolean) value); break;
+            case TYPE_INT: out.writeInt((Integer) value); break;
+            case TYPE_LONG: out.writeLong((Long) value); break;
+            case TYPE_STRING: out.writeUTF((String) value); break;
+            case TYPE_STRING_SET:
+                Set<?> set = (Set<?>) value;
+                out.writeInt(set.size());
+                for (Object item : set) {
+                    out.writeUTF((String) item);
+                }
+                break;
+        }
+    }
+
+    static Map<String, Object> read(InputStream file) throws IOException {
+        DataInputStream in = new DataInputStream(file);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an app state file");
+        }
+
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported app state version " + version);
+        }
+
+        long checksum = in.readInt() & 0xFFFFFFFFL;
+        int count = in.readInt();
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        byte[] chunk = new byte[4096];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, n);
+        }
+        byte[] payload = buffer.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (crc.getValue() != checksum) {
+            throw new IOException("App state checksum mismatch");
+        }
+
+        DataInputStream records = new DataInputStream(new ByteArrayInputStream(payload));
+        Map<String, Object> values = new HashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            String key = records.readUTF();
+            byte type = records.readByte();
+
+            switch (type) {
+                case TYPE_BOOLEAN: values.put(key, records.readBoolean()); break;
+                case TYPE_INT: values.put(key, records.readInt()); break;
+                case TYPE_LONG: values.put(key, records.readLong()); break;
+                case TYPE_STRING: values.put(key, records.readUTF()); break;
+                case TYPE_STRING_SET:
+                    int size = records.readInt();
+                    Set<String> set = new LinkedHashSet<>(size * 2);
+                    for (int j = 0; j < size; j++) {
+                        set.add(records.readUTF());
+                    }
+                    values.put(key, Collections.unmodifiableSet(set));
+                    break;
+                default:
+                    throw new IOException("Unknown app state type " + type);
+            }
+        }
+
+        return values;
+    }
+
+    private static byte typeOf(Object value) {
+        if (value instanceof Boolean) return TYPE_BOOLEAN;
+        if (value instanceof Integer) return TYPE_INT;
+        if (value instanceof Long) return TYPE_LONG;
+        if (value instanceof String) return TYPE_STRING;
+        if (value instanceof Set) return TYPE_STRING_SET;
+        throw new IllegalArgumentException("Unsupported app state value " + value.getClass());
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.virtualcompanion;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * CompanionBackup
+ *
+ * Everything needed to move one companion (profile) to another phone, in
+ * one file: pet name and gender, coins, owned and equipped items, quest
+ * progress, the quest history and the full mood history. A backup restores
+ * into whichever profile is active; the others are untouched.
+ *
+ * Both directions stream one cursor row / one record at a time, so memory
+ * stays flat however long the mood history gets. DatabaseManager owns
+ * the transactions and the caches; this class only encodes and decodes.
+ *
+ * Layout (big-endian):
+ *   int magic "VCBK", int format version, int schema version, long created_at
+ *   sections: byte tag, then records each preceded by a true boolean, then false
+ *   byte END, int CRC32 of every byte before it
+ *
+ * Items are matched by ItemRegistry key, so a backup still restores
+ * after items are added to the shop.
+ */
+final class CompanionBackup {
+
+    private static final int MAGIC = 0x5643424B; // "VCBK"
+    // 2: quest history section. 3: mood + duration per completion.
+    // Older files still restore (without what they lack).
+    static final int FORMAT_VERSION = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Section tags (never reuse a number)
+    private static final byte SECTION_END = 0;
+    private static final byte SECTION_USER = 1;
+    private static final byte SECTION_STATE = 2;
+    private static final byte SECTION_ACCESSORY = 3;
+    private static final byte SECTION_QUEST = 4;
+    private static final byte SECTION_MOOD = 5;
+    private static final byte SECTION_COMPLETION = 6;
+
+    // All bind the profile id
+    private static final String SQL_EXPORT_USER =
+            "SELECT name, pet_gender, coins FROM user WHERE id=?";
+    private static final String SQL_EXPORT_ACCESSORY =
+            "SELECT a.item_key, 1, p.equipped FROM profile_item p " +
+                    "JOIN accessory a ON a.id = p.item_id WHERE p.profile_id=?";
+    private static final String SQL_EXPORT_QUEST =
+            "SELECT quest_id, progress, rewarded FROM quest_progress " +
+                    "WHERE profile_id=? AND (progress>0 OR rewarded=1)";
+    private static final String SQL_EXPORT_MOOD =
+            "SELECT value, day, created_at FROM mood WHERE profile_id=? ORDER BY day, id";
+    private static final String SQL_EXPORT_COMPLETION =
+            "SELECT quest_id, reward, completed_at, mood, duration_ms FROM quest_completion " +
+                    "WHERE profile_id=? ORDER BY id";
+
+    // The rollups of one profile, from its restored moods
+    private static final String SQL_REBUILD_MOOD_DAILY =
+            "INSERT INTO mood_daily (profile_id, day, count, total, min_value, max_value) " +
+                    "SELECT profile_id, day, COUNT(*), SUM(value), MIN(value), MAX(value) FROM mood " +
+                    "WHERE profile_id=? GROUP BY day";
+    private static final String SQL_REBUILD_MOOD_WEEKLY =
+            "INSERT INTO mood_weekly (profile_id, week, count, total, min_value, max_value) " +
+                    "SELECT profile_id, (day + 3) / 7, SUM(count), SUM(total), MIN(min_value), MAX(max_value) " +
+                    "FROM mood_daily WHERE profile_id=? GROUP BY (day + 3) / 7";
+
+    /**
+     * What a restore read, apart from the database rows
+     */
+    static final class Contents {
+        String petName;
+        boolean hasCustomized;
+        int items;
+        int quests;
+        int moods;
+        int completions;
+    }
+
+    private CompanionBackup() {
+    }
+
+    // ================= EXPORT =================
+
+    /**
+     * Write the backup (call inside a transaction so the rows are one snapshot)
+     */
+    static Contents write(SQLiteDatabase db, long profileId, String petName, boolean hasCustomized,
+                          OutputStream target) throws IOException {
+        Contents contents = new Contents();
+        contents.petName = petName;
+        contents.hasCustomized = hasCustomized;
+
+        BufferedOutputStream buffered = new BufferedOutputStream(target, BUFFER_SIZE);
+        CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(DatabaseHelper.DB_VERSION);
+        out.writeLong(AppClock.get().now());
+
+        String[] profileArgs = {String.valueOf(profileId)};
+
+        out.writeByte(SECTION_USER);
+        Cursor c = db.rawQuery(SQL_EXPORT_USER, profileArgs);
+        try {
+            while (c.moveToNext()) {
+                out.writeBoolean(true);
+                out.writeUTF(c.getString(0));
+                out.writeUTF(c.getString(1));
+                out.writeInt(c.getInt(2));
+            }
+        } finally {
+            c.close();
+        }
+        out.writeBoolean(false);
+
+        out.writeByte(SECTION_STATE);
+        out.writeBoolean(true);
+        out.writeUTF(petName);
+        out.writeBoolean(hasCustomized);
+        out.writeBoolean(false);
+
+        out.writeByte(SECTION_ACCESSORY);
+        c = db.rawQuery(SQL_EXPORT_ACCESSORY, profileArgs);
+        try {
+            while (c.moveToNext()) {
+                out.writeBoolean(true);
+                out.writeUTF(c.getString(0));
+                out.writeBoolean(c.getInt(1) == 1);
+                out.writeBoolean(c.getInt(2) == 1);
+                contents.items++;
+            }
+        } finally {
+            c.close();
+        }
+        out.writeBoolean(false);
+
+        out.writeByte(SECTION_QUEST);
+        c = db.rawQuery(SQL_EXPORT_QUEST, profileArgs);
+        try {
+            while (c.moveToNext()) {
+                out.writeBoolean(true);
+                out.writeInt(c.getInt(0));
+                out.writeInt(c.getInt(1));
+                out.writeBoolean(c.getInt(2) == 1);
+                contents.quests++;
+            }
+        } finally {
+            c.close();
+        }
+        out.writeBoolean(false);
+
+        out.writeByte(SECTION_MOOD);
+        c = db.rawQuery(SQL_EXPORT_MOOD, profileArgs);
+        try {
+            while (c.moveToNext()) {
+                out.writeBoolean(true);
+                out.writeByte(c.getInt(0));
+                out.writeInt(c.getInt(1));
+                out.writeLong(c.getLong(2));
+                contents.moods++;
+            }
+        } finally {
+            c.close();
+        }
+        out.writeBoolean(false);
+
+        out.writeByte(SECTION_COMPLETION);
+        c = db.rawQuery(SQL_EXPORT_COMPLETION, profileArgs);
+        try {
+            while (c.moveToNext()) {
+                out.writeBoolean(true);
+                out.writeInt(c.getInt(0));
+                out.writeInt(c.getInt(1));
+                out.writeLong(c.isNull(2) ? -1 : c.getLong(2));
+                out.writeByte(c.isNull(3) ? 0 : c.getInt(3));
+                out.writeLong(c.isNull(4) ? -1 : c.getLong(4));
+                contents.completions++;
+            }
+        } finally {
+            c.close();
+        }
+        out.writeBoolean(false);
+
+        out.writeByte(SECTION_END);
+        out.flush();
+
+        // The checksum itself isn't checksummed
+        new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+        buffered.flush();
+
+        return contents;
+    }
+
+    // ================= IMPORT =================
+
+    /**
+     * Replace the profile's rows with the backup's. Call inside a
+     * transaction and only commit if this returns - a damaged or unknown
+     * file throws IOException after some rows were already written.
+     */
+    static Contents read(SQLiteDatabase db, long profileId, InputStream source) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(source, BUFFER_SIZE);
+        CheckedInputStream checked = new CheckedInputStream(buffered, new CRC32());
+        DataInputStream in = new DataInputStream(checked);
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a companion backup");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+            throw new IOException("Unsupported backup format version " + formatVersion);
+        }
+        in.readInt();  // schema version it was made with (informational)
+        in.readLong(); // created_at
+
+        clearCompanionRows(db, profileId);
+
+        Contents contents = new Contents();
+
+        // Profile id is always bound first; the loops below bind from 2
+        SQLiteStatement setUser = db.compileStatement(
+                "UPDATE user SET name=?, pet_gender=?, coins=? WHERE id=?");
+        setUser.bindLong(4, profileId);
+        SQLiteStatement seedLedger = db.compileStatement(
+                "INSERT INTO coin_ledger (profile_id, delta, reason, created_at) VALUES (?, ?, 'snapshot', ?)");
+        // Unknown keys (item no longer sold) insert nothing
+        SQLiteStatement setItem = db.compileStatement(
+                "INSERT OR REPLACE INTO profile_item (profile_id, item_id, type, equipped) " +
+                        "SELECT ?, id, type, ? FROM accessory WHERE item_key=?");
+        SQLiteStatement setQuest = db.compileStatement(
+                "INSERT OR REPLACE INTO quest_progress (profile_id, quest_id, progress, rewarded) " +
+                        "SELECT ?, id, ?, ? FROM quest WHERE id=?");
+        SQLiteStatement addMood = db.compileStatement(
+                "INSERT INTO mood (profile_id, value, day, created_at) VALUES (?,?,?,?)");
+        // Skips quests no longer in the catalog, like SECTION_QUEST
+        SQLiteStatement addCompletion = db.compileStatement(
+                "INSERT INTO quest_completion (profile_id, quest_id, reward, completed_at, mood, duration_ms) " +
+                        "SELECT ?, id, ?, ?, ?, ? FROM quest WHERE id=?");
+        seedLedger.bindLong(1, profileId);
+        setItem.bindLong(1, profileId);
+        setQuest.bindLong(1, profileId);
+        addMood.bindLong(1, profileId);
+        addCompletion.bindLong(1, profileId);
+
+        try {
+            byte section;
+            while ((section = in.readByte()) != SECTION_END) {
+                switch (section) {
+                    case SECTION_USER:
+                        while (in.readBoolean()) {
+                            setUser.bindString(1, in.readUTF());
+                            setUser.bindString(2, in.readUTF());
+                            int coins = in.readInt();
+                            setUser.bindLong(3, coins);
+                            setUser.executeUpdateDelete();
+
+                            // The restored balance opens a fresh ledger
+                            seedLedger.bindLong(2, coins);
+                            seedLedger.bindLong(3, AppClock.get().now());
+                            seedLedger.executeInsert();
+                        }
+                        break;
+
+                    case SECTION_STATE:
+                        while (in.readBoolean()) {
+                            contents.petName = in.readUTF();
+                            contents.hasCustomized = in.readBoolean();
+                        }
+                        break;
+
+                    case SECTION_ACCESSORY:
+                        while (in.readBoolean()) {
+                            String key = in.readUTF();
+                            boolean owned = in.readBoolean();
+                            setItem.bindLong(2, in.readBoolean() ? 1 : 0);
+                            setItem.bindString(3, key);
+                            // Not owned = no row (older files list those too)
+                            if (owned) {
+                                // 0 rows = item no longer sold; skip it
+                                contents.items += setItem.executeUpdateDelete();
+                            }
+                        }
+                        break;
+
+                    case SECTION_QUEST:
+                        while (in.readBoolean()) {
+                            int id = in.readInt();
+                            setQuest.bindLong(2, in.readInt());
+                            setQuest.bindLong(3, in.readBoolean() ? 1 : 0);
+                            setQuest.bindLong(4, id);
+                            contents.quests += setQuest.executeUpdateDelete();
+                        }
+                        break;
+
+                    case SECTION_MOOD:
+                        while (in.readBoolean()) {
+                            addMood.bindLong(2, in.readByte());
+                            addMood.bindLong(3, in.readInt());
+                            addMood.bindLong(4, in.readLong());
+                            addMood.executeInsert();
+                            contents.moods++;
+                        }
+                        break;
+
+                    case SECTION_COMPLETION:
+                        while (in.readBoolean()) {
+                            int questId = in.readInt();
+                            addCompletion.bindLong(2, in.readInt());
+                            long completedAt = in.readLong();
+                            bindOptional(addCompletion, 3, completedAt, completedAt >= 0);
+                            int mood = formatVersion >= 3 ? in.readByte() : 0;
+                            bindOptional(addCompletion, 4, mood, mood > 0);
+                            long durationMs = formatVersion >= 3 ? in.readLong() : -1;
+                            bindOptional(addCompletion, 5, durationMs, durationMs >= 0);
+                            addCompletion.bindLong(6, questId);
+                            contents.completions += addCompletion.executeUpdateDelete();
+                        }
+                        break;
+
+                    default:
+                        throw new IOException("Unknown backup section " + section);
+                }
+            }
+        } catch (SQLiteException e) {
+            // A value the schema rejects (e.g. a mood outside 1-5) - same as a bad file
+            throw new IOException("Backup doesn't fit the database: " + e.getMessage(), e);
+        } finally {
+            setUser.close();
+            seedLedger.close();
+            setItem.close();
+            setQuest.close();
+            addMood.close();
+            addCompletion.close();
+        }
+
+        int expected = (int) checked.getChecksum().getValue();
+        if (new DataInputStream(buffered).readInt() != expected) {
+            throw new IOException("Backup checksum mismatch");
+        }
+
+        Object[] profileArgs = {profileId};
+        db.execSQL(SQL_REBUILD_MOOD_DAILY, profileArgs);
+        db.execSQL(SQL_REBUILD_MOOD_WEEKLY, profileArgs);
+        DatabaseHelper.rebuildQuestStreaks(db, profileId);
+        DatabaseHelper.seedQuestStats(db, profileId);
+
+        return contents;
+    }
+
+    private static void bindOptional(SQLiteStatement statement, int index, long value, boolean present) {
+        if (present) {
+            statement.bindLong(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    /**
+     * Reset everything of the profile the backup replaces (shop items and
+     * quests keep their rows, and free items are owned again)
+     */
+    private static void clearCompanionRows(SQLiteDatabase db, long profileId) {
+        Object[] profileArgs = {profileId};
+        for (String table : new String[]{"mood", "mood_daily", "mood_weekly", "quest_session",
+                "quest_plan", "coin_ledger", "quest_completion", "quest_streak", "quest_stats",
+                "quest_progress", "profile_item"}) {
+            db.execSQL("DELETE FROM " + table + " WHERE profile_id=?", profileArgs);
+        }
+        db.execSQL(DatabaseHelper.SQL_GIVE_FREE_ITEMS_TO_PROFILE, profileArgs);
+    }
+}
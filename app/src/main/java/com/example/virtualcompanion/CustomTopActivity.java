@@ -36,10 +36,6 @@ public class CustomTopActivity extends BaseActivity {
 
         moodIndex = getIntent().getIntExtra("selected_mood", -1);
 
-        if (moodIndex == -1) {
-            moodIndex = DatabaseManager.get(this).getLatestMood();
-        }
-
         // ================= LAYERS =================
 
         topLayer = findViewById(R.id.topLayer);
@@ -83,7 +79,16 @@ public class CustomTopActivity extends BaseActivity {
                 R.drawable.emote_anxious_b_moodresult
         };
 
-        petDisplay.setImageResource(petEmotions[moodIndex]);
+        if (moodIndex == -1) {
+            // No mood passed in - look up the latest one off the UI thread
+            DatabaseRepository.get(this).getLatestMood(latestMood -> {
+                if (isFinishing() || isDestroyed()) return;
+                moodIndex = latestMood;
+                petDisplay.setImageResource(petEmotions[moodIndex]);
+            });
+        } else {
+            petDisplay.setImageResource(petEmotions[moodIndex]);
+        }
 
         // ================= RECYCLER =================
 
@@ -131,23 +136,6 @@ public class CustomTopActivity extends BaseActivity {
         };
 
 
-        String[] prices = {
-                " ", "0", "0",  "0", "0", "150", "150", "200", "250", "250"
-        };
-
-        int[] priceValues = {
-                0, 0, 0, 0, 0, 150, 150, 200, 250, 250
-        };
-
-        // Initialize free items (price = 0)
-        InventoryManager.initDefaults(this, new int[]{
-                R.drawable.top_boy_flannel_1,
-                R.drawable.top_girl_pink_1,
-                R.drawable.top_boy_floral_1,
-                R.drawable.top_girl_plaid_1
-        });
-
-
         // ================= ADAPTER =================
 
         ShopItemAdapter adapter =
@@ -155,13 +143,12 @@ public class CustomTopActivity extends BaseActivity {
 
                         shopImages,
                         equipImages,
-                        prices,
 
                         (resId, position) -> {
 
                             // PREVIEW
                             selectedPreview = resId;
-                            selectedPrice = priceValues[position];
+                            selectedPrice = ItemRegistry.priceOf(resId);
 
                             if (resId == 0) {
 
@@ -197,39 +184,41 @@ public class CustomTopActivity extends BaseActivity {
 
             // Check if owned
             if (!InventoryManager.isOwned(this, selectedPreview)) {
-                // PURCHASE
-                try {
-                    int coins = DatabaseManager.get(this).getCoins();
-
-                    if (coins >= selectedPrice) {
-                        DatabaseManager.get(this).addCoins(-selectedPrice);
-                        InventoryManager.addItem(this, selectedPreview);
-                        adapter.notifyDataSetChanged();
-                        updateCoinDisplay();
-                        updateEquipText();
-                        android.widget.Toast.makeText(this, "Purchased!", android.widget.Toast.LENGTH_SHORT).show();
-                    } else {
-                        android.widget.Toast.makeText(this, "Not enough coins!", android.widget.Toast.LENGTH_SHORT).show();
+                // PURCHASE (coins, ledger and ownership in one transaction)
+                DatabaseRepository.get(this).purchase(ItemRegistry.ordinalOf(selectedPreview), result -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    switch (result.getStatus()) {
+                        case PURCHASED:
+                            adapter.notifyDataSetChanged();
+                            updateCoinDisplay();
+                            updateEquipText();
+                            android.widget.Toast.makeText(this, "Purchased!", android.widget.Toast.LENGTH_SHORT).show();
+                            break;
+                        case NOT_ENOUGH_COINS:
+                            android.widget.Toast.makeText(this, "Not enough coins!", android.widget.Toast.LENGTH_SHORT).show();
+                            break;
+                        case ALREADY_OWNED:
+                            // Bought on another screen - this one was stale
+                            adapter.notifyDataSetChanged();
+                            updateEquipText();
+                            android.widget.Toast.makeText(this, "You already own this!", android.widget.Toast.LENGTH_SHORT).show();
+                            break;
+                        case UNKNOWN_ITEM:
+                            android.widget.Toast.makeText(this, "Error: item not found in the shop", android.widget.Toast.LENGTH_SHORT).show();
+                            break;
                     }
-                } catch (Exception e) {
-                    android.widget.Toast.makeText(this, "Error: " + e.getMessage(), android.widget.Toast.LENGTH_SHORT).show();
-                }
+                });
                 return;
             }
 
             // UNEQUIP
             if (selectedPreview == equipped) {
-                OutfitManager.setTop(this, 0);
-                topLayer.setVisibility(View.GONE);
-                equipButton.setText("Equip");
-                updateCategoryIcons();
+                OutfitManager.setTop(this, 0, this::onOutfitChanged);
                 return;
             }
 
             // EQUIP
-            OutfitManager.setTop(this, selectedPreview);
-            equipButton.setText("Unequip");
-            updateCategoryIcons();
+            OutfitManager.setTop(this, selectedPreview, this::onOutfitChanged);
         });
 
 
@@ -291,6 +280,20 @@ public class CustomTopActivity extends BaseActivity {
 
     // ================= EQUIP TEXT =================
 
+    /**
+     * An equip/unequip finished on the I/O thread
+     */
+    private void onOutfitChanged(boolean changed) {
+        if (isFinishing() || isDestroyed()) return;
+        if (!changed) {
+            android.widget.Toast.makeText(this, "Buy this item first!", android.widget.Toast.LENGTH_SHORT).show();
+        }
+
+        restoreLayer(topLayer, OutfitManager.getTop(this));
+        updateEquipText();
+        updateCategoryIcons();
+    }
+
     private void updateEquipText() {
         if (equipButton == null) return;
 
@@ -321,8 +324,7 @@ public class CustomTopActivity extends BaseActivity {
 
             // CHEAT MODE: Long press to add 100 coins
             coinDisplay.setOnLongClickListener(v -> {
-                DatabaseManager.get(this).addCoins(100);
-                updateCoinDisplay();
+                DatabaseRepository.get(this).addCoins(100, this::updateCoinDisplay);
                 android.widget.Toast.makeText(this, "[DEV] +100 coins added", android.widget.Toast.LENGTH_SHORT).show();
                 return true;
             });
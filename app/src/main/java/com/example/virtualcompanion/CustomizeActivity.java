@@ -18,6 +18,7 @@ public class CustomizeActivity extends BaseActivity {
     private boolean maxToastShown = false;
     private boolean isEditing = false;
     private View lastSelectedGenderButton = null;
+    private String selectedGender;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -26,6 +27,7 @@ public class CustomizeActivity extends BaseActivity {
         setContentView(R.layout.activity_customize);
 
         DatabaseManager db = DatabaseManager.get(this);
+        DatabaseRepository repository = DatabaseRepository.get(this);
 
         EditText petNameInput = findViewById(R.id.petNameInput);
         ImageView customizablePet = findViewById(R.id.customizablePet);
@@ -45,10 +47,11 @@ public class CustomizeActivity extends BaseActivity {
             petNameInput.setSelection(petNameInput.length());
         }
 
-        applyGenderImage(customizablePet, db.getGender());
+        selectedGender = db.getGender();
+        applyGenderImage(customizablePet, selectedGender);
 
         // Set initial selected button based on saved gender
-        if ("female".equalsIgnoreCase(db.getGender())) {
+        if ("female".equalsIgnoreCase(selectedGender)) {
             lastSelectedGenderButton = girlButton;
             girlButton.setScaleX(1.1f);
             girlButton.setScaleY(1.1f);
@@ -207,7 +210,8 @@ public class CustomizeActivity extends BaseActivity {
                     .start();
 
             // Update gender
-            db.setGender("male");
+            selectedGender = "male";
+            repository.setGender(selectedGender, null);
             applyGenderImage(customizablePet, "male");
 
             // Remember selection
@@ -232,7 +236,8 @@ public class CustomizeActivity extends BaseActivity {
                     .start();
 
             // Update gender
-            db.setGender("female");
+            selectedGender = "female";
+            repository.setGender(selectedGender, null);
             applyGenderImage(customizablePet, "female");
 
             // Remember selection
@@ -257,22 +262,29 @@ public class CustomizeActivity extends BaseActivity {
                 return;
             }
 
-            db.setName(name);
-            db.setGender(db.getGender());
-            db.setHasCustomized(true);
+            // One tap only - the writes finish before the next screen opens
+            doneButton.setEnabled(false);
 
-            Intent intent;
-            if (db.hasSelectedMoodToday()) {
-                // Already selected today -> Go straight to Result screen
-                intent = new Intent(this, MoodResultActivity.class);
-            } else {
-                // New day or first time -> Go to Mood selection
-                intent = new Intent(this, MoodActivity.class);
-            }
+            // The I/O thread runs these in order, so the mood check comes last
+            repository.setName(name, null);
+            repository.setGender(selectedGender, null);
+            repository.setHasCustomized(true, null);
+            repository.hasSelectedMoodToday(moodSelected -> {
+                if (isFinishing() || isDestroyed()) return;
+
+                Intent intent;
+                if (moodSelected) {
+                    // Already selected today -> Go straight to Result screen
+                    intent = new Intent(this, MoodResultActivity.class);
+                } else {
+                    // New day or first time -> Go to Mood selection
+                    intent = new Intent(this, MoodActivity.class);
+                }
 
-            startActivity(intent);
-            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-            finish();
+                startActivity(intent);
+                overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+                finish();
+            });
         });
     }
 
@@ -1,8 +1,17 @@
 package com.example.virtualcompanion;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * DatabaseHelper
@@ -15,13 +24,94 @@ import android.database.sqlite.SQLiteOpenHelper;
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Database file name
-    private static final String DB_NAME = "virtual_companion.db";
+    static final String DB_NAME = "virtual_companion.db";
 
     // Change this if you modify tables later
-    private static final int DB_VERSION = 8; // Incremented for accessory table
+    static final int DB_VERSION = 9; // Incremented for profiles and quest history
+
+    // Oldest version onUpgrade can migrate from (the first one in the field);
+    // anything older is dropped and recreated
+    static final int OLDEST_UPGRADABLE_VERSION = 6;
+
+    private static final String TAG = "DatabaseHelper";
+    private static final String META_QUEST_CATALOG_CRC = "quest_catalog_crc";
+    private static final String META_ITEM_REGISTRY_CRC = "item_registry_crc";
+
+    // The user row every database starts with - the only profile before version 9
+    static final long FIRST_PROFILE_ID = 1;
+
+    // Coins a new profile starts with
+    static final int STARTING_COINS = 150;
+
+    // One profile's completions with a date, in completion order (streak rebuilds)
+    private static final String SQL_DATED_COMPLETIONS_FOR_PROFILE =
+            "SELECT completed_at FROM quest_completion WHERE profile_id=? " +
+                    "AND completed_at IS NOT NULL ORDER BY id";
+
+    // Recommendation counters from the completion history alone (restore);
+    // backups don't carry shows, abandons or mood changes.
+    // Completions of quests no longer in the catalog are skipped.
+    private static final String SQL_SEED_QUEST_STATS_FOR_PROFILE =
+            "INSERT OR REPLACE INTO quest_stats (profile_id, quest_id, shown, completed) " +
+                    "SELECT profile_id, quest_id, COUNT(*), COUNT(*) FROM quest_completion " +
+                    "WHERE profile_id=? AND quest_id IN (SELECT id FROM quest) GROUP BY profile_id, quest_id";
+
+    // Free shop items are owned from the start, by every profile
+    static final String SQL_GIVE_FREE_ITEMS =
+            "INSERT OR IGNORE INTO profile_item (profile_id, item_id, type) " +
+                    "SELECT u.id, a.id, a.type FROM user u CROSS JOIN accessory a WHERE a.price=0";
+    static final String SQL_GIVE_FREE_ITEMS_TO_PROFILE =
+            "INSERT OR IGNORE INTO profile_item (profile_id, item_id, type) " +
+                    "SELECT ?, id, type FROM accessory WHERE price=0";
+
+    private final Context appContext;
 
     public DatabaseHelper(Context context) {
-        super(context, DB_NAME, null, DB_VERSION);
+        this(context, DB_NAME);
+    }
+
+    /**
+     * Open a database under a different file name (null = in-memory, for tests)
+     */
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DB_VERSION);
+        appContext = context.getApplicationContext();
+    }
+
+    /**
+     * Called before onCreate/onUpgrade/onOpen on every new connection
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+
+        // Readers don't block the writer, and a commit appends to the
+        // log instead of rewriting + syncing a rollback journal
+        db.enableWriteAheadLogging();
+
+        // With WAL, NORMAL only syncs at checkpoints - a crash can lose the
+        // last commits but never corrupts the file
+        db.execSQL("PRAGMA synchronous=NORMAL");
+
+        // ~1 MB page cache (negative = KiB); the whole DB fits comfortably
+        db.execSQL("PRAGMA cache_size=-1024");
+
+        // quest_session.quest_id must point at a real quest
+        db.setForeignKeyConstraintsEnabled(true);
+    }
+
+    /**
+     * Called every time the database is opened
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+
+        // Pick up quest text/reward and shop item changes shipped in a new APK
+        if (!db.isReadOnly()) {
+            installQuestCatalogIfChanged(db);
+            installItemsIfChanged(db);
+        }
     }
 
     /**
@@ -31,7 +121,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
 
         // ================= USER TABLE =================
-        // Stores main player data
+        // Stores main player data - one row per profile (companion)
         db.execSQL(
                 "CREATE TABLE IF NOT EXISTS user (" +
 
@@ -47,26 +137,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                         ");"
         );
 
-        // ================= ACCESSORY TABLE =================
-        // Stores shop & equipped items
-        db.execSQL(
-                "CREATE TABLE IF NOT EXISTS accessory (" +
+        // ================= COIN LEDGER =================
+        // Every change to user.coins
+        createCoinLedgerTable(db);
 
-                        // Unique ID
-                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                        // Drawable resource ID
-                        "image INTEGER NOT NULL, " +
-                        // Item price
-                        "price INTEGER NOT NULL, " +
-                        // Category
-                        "type TEXT NOT NULL CHECK " +
-                        "(type IN ('top','bottom','hat','glasses')), " +
-                        // 0 = not owned, 1 = owned
-                        "owned INTEGER NOT NULL DEFAULT 0 CHECK (owned IN (0,1)), " +
-                        // 0 = not equipped, 1 = equipped
-                        "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1))" +
-                        ");"
-        );
+        // ================= ACCESSORY TABLE =================
+        // Stores shop items; what each profile owns and wears is in profile_item
+        createAccessoryTable(db);
+        createProfileItemTable(db);
 
         // ================= QUEST TABLE =================
         // Stores quest progress
@@ -91,21 +169,382 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                         ");"
         );
 
-        // ================= MOOD TABLE =================
-        // Stores mood history
+        // Quest selection by mood, getCompletedQuestCountForMood
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_quest_mood ON quest(mood)");
+
+        // Full-text index over quest text (filled by triggers as quests are installed)
+        createQuestSearchIndex(db);
+
+        // Each profile's progress on the quests
+        createQuestProgressTable(db);
+
+        // ================= MOOD TABLES =================
+        // Stores mood history + daily/weekly rollups
+        createMoodTables(db);
+
+        // ================= QUEST SESSION TABLES =================
+        createQuestSessionTable(db);
+        createQuestPlanTable(db);
+        createQuestCompletionTable(db);
+        createQuestStreakTable(db);
+        createQuestStatsTable(db);
+
+        // ================= META TABLE =================
+        createMetaTable(db);
+
+        // Insert default values
+        insertDefaults(db);
+    }
+
+    /**
+     * Append-only record of coin changes. SUM(delta) always equals
+     * user.coins: every write to coins adds a row in the same transaction,
+     * and DatabaseManager.compactCoinLedger folds old rows into one
+     * 'snapshot' row so the table stays small.
+     */
+    private void createCoinLedgerTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS coin_ledger (" +
+
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        // Whose coins (user.id)
+                        "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                        // Coins added (negative = spent)
+                        "delta INTEGER NOT NULL, " +
+                        // Why the balance changed
+                        "reason TEXT NOT NULL CHECK " +
+                        "(reason IN ('snapshot','quest','purchase','bonus')), " +
+                        // Quest id (quest) or accessory id (purchase)
+                        "ref_id INTEGER, " +
+                        // When (ms since epoch)
+                        "created_at INTEGER NOT NULL" +
+                        ");"
+        );
+
+        // One profile's rows in id order (compaction: MIN/MAX/SUM per profile)
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_coin_ledger_profile ON coin_ledger(profile_id)");
+    }
+
+    /**
+     * Open the ledger with the current balance (new database or upgrade)
+     */
+    private void seedCoinLedger(SQLiteDatabase db) {
+        db.execSQL(
+                "INSERT INTO coin_ledger (delta, reason, created_at) " +
+                        "SELECT coins, 'snapshot', ? FROM user WHERE id=1",
+                new Object[]{System.currentTimeMillis()}
+        );
+    }
+
+    /**
+     * One row per ItemRegistry item, written by installItems.
+     * owned/equipped are LEGACY: they held the single user's wardrobe
+     * until version 9 moved it to profile_item, and are no longer written.
+     */
+    private void createAccessoryTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS accessory (" +
+
+                        // ItemRegistry ordinal (stable across builds)
+                        "id INTEGER PRIMARY KEY, " +
+                        // ItemRegistry key, e.g. top.boy_flannel
+                        "item_key TEXT NOT NULL UNIQUE, " +
+                        // Item price
+                        "price INTEGER NOT NULL, " +
+                        // Category
+                        "type TEXT NOT NULL CHECK " +
+                        "(type IN ('top','bottom','hat','glasses')), " +
+                        // 0 = not owned, 1 = owned
+                        "owned INTEGER NOT NULL DEFAULT 0 CHECK (owned IN (0,1)), " +
+                        // 0 = not equipped, 1 = equipped
+                        "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1))" +
+                        ");"
+        );
+
+        // Free items by type
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_accessory_type ON accessory(type)");
+    }
+
+    /**
+     * The items a profile owns (one row each) and which of them it wears.
+     * type is copied from accessory (an item never changes type) so the
+     * one-equipped-per-type rule can be a unique index.
+     */
+    private void createProfileItemTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS profile_item (" +
+
+                        "profile_id INTEGER NOT NULL REFERENCES user(id), " +
+                        // ItemRegistry ordinal
+                        "item_id INTEGER NOT NULL REFERENCES accessory(id), " +
+                        "type TEXT NOT NULL, " +
+                        // 0 = not equipped, 1 = equipped
+                        "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1)), " +
+                        "PRIMARY KEY (profile_id, item_id)" +
+                        ") WITHOUT ROWID;"
+        );
+
+        // At most one equipped item per type and profile (also serves unequip by type)
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_profile_item_one_equipped " +
+                "ON profile_item(profile_id, type) WHERE equipped=1");
+    }
+
+    /**
+     * A profile's progress on a quest. No row = not started; rows are
+     * added on the first progress update. quest.progress/rewarded are
+     * LEGACY (the single user's progress before version 9).
+     */
+    private void createQuestProgressTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS quest_progress (" +
+
+                        "profile_id INTEGER NOT NULL REFERENCES user(id), " +
+                        "quest_id INTEGER NOT NULL REFERENCES quest(id), " +
+                        "progress INTEGER NOT NULL DEFAULT 0, " +
+                        // 0 = not done, 1 = done
+                        "rewarded INTEGER NOT NULL DEFAULT 0 CHECK (rewarded IN (0,1)), " +
+                        "PRIMARY KEY (profile_id, quest_id)" +
+                        ") WITHOUT ROWID;"
+        );
+    }
+
+    /**
+     * FTS4 index over quest title + description for QuestSearchActivity.
+     * External content: the text stays in quest only, and triggers keep
+     * the index in step. They fire only when title or description
+     * change, so progress updates never touch the index.
+     *
+     * FTS4 rather than FTS5: FTS5 isn't in every Android build we support.
+     */
+    private void createQuestSearchIndex(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS quest_fts USING fts4(" +
+                        "content=\"quest\", title, description, " +
+                        // "breathing" finds "breathe"; prefix index for search-as-you-type
+                        "tokenize=porter, prefix=\"2,3\")"
+        );
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS quest_fts_before_update " +
+                "BEFORE UPDATE OF title, description ON quest BEGIN " +
+                "DELETE FROM quest_fts WHERE docid=old.id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS quest_fts_before_delete " +
+                "BEFORE DELETE ON quest BEGIN " +
+                "DELETE FROM quest_fts WHERE docid=old.id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS quest_fts_after_update " +
+                "AFTER UPDATE OF title, description ON quest BEGIN " +
+                "INSERT INTO quest_fts (docid, title, description) VALUES (new.id, new.title, new.description); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS quest_fts_after_insert " +
+                "AFTER INSERT ON quest BEGIN " +
+                "INSERT INTO quest_fts (docid, title, description) VALUES (new.id, new.title, new.description); END");
+    }
+
+    /**
+     * Quests drawn per day and mood.
+     * active = 1 marks the current 5-quest session; every row for
+     * (date, mood) counts as "used today" for that mood.
+     */
+    private void createQuestSessionTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS quest_session (" +
+
+                        // Whose session (user.id)
+                        "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                        // Day the quest was drawn (same format as mood.date)
+                        "date TEXT NOT NULL, " +
+                        // Mood the quest was drawn for
+                        "mood TEXT NOT NULL CHECK " +
+                        "(mood IN ('neutral','happy','sad','angry','anxious')), " +
+                        // Drawn quest
+                        "quest_id INTEGER NOT NULL REFERENCES quest(id), " +
+                        // Position in the quest list
+                        "slot INTEGER NOT NULL, " +
+                        // 1 = part of the current session, 0 = used earlier today
+                        "active INTEGER NOT NULL DEFAULT 1 CHECK (active IN (0,1)), " +
+                        "PRIMARY KEY (profile_id, date, mood, quest_id, slot)" +
+                        ");"
+        );
+
+        // Current session lookups (areAllCurrentQuestsComplete, clearCurrentQuestSession)
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_quest_session_active ON quest_session(profile_id, active, slot)");
+    }
+
+    /**
+     * Next session per mood, prepared by the midnight rollover job.
+     * getQuestsForMood copies a mood's plan into quest_session when
+     * that mood is picked, then deletes it.
+     */
+    private void createQuestPlanTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS quest_plan (" +
+
+                        "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                        // Day the plan is for
+                        "date TEXT NOT NULL, " +
+                        "mood TEXT NOT NULL CHECK " +
+                        "(mood IN ('neutral','happy','sad','angry','anxious')), " +
+                        "quest_id INTEGER NOT NULL REFERENCES quest(id), " +
+                        // Slot the quest takes in quest_session once used
+                        "slot INTEGER NOT NULL, " +
+                        "PRIMARY KEY (profile_id, date, mood, slot)" +
+                        ");"
+        );
+    }
+
+    /**
+     * One row per quest completion (every one, repeats included), for the
+     * history screen. Only ever appended, so id order is completion order
+     * and pages are read by id through the profile index (which ends in
+     * the rowid).
+     */
+    private void createQuestCompletionTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS quest_completion (" +
+
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                        "quest_id INTEGER NOT NULL REFERENCES quest(id), " +
+                        // Coins paid for it (0 for a quest done again)
+                        "reward INTEGER NOT NULL, " +
+                        // When (ms since epoch); NULL = completed before history was kept
+                        "completed_at INTEGER, " +
+                        // Last mood logged before it (1-5); NULL = none, or completed before version 9
+                        "mood INTEGER CHECK (mood BETWEEN 1 AND 5), " +
+                        // Time from starting the timer to confirming; NULL = unknown
+                        "duration_ms INTEGER" +
+                        ");"
+        );
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_quest_completion_profile ON quest_completion(profile_id)");
+    }
+
+    /**
+     * Each profile's streak checkpoint (see StreakTracker), written in the
+     * same transaction as the completion that moves it. No row = no
+     * completion with a date yet.
+     */
+    private void createQuestStreakTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS quest_streak (" +
+
+                        "profile_id INTEGER PRIMARY KEY REFERENCES user(id), " +
+                        // Epoch day of the last completion
+                        "last_day INTEGER NOT NULL, " +
+                        // Days in a row up to last_day
+                        "current INTEGER NOT NULL, " +
+                        "best INTEGER NOT NULL" +
+                        ");"
+        );
+    }
+
+    /**
+     * Rebuild a profile's streak checkpoint from its dated completions,
+     * oldest first. Only for restores - in use, every completion moves the
+     * checkpoint itself.
+     */
+    static void rebuildQuestStreaks(SQLiteDatabase db, long profileId) {
+        Cursor c = db.rawQuery(SQL_DATED_COMPLETIONS_FOR_PROFILE, new String[]{String.valueOf(profileId)});
+
+        StreakTracker streak = null;
+        try {
+            while (c.moveToNext()) {
+                if (streak == null) {
+                    streak = StreakTracker.empty();
+                }
+                streak = streak.record(AppClock.get().epochDayOf(c.getLong(0)));
+            }
+        } finally {
+            c.close();
+        }
+
+        if (streak != null) {
+            db.execSQL(DatabaseManager.SQL_SAVE_STREAK, new Object[]{profileId,
+                    streak.getLastDay(), streak.getStoredCurrent(), streak.getBest()});
+        }
+    }
+
+    /**
+     * Each profile's counters per quest, read by QuestSampler to weight
+     * its draws. Every event adds to one row (INSERT OR IGNORE, then
+     * UPDATE) in the transaction that records the event. No row = the
+     * quest was never shown to the profile.
+     */
+    private void createQuestStatsTable(SQLiteDatabase db) {
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS quest_stats (" +
+
+                        "profile_id INTEGER NOT NULL REFERENCES user(id), " +
+                        "quest_id INTEGER NOT NULL REFERENCES quest(id), " +
+                        // Sessions it was part of
+                        "shown INTEGER NOT NULL DEFAULT 0, " +
+                        "completed INTEGER NOT NULL DEFAULT 0, " +
+                        // Timer started, then left without completing
+                        "abandoned INTEGER NOT NULL DEFAULT 0, " +
+                        // Epoch day it was last shown; NULL = never (or before version 9)
+                        "last_shown_day INTEGER, " +
+                        // Mood change from the completion to the next mood logged (-2..2 each)
+                        "mood_gain_total INTEGER NOT NULL DEFAULT 0, " +
+                        "mood_gain_count INTEGER NOT NULL DEFAULT 0, " +
+                        "PRIMARY KEY (profile_id, quest_id)" +
+                        ") WITHOUT ROWID;"
+        );
+    }
+
+    /**
+     * Start a profile's recommendation counters from its completions (every
+     * completed quest counts as shown once per completion). Only for restores.
+     */
+    static void seedQuestStats(SQLiteDatabase db, long profileId) {
+        db.execSQL(SQL_SEED_QUEST_STATS_FOR_PROFILE, new Object[]{profileId});
+    }
+
+    /**
+     * Raw mood entries plus the rollups MoodStats reads, per profile.
+     * Days are epoch days (days since 1970-01-01, local time); weeks
+     * start on Monday and are numbered by MoodStats.weekOf(day).
+     */
+    private void createMoodTables(SQLiteDatabase db) {
         db.execSQL(
                 "CREATE TABLE IF NOT EXISTS mood (" +
 
                         "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
                         // Mood value (1 to 5 only)
                         "value INTEGER NOT NULL CHECK (value BETWEEN 1 AND 5), " +
-                        // Date string
-                        "date TEXT NOT NULL" +
+                        // Epoch day the mood was logged on
+                        "day INTEGER NOT NULL, " +
+                        // Exact time it was logged (ms since epoch)
+                        "created_at INTEGER NOT NULL" +
                         ");"
         );
 
-        // Insert default values
-        insertDefaults(db);
+        // One row per day with at least one mood
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS mood_daily (" +
+                        "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                        "day INTEGER NOT NULL, " +
+                        "count INTEGER NOT NULL, " +
+                        "total INTEGER NOT NULL, " +
+                        "min_value INTEGER NOT NULL, " +
+                        "max_value INTEGER NOT NULL, " +
+                        "PRIMARY KEY (profile_id, day)" +
+                        ");"
+        );
+
+        // One row per week with at least one mood
+        db.execSQL(
+                "CREATE TABLE IF NOT EXISTS mood_weekly (" +
+                        "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                        "week INTEGER NOT NULL, " +
+                        "count INTEGER NOT NULL, " +
+                        "total INTEGER NOT NULL, " +
+                        "min_value INTEGER NOT NULL, " +
+                        "max_value INTEGER NOT NULL, " +
+                        "PRIMARY KEY (profile_id, week)" +
+                        ");"
+        );
+
+        // Latest mood
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_mood_day ON mood(profile_id, day)");
     }
 
     /**
@@ -114,161 +553,388 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private void insertDefaults(SQLiteDatabase db) {
 
         db.execSQL(
-                "INSERT OR IGNORE INTO user (id, name, coins, pet_gender) " +
-                        "VALUES (1,'',150,'male');"
+                "INSERT OR IGNORE INTO user (id, name, coins, pet_gender) VALUES (?,'',?,'male')",
+                new Object[]{FIRST_PROFILE_ID, STARTING_COINS}
+        );
+
+        // Starting coins are the ledger's first entry
+        seedCoinLedger(db);
+
+
+        // Quests come from the prebuilt catalog asset
+        installQuestCatalog(db);
+
+        // One accessory row per shop item (free ones already owned)
+        installItems(db);
+    }
+
+    // ================= QUEST CATALOG =================
+
+    /**
+     * Copy assets/quests.bin into the quest table and remember its checksum.
+     * Existing rows keep their progress; only catalog columns are rewritten.
+     */
+    private void installQuestCatalog(SQLiteDatabase db) {
+        long start = SystemClock.elapsedRealtime();
+
+        QuestCatalog catalog;
+        try {
+            catalog = QuestCatalog.read(appContext);
+        } catch (IOException e) {
+            // The asset is generated by the build - if it's missing the APK is broken
+            throw new IllegalStateException("Quest catalog asset is missing or corrupt", e);
+        }
+
+        SQLiteStatement update = db.compileStatement(
+                "UPDATE quest SET title=?, description=?, reward=?, timer_minutes=?, mood=? WHERE id=?");
+        SQLiteStatement insert = db.compileStatement(
+                "INSERT OR IGNORE INTO quest (title, description, reward, timer_minutes, mood, id) VALUES (?,?,?,?,?,?)");
+
+        db.beginTransaction();
+        try {
+            for (QuestCatalog.Entry entry : catalog.getEntries()) {
+                bindQuest(update, entry);
+                if (update.executeUpdateDelete() == 0) {
+                    bindQuest(insert, entry);
+                    insert.executeInsert();
+                }
+            }
+
+            db.execSQL(
+                    "INSERT OR REPLACE INTO meta (key, value) VALUES (?, ?)",
+                    new Object[]{META_QUEST_CATALOG_CRC, String.valueOf(catalog.getChecksum())}
+            );
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+            insert.close();
+        }
+
+        Log.d(TAG, "Installed " + catalog.getEntries().size() + " quests in "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    /**
+     * Reinstall the catalog only if the asset changed since the last install
+     */
+    private void installQuestCatalogIfChanged(SQLiteDatabase db) {
+        long assetChecksum;
+        try {
+            assetChecksum = QuestCatalog.readChecksum(appContext);
+        } catch (IOException e) {
+            throw new IllegalStateException("Quest catalog asset is missing or corrupt", e);
+        }
+
+        if (assetChecksum != getMetaLong(db, META_QUEST_CATALOG_CRC)) {
+            installQuestCatalog(db);
+        }
+    }
+
+    /**
+     * A numeric meta value, -1 if it was never written
+     */
+    private long getMetaLong(SQLiteDatabase db, String key) {
+        Cursor c = db.rawQuery(
+                "SELECT value FROM meta WHERE key=?",
+                new String[]{key}
         );
 
+        long value = c.moveToFirst() ? c.getLong(0) : -1;
+        c.close();
+        return value;
+    }
+
+    private static void bindQuest(SQLiteStatement stmt, QuestCatalog.Entry entry) {
+        stmt.bindString(1, entry.title);
+        stmt.bindString(2, entry.description);
+        stmt.bindLong(3, entry.reward);
+        stmt.bindLong(4, entry.timerMinutes);
+        stmt.bindString(5, entry.mood);
+        stmt.bindLong(6, entry.id);
+    }
+
+    // ================= SHOP ITEMS =================
+
+    /**
+     * Write one accessory row per ItemRegistry item and remember the
+     * registry checksum. Every profile gets the free items (new ones too).
+     */
+    private void installItems(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement(
+                "UPDATE accessory SET item_key=?, price=?, type=? WHERE id=?");
+        SQLiteStatement insert = db.compileStatement(
+                "INSERT OR IGNORE INTO accessory (item_key, price, type, id) VALUES (?,?,?,?)");
+
+        db.beginTransaction();
+        try {
+            for (int ordinal = 0; ordinal < ItemRegistry.size(); ordinal++) {
+                ItemRegistry.Item item = ItemRegistry.get(ordinal);
+
+                bindItem(update, item, ordinal);
+                if (update.executeUpdateDelete() == 0) {
+                    bindItem(insert, item, ordinal);
+                    insert.executeInsert();
+                }
+            }
+
+            db.execSQL(SQL_GIVE_FREE_ITEMS);
+
+            db.execSQL(
+                    "INSERT OR REPLACE INTO meta (key, value) VALUES (?, ?)",
+                    new Object[]{META_ITEM_REGISTRY_CRC, String.valueOf(ItemRegistry.checksum())}
+            );
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+            insert.close();
+        }
+
+        Log.d(TAG, "Installed " + ItemRegistry.size() + " shop items");
+    }
+
+    private void installItemsIfChanged(SQLiteDatabase db) {
+        if (ItemRegistry.checksum() != getMetaLong(db, META_ITEM_REGISTRY_CRC)) {
+            installItems(db);
+        }
+    }
+
+    private static void bindItem(SQLiteStatement stmt, ItemRegistry.Item item, int ordinal) {
+        stmt.bindString(1, item.key);
+        stmt.bindLong(2, item.price);
+        stmt.bindString(3, item.type);
+        stmt.bindLong(4, ordinal);
+    }
 
+    /**
+     * Key/value table for database bookkeeping (catalog checksum, ...)
+     */
+    private void createMetaTable(SQLiteDatabase db) {
         db.execSQL(
-                "INSERT OR IGNORE INTO quest (title, description, reward, timer_minutes, mood) VALUES " +
-
-                        // ========== NEUTRAL (21 quests) - Grounding and present awareness ==========
-
-                        "('Box Breathing','Breathe in for 4 counts. Hold for 4. Breathe out for 4. Hold for 4. Repeat this 4 times. This calms your body and mind.',30,1,'neutral')," +
-                        "('Water Sipping','Get a glass or bottle of water. Take 5 small sips. Feel the water travel down your throat each time. Notice the sensation.',30,1,'neutral')," +
-                        "('Three Good Things','Think of three things from today. One thing you saw. One thing you heard. One thing you felt. Name each one.',30,1,'neutral')," +
-                        "('Neck Stretch','Drop your chin toward your chest. Hold 5 seconds. Return to center. Tilt your head back gently. Hold 5 seconds. Return to center. Repeat 3 times.',30,1,'neutral')," +
-                        "('Mindful Steps','Walk around your space for 1 minute. Feel your heel touch down first, then your toes. Count each step. Notice the rhythm.',30,1,'neutral')," +
-                        "('Quick Reset','Look around your space. Spot 5 things out of place. Pick them up one at a time. Return each one to where it belongs.',50,2,'neutral')," +
-                        "('Body Check','Close your eyes. Notice your toes, legs, belly, chest, arms, and head. Just observe how each part feels. No need to change anything.',30,1,'neutral')," +
-                        "('Shoulder Release','Lift both shoulders toward your ears. Hold tight for 5 seconds. Drop them suddenly. Feel the release. Repeat 5 times.',30,1,'neutral')," +
-                        "('Touch Textures','Find something rough. Touch it for 10 seconds. Find something smooth. Touch it for 10 seconds. Find something soft. Touch it for 10 seconds.',30,1,'neutral')," +
-                        "('Mindful Bite','Choose one small food item you have. Look at it closely. Smell it. Place it in your mouth. Chew 15 times. Notice the flavors before swallowing.',30,1,'neutral')," +
-                        "('Hand Warmth','Rub your hands together for 15 seconds. Stop. Hold them 1 inch apart. Feel the warmth between them. Move them closer and farther apart.',30,1,'neutral')," +
-                        "('Full Body Stretch','Reach both arms up. Lean gently right. Return to center. Lean gently left. Roll shoulders back 5 times. Take 3 deep breaths.',30,1,'neutral')," +
-                        "('Window Watch','Look outside for 90 seconds. Find 5 things moving and 5 things still. Just observe without thinking too much.',50,2,'neutral')," +
-                        "('Face Release','Scrunch your whole face tight for 5 seconds. Release everything. Notice the difference. Repeat 3 times.',30,1,'neutral')," +
-                        "('Sip and Pause','Get any drink you have. Take 7 small sips over 2 minutes. Pause between each sip. Focus on the taste and sensation.',50,2,'neutral')," +
-                        "('Listen to Music','Play one song you enjoy. Close your eyes. Try to hear each instrument. When your mind wanders, gently bring it back to the music.',50,2,'neutral')," +
-                        "('Free Drawing','Get paper and a pen. Draw continuous lines for 2 minutes without lifting your pen. No pictures needed. Just move your hand freely.',50,2,'neutral')," +
-                        "('Tension Check','Check your jaw, shoulders, hands, and stomach. Notice where you feel tension. Just observe it. Take a breath.',30,1,'neutral')," +
-                        "('Body Shake','Shake your right hand for 10 seconds. Left hand for 10 seconds. Right foot. Left foot. Then shake your whole body for 10 seconds.',30,1,'neutral')," +
-                        "('One Small Task','Pick the smallest task you can. Reply to one message. Wash one dish. Fold one item. Do just that one thing. Notice the completion.',50,2,'neutral')," +
-                        "('Kind Words to Self','Say something kind to yourself out loud or silently. For example: I am doing my best. I am enough. I deserve kindness. Choose words that feel right for you.',30,1,'neutral')," +
-
-                        // ========== HAPPY (21 quests) - Building and savoring positive emotions ==========
-
-                        "('Power Smile','Smile as wide as you can for 60 seconds. Even a forced smile helps improve your mood.',30,1,'happy')," +
-                        "('Freedom Dance','Play an upbeat song. Dance however you want for 90 seconds. No rules. No judgments. Just move freely.',50,2,'happy')," +
-                        "('Sing or Hum','Pick any song or just make sounds. Sing out loud or hum for 1 minute. Making sounds helps release good feelings.',30,1,'happy')," +
-                        "('Happy Memory','Close your eyes. Recall one happy moment in detail. Picture who was there, what you saw, what you heard. Stay with this for 90 seconds.',50,2,'happy')," +
-                        "('Laughter Break','Watch one short funny video for 2 minutes. Puppies, comedy, whatever makes you laugh. Laughter helps reduce stress.',50,2,'happy')," +
-                        "('Victory Move','Stand up. Do your best victory celebration. Fist pump, jump, dance, cheer. Your body creates the feeling through movement.',30,1,'happy')," +
-                        "('Fresh Air','Open a window or step outside if possible. Take 5 deep breaths. Notice the air moving in and out of your lungs.',30,1,'happy')," +
-                        "('Joy Song','Play your happiest song. Sing along if you want. Feel the energy and positivity of the music.',50,2,'happy')," +
-                        "('Specific Gratitude','Name 3 things you are grateful for. For each one, say exactly why. Be specific about what makes it meaningful.',30,1,'happy')," +
-                        "('Energy Burst','Do 15 jumping jacks or march in place for 45 seconds. Movement helps boost your mood and energy.',30,1,'happy')," +
-                        "('Positive Journal','Write 2 or 3 sentences about something good from today. Include how it made you feel.',50,2,'happy')," +
-                        "('Cuteness Therapy','Look at pictures or videos of baby animals for 90 seconds. Cute images help improve your mood.',50,2,'happy')," +
-                        "('Savor a Bite','Choose something you enjoy eating. Take tiny bites. Chew many times. Focus only on the taste. Make it last.',30,1,'happy')," +
-                        "('Self-Kindness','Do one kind thing for yourself right now. Give yourself a compliment. Let yourself rest. Treat yourself well.',30,1,'happy')," +
-                        "('Confidence Pose','Stand tall with hands on hips or arms raised. Hold this for 60 seconds. This posture helps build confidence.',30,1,'happy')," +
-                        "('Future Joy','Close your eyes. Picture one fun thing coming up this week. Imagine it happening. Feel the excitement.',30,1,'happy')," +
-                        "('Celebrate Yourself','Say out loud: One thing I did well today was... Complete the sentence with your own words. Then say: I am proud of that.',30,1,'happy')," +
-                        "('Joy Photo','Take a photo of something that makes you smile right now. Look at it for 30 seconds. Send it to someone if you want.',30,1,'happy')," +
-                        "('Best Memory','Think of your favorite memory ever. Close your eyes. Relive it fully for 90 seconds. What made it so special?',50,2,'happy')," +
-                        "('Mini Win Celebration','Think of one small thing you accomplished today. Stand up. Celebrate it with a gesture or sound. Small wins matter.',30,1,'happy')," +
-                        "('Playful Movement','Skip, hop, spin, twirl, or move playfully for 60 seconds. Playful movement helps reduce stress and increase joy.',30,1,'happy')," +
-
-                        // ========== SAD (21 quests) - Self-compassion and gentle support ==========
-
-                        "('Extended Exhale','Breathe in for 4 counts. Breathe out for 6 counts. Longer breaths out help calm your body. Do this 6 times.',30,1,'sad')," +
-                        "('Name Your Feeling','Complete this sentence in your own words: Right now I feel... Say it out loud or write it. Naming emotions makes them feel smaller.',30,1,'sad')," +
-                        "('Comfort Song','Play one song that makes you feel understood. Music that meets you where you are. Just listen.',50,2,'sad')," +
-                        "('Gentle Walk','Walk around your space for 90 seconds. No rush. No destination. Just gentle movement to help process what you feel.',50,2,'sad')," +
-                        "('Self-Soothing Touch','Place one hand on your chest, one on your belly. Feel them rise and fall with your breath. This brings comfort.',30,1,'sad')," +
-                        "('Permission to Feel','Say something that gives you permission to feel. For example: My feelings are valid. It is okay to struggle. I do not have to be okay right now. Use your own words.',30,1,'sad')," +
-                        "('Compassion Words','Say something compassionate to yourself 3 times. For example: I am having a hard time. May I be kind to myself. This is difficult and I deserve care. Choose words that feel right.',30,1,'sad')," +
-                        "('Physical Comfort','Put on soft comfortable clothes or wrap yourself in a blanket. Physical comfort supports emotional comfort.',30,1,'sad')," +
-                        "('Water Comfort','Splash water on your face and wrists. Pat dry gently. Temperature change helps reset how you feel.',30,1,'sad')," +
-                        "('Hope Anchor','Find one photo from a time you felt okay or happy. Look at it. Remind yourself you have felt different before.',30,1,'sad')," +
-                        "('Soothing Drink','Get any drink you have. Sip it gently and mindfully. Focus on the taste and sensation with each sip.',50,2,'sad')," +
-                        "('Soothing Sounds','Play gentle rain, ocean waves, or soft music for 2 minutes. Close your eyes. Let the sound surround you.',50,2,'sad')," +
-                        "('Weighted Comfort','Hold a pillow against your chest or place a blanket on your lap. Gentle pressure brings calm.',30,1,'sad')," +
-                        "('Kind Reading','Read one compassionate quote or write something kind to yourself. For example: I deserve kindness, especially from myself. Use words that comfort you.',30,1,'sad')," +
-                        "('Safe Space','Go to your most comfortable spot. Sit or lie down. Just be here. You do not need to do anything else.',30,1,'sad')," +
-                        "('Small Hope','Name one tiny thing you might look forward to. It can be very small. A meal. A show. Rest. Anything at all.',30,1,'sad')," +
-                        "('Tender Stretch','Do one very gentle stretch. Roll your neck. Reach your arms up softly. Be kind to your body.',30,1,'sad')," +
-                        "('Emotional Release','Write whatever you feel for 2 minutes. No editing. No judging. Just let words flow onto paper.',50,2,'sad')," +
-                        "('Gentle Watching','Watch something calming. Clouds moving. A candle. Fish swimming. Leaves blowing. Watch for 90 seconds.',50,2,'sad')," +
-                        "('Strength Reminder','Say something that reminds you of your strength. For example: I have survived hard times before. I have made it through every difficult day. I have resilience. Use your own words.',30,1,'sad')," +
-                        "('Self-Compassion Break','Place your hand over your heart. Say something compassionate to yourself. For example: This is hard. I am not alone. May I give myself compassion. Choose words that feel right.',30,1,'sad')," +
-
-                        // ========== ANGRY (21 quests) - Safe energy release and regulation ==========
-
-                        "('Power Breathing','Sharp breath in through your nose. Forceful breath out through your mouth. Do 8 rounds. This releases built-up tension.',30,1,'angry')," +
-                        "('Energy Release','Run in place as fast as you can for 45 seconds. Physical movement helps burn off anger.',30,1,'angry')," +
-                        "('Pillow Punch','Get a pillow. Hit it or punch it as hard as you want for 30 seconds. This is a safe way to release anger.',30,1,'angry')," +
-                        "('Scream Release','Press a pillow against your face. Scream into it as loud as you need. Letting sound out helps regulate your system.',30,1,'angry')," +
-                        "('Anger Writing','Write furiously for 2 minutes. Say exactly how you feel. Hold nothing back. Tear it up after if you want.',50,2,'angry')," +
-                        "('Cold Water Splash','Splash cold water on your face, neck, and wrists if available. Cold helps activate calm in your body.',30,1,'angry')," +
-                        "('Countdown Reset','Count backwards from 50 out loud. Only numbers. This interrupts the anger pattern in your mind.',50,2,'angry')," +
-                        "('Intense Music','Play loud or intense music that matches your energy. Let the music hold your anger for 2 minutes.',50,2,'angry')," +
-                        "('Channel Energy','Scrub something hard for 90 seconds. Dishes, counters, anything. Turn anger into productive action.',50,2,'angry')," +
-                        "('Power Punches','Punch into the air as hard as you can. Do 25 fast punches. Make sounds if you want. Release the energy.',30,1,'angry')," +
-                        "('Intense Grip','Squeeze your fists as tight as you can. Hold for 30 seconds. Release. Repeat. Strong tension followed by release helps.',30,1,'angry')," +
-                        "('Stomp It Out','Stomp your feet hard. March and stomp for 60 seconds. Make noise. Let the impact release the feeling.',30,1,'angry')," +
-                        "('Paper Destruction','Get scrap paper or old magazines. Rip them into pieces. Rip as much as you want. Safe destruction helps.',30,1,'angry')," +
-                        "('Voice It','Say out loud why you are angry. All of it. Speaking it helps release it from your body.',30,1,'angry')," +
-                        "('Squeeze and Release','Squeeze both fists tight. Hold 10 seconds. Release completely. Feel the difference. Repeat 4 times.',30,1,'angry')," +
-                        "('Physical Distance','Walk to another room or space. Moving your body away creates mental distance too.',30,1,'angry')," +
-                        "('Opposite Image','Close your eyes. Picture a calm peaceful place in detail. Beach, forest, meadow. Opposite scenes help regulate.',50,2,'angry')," +
-                        "('Anger Recording','Record yourself saying everything you are angry about. Say it all. Delete it after if you want.',50,2,'angry')," +
-                        "('Wall Push', 'Place your hands flat against a wall. Push firmly against it for 15 seconds. Rest 10 seconds. Repeat 3 times. This helps release built-up tension safely.', 30, 1, 'angry')," +
-                        "('One Solution','Write this in your own words: One small thing I can control is... Then write one action you can actually take.',50,2,'angry')," +
-                        "('Explosive Jumps','Do 20 jumps. Jump as hard and high as you can. Big movements help release anger from your body.',30,1,'angry')," +
-
-                        // ========== ANXIOUS (21 quests) - Grounding and calming regulation ==========
-
-                        "('4-7-8 Breathing','Breathe in for 4 counts. Hold for 7. Breathe out for 8. Do 4 full rounds. This helps activate calm.',50,2,'anxious')," +
-                        "('5-4-3-2-1 Grounding','Say out loud: 5 things you see. 4 things you hear. 3 things you touch. 2 things you smell. 1 thing you taste.',50,2,'anxious')," +
-                        "('Worry Dump','Write every worry on paper for 2 minutes. Do not organize. Just empty your anxious mind completely.',50,2,'anxious')," +
-                        "('Body Location','Scan your body. Where exactly do you feel anxiety? Chest? Throat? Stomach? Just notice the spot.',30,1,'anxious')," +
-                        "('Nature Sounds','Play rain, ocean, or forest sounds for 2 minutes. Close your eyes. Let natural sounds soothe you.',50,2,'anxious')," +
-                        "('Label It','Complete this sentence in your own words: I feel anxious about... Naming anxiety makes it feel more manageable.',30,1,'anxious')," +
-                        "('Progressive Relaxation','Squeeze fists tight. Hold 7 seconds. Release completely. Notice the difference. Repeat 4 times.',30,1,'anxious')," +
-                        "('Safe Place','Close your eyes. Picture the safest place you know. Notice every detail. Stay there for 90 seconds.',50,2,'anxious')," +
-                        "('Mindful Sipping','Get any drink you have. Take 10 very small sips over 2 minutes. Focus on each sip completely.',50,2,'anxious')," +
-                        "('Cool Water','Drink water one small sip at a time. Cool sensations can help calm anxiety.',30,1,'anxious')," +
-                        "('Evidence of Survival','Say something that reminds you of your past strength. For example: I have felt anxious before and survived. I have gotten through this every time. Use your own words.',30,1,'anxious')," +
-                        "('Reality Check','Ask yourself: Is this thought completely true? What real evidence do I have? Separate thought from fact.',30,1,'anxious')," +
-                        "('Grounding Steps','Walk gently for 90 seconds. Feel each foot touch the ground. Count your steps. Focus only on walking.',50,2,'anxious')," +
-                        "('Palm Pressure','Press palms together firmly in front of your chest. Hold 45 seconds. Feel the pressure. This brings you into your body.',30,1,'anxious')," +
-                        "('Weighted Grounding','Place something heavy on your lap. A book, blanket, or pillow. Weight helps bring calm.',30,1,'anxious')," +
-                        "('Scent Focus','Smell something with a strong scent. Soap, lotion, food, anything available. Focus only on the smell. Scent can override anxiety.',30,1,'anxious')," +
-                        "('Safety Statement','Say something that reminds you that you are safe. For example: I am safe right now. This moment is okay. I can handle this. Repeat 10 times. Use your own words.',30,1,'anxious')," +
-                        "('Pattern Drawing','Draw repetitive patterns. Circles, spirals, lines, or dots. Repetition helps calm the anxious mind.',50,2,'anxious')," +
-                        "('Control Focus','Write this in your own words: One thing I can actually control right now is... Then write one small action within your power.',30,1,'anxious')," +
-                        "('Cool Hands','Run your hands under cool water for 45 seconds if available. Cool sensations on hands help activate calm.',30,1,'anxious')," +
-                        "('Mental Math','Count backwards from 100 by 7s out loud. Say each number clearly. This interrupts anxious thought loops.',50,2,'anxious');" +
-                        ""
+                "CREATE TABLE IF NOT EXISTS meta (" +
+                        "key TEXT PRIMARY KEY, " +
+                        "value TEXT NOT NULL" +
+                        ");"
         );
     }
 
+    // ================= UPGRADES =================
+
+    /**
+     * Every schema change since version 6, oldest first. A step runs when
+     * the installed version is below its version; the last one must be
+     * DB_VERSION. Shipped steps never change - fix a mistake with a new step.
+     * Steps spell out their SQL as it shipped instead of calling the
+     * create* methods, which always hold the current schema.
+     */
+    private SchemaMigration[] migrations() {
+        return new SchemaMigration[]{
+                new SchemaMigration(7, "quest.timer_minutes", db ->
+                        db.execSQL("ALTER TABLE quest ADD COLUMN timer_minutes INTEGER NOT NULL DEFAULT 5")),
+
+                // Nothing ever wrote this table; step 9 replaces it
+                new SchemaMigration(8, "accessory table (replaced in 9)", db ->
+                        db.execSQL(
+                                "CREATE TABLE IF NOT EXISTS accessory (" +
+                                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                                        "image INTEGER NOT NULL, " +
+                                        "price INTEGER NOT NULL, " +
+                                        "type TEXT NOT NULL CHECK " +
+                                        "(type IN ('top','bottom','hat','glasses')), " +
+                                        "owned INTEGER NOT NULL DEFAULT 0 CHECK (owned IN (0,1)), " +
+                                        "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1))" +
+                                        ");"
+                        )),
+
+                new SchemaMigration(9, "profiles, coin ledger, quest history, epoch-day moods",
+                        DatabaseHelper::migrateToVersion9)
+        };
+    }
+
+    /**
+     * Version 8 -> 9. The one user becomes profile 1: its mood history,
+     * quest progress and completed quests are kept, everything new starts
+     * empty. onOpen then installs the quest catalog and the shop items,
+     * and DatabaseManager imports what SharedPreferences held (quest ids,
+     * inventory, outfit) on first use.
+     */
+    private static void migrateToVersion9(SQLiteDatabase db) {
+
+        // Coin ledger, opened with the current balance
+        db.execSQL("CREATE TABLE coin_ledger (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), delta INTEGER NOT NULL, " +
+                "reason TEXT NOT NULL CHECK (reason IN ('snapshot','quest','purchase','bonus')), " +
+                "ref_id INTEGER, created_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_coin_ledger_profile ON coin_ledger(profile_id)");
+        db.execSQL("INSERT INTO coin_ledger (delta, reason, created_at) " +
+                "SELECT coins, 'snapshot', ? FROM user WHERE id=1", new Object[]{System.currentTimeMillis()});
+
+        // Shop items keyed by ItemRegistry ordinal; the version 8 table was never written
+        db.execSQL("DROP TABLE accessory");
+        db.execSQL("CREATE TABLE accessory (id INTEGER PRIMARY KEY, item_key TEXT NOT NULL UNIQUE, " +
+                "price INTEGER NOT NULL, type TEXT NOT NULL CHECK (type IN ('top','bottom','hat','glasses')), " +
+                "owned INTEGER NOT NULL DEFAULT 0 CHECK (owned IN (0,1)), " +
+                "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1)))");
+        db.execSQL("CREATE INDEX idx_accessory_type ON accessory(type)");
+        db.execSQL("CREATE TABLE profile_item (profile_id INTEGER NOT NULL REFERENCES user(id), " +
+                "item_id INTEGER NOT NULL REFERENCES accessory(id), type TEXT NOT NULL, " +
+                "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1)), " +
+                "PRIMARY KEY (profile_id, item_id)) WITHOUT ROWID");
+        db.execSQL("CREATE UNIQUE INDEX idx_profile_item_one_equipped ON profile_item(profile_id, type) " +
+                "WHERE equipped=1");
+
+        // Quest progress moves out of the shared quest rows
+        db.execSQL("CREATE TABLE quest_progress (profile_id INTEGER NOT NULL REFERENCES user(id), " +
+                "quest_id INTEGER NOT NULL REFERENCES quest(id), progress INTEGER NOT NULL DEFAULT 0, " +
+                "rewarded INTEGER NOT NULL DEFAULT 0 CHECK (rewarded IN (0,1)), " +
+                "PRIMARY KEY (profile_id, quest_id)) WITHOUT ROWID");
+        db.execSQL("INSERT INTO quest_progress (profile_id, quest_id, progress, rewarded) " +
+                "SELECT 1, id, progress, rewarded FROM quest WHERE progress>0 OR rewarded=1");
+        db.execSQL("CREATE INDEX idx_quest_mood ON quest(mood)");
+
+        // Search index over the quests already installed
+        db.execSQL("CREATE VIRTUAL TABLE quest_fts USING fts4(content=\"quest\", title, description, " +
+                "tokenize=porter, prefix=\"2,3\")");
+        db.execSQL("CREATE TRIGGER quest_fts_before_update BEFORE UPDATE OF title, description ON quest " +
+                "BEGIN DELETE FROM quest_fts WHERE docid=old.id; END");
+        db.execSQL("CREATE TRIGGER quest_fts_before_delete BEFORE DELETE ON quest " +
+                "BEGIN DELETE FROM quest_fts WHERE docid=old.id; END");
+        db.execSQL("CREATE TRIGGER quest_fts_after_update AFTER UPDATE OF title, description ON quest " +
+                "BEGIN INSERT INTO quest_fts (docid, title, description) VALUES (new.id, new.title, new.description); END");
+        db.execSQL("CREATE TRIGGER quest_fts_after_insert AFTER INSERT ON quest " +
+                "BEGIN INSERT INTO quest_fts (docid, title, description) VALUES (new.id, new.title, new.description); END");
+        db.execSQL("INSERT INTO quest_fts (quest_fts) VALUES ('rebuild')");
+
+        // Moods by epoch day; dates were written as yyyy-MM-dd, rows that don't parse are dropped
+        db.execSQL("ALTER TABLE mood RENAME TO mood_old");
+        db.execSQL("CREATE TABLE mood (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                "value INTEGER NOT NULL CHECK (value BETWEEN 1 AND 5), day INTEGER NOT NULL, " +
+                "created_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_mood_day ON mood(profile_id, day)");
+        db.execSQL("INSERT INTO mood (id, value, day, created_at) " +
+                "SELECT id, value, CAST(julianday(date) - 2440587.5 AS INTEGER), " +
+                "CAST((julianday(date) - 2440587.5) * 86400000 AS INTEGER) " +
+                "FROM mood_old WHERE julianday(date) IS NOT NULL");
+        db.execSQL("DROP TABLE mood_old");
+
+        db.execSQL("CREATE TABLE mood_daily (profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                "day INTEGER NOT NULL, count INTEGER NOT NULL, total INTEGER NOT NULL, " +
+                "min_value INTEGER NOT NULL, max_value INTEGER NOT NULL, PRIMARY KEY (profile_id, day))");
+        db.execSQL("CREATE TABLE mood_weekly (profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                "week INTEGER NOT NULL, count INTEGER NOT NULL, total INTEGER NOT NULL, " +
+                "min_value INTEGER NOT NULL, max_value INTEGER NOT NULL, PRIMARY KEY (profile_id, week))");
+        db.execSQL("INSERT INTO mood_daily (profile_id, day, count, total, min_value, max_value) " +
+                "SELECT profile_id, day, COUNT(*), SUM(value), MIN(value), MAX(value) FROM mood " +
+                "GROUP BY profile_id, day");
+        db.execSQL("INSERT INTO mood_weekly (profile_id, week, count, total, min_value, max_value) " +
+                "SELECT profile_id, (day + 3) / 7, SUM(count), SUM(total), MIN(min_value), MAX(max_value) " +
+                "FROM mood_daily GROUP BY profile_id, (day + 3) / 7");
+
+        // Quest sessions and plans (the id lists in SharedPreferences are imported on first use)
+        db.execSQL("CREATE TABLE quest_session (profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                "date TEXT NOT NULL, mood TEXT NOT NULL CHECK " +
+                "(mood IN ('neutral','happy','sad','angry','anxious')), " +
+                "quest_id INTEGER NOT NULL REFERENCES quest(id), slot INTEGER NOT NULL, " +
+                "active INTEGER NOT NULL DEFAULT 1 CHECK (active IN (0,1)), " +
+                "PRIMARY KEY (profile_id, date, mood, quest_id, slot))");
+        db.execSQL("CREATE INDEX idx_quest_session_active ON quest_session(profile_id, active, slot)");
+        db.execSQL("CREATE TABLE quest_plan (profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                "date TEXT NOT NULL, mood TEXT NOT NULL CHECK " +
+                "(mood IN ('neutral','happy','sad','angry','anxious')), " +
+                "quest_id INTEGER NOT NULL REFERENCES quest(id), slot INTEGER NOT NULL, " +
+                "PRIMARY KEY (profile_id, date, mood, slot))");
+
+        // Quests completed so far go into the history without a date, so
+        // they start no streak; each counts as shown and completed once
+        db.execSQL("CREATE TABLE quest_completion (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "profile_id INTEGER NOT NULL DEFAULT 1 REFERENCES user(id), " +
+                "quest_id INTEGER NOT NULL REFERENCES quest(id), reward INTEGER NOT NULL, " +
+                "completed_at INTEGER, mood INTEGER CHECK (mood BETWEEN 1 AND 5), duration_ms INTEGER)");
+        db.execSQL("CREATE INDEX idx_quest_completion_profile ON quest_completion(profile_id)");
+        db.execSQL("INSERT INTO quest_completion (quest_id, reward, completed_at) " +
+                "SELECT id, reward, NULL FROM quest WHERE rewarded=1 ORDER BY id");
+
+        db.execSQL("CREATE TABLE quest_streak (profile_id INTEGER PRIMARY KEY REFERENCES user(id), " +
+                "last_day INTEGER NOT NULL, current INTEGER NOT NULL, best INTEGER NOT NULL)");
+
+        db.execSQL("CREATE TABLE quest_stats (profile_id INTEGER NOT NULL REFERENCES user(id), " +
+                "quest_id INTEGER NOT NULL REFERENCES quest(id), shown INTEGER NOT NULL DEFAULT 0, " +
+                "completed INTEGER NOT NULL DEFAULT 0, abandoned INTEGER NOT NULL DEFAULT 0, " +
+                "last_shown_day INTEGER, mood_gain_total INTEGER NOT NULL DEFAULT 0, " +
+                "mood_gain_count INTEGER NOT NULL DEFAULT 0, PRIMARY KEY (profile_id, quest_id)) WITHOUT ROWID");
+        db.execSQL("INSERT INTO quest_stats (profile_id, quest_id, shown, completed) " +
+                "SELECT profile_id, quest_id, COUNT(*), COUNT(*) FROM quest_completion " +
+                "GROUP BY profile_id, quest_id");
+
+        // Bookkeeping (catalog checksums)
+        db.execSQL("CREATE TABLE meta (key TEXT PRIMARY KEY, value TEXT NOT NULL)");
+    }
+
     /**
      * Handle database upgrades
+     *
+     * SQLiteOpenHelper runs this inside one transaction together with the
+     * version bump, so a failing step leaves the old database untouched.
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < OLDEST_UPGRADABLE_VERSION) {
+            // Never shipped, so there are no steps to run - start over
+            // rather than leave the app unable to open its database
+            Log.w(TAG, "No upgrade path from database version " + oldVersion + ", recreating it");
+            dropAllTables(db);
+            onCreate(db);
+            return;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        int version = oldVersion;
+
+        for (SchemaMigration migration : migrations()) {
+            if (migration.version <= oldVersion || migration.version > newVersion) continue;
 
-        // Add timer column if upgrading from version 6 to 7
-        if (oldVersion < 7) {
-            db.execSQL("ALTER TABLE quest ADD COLUMN timer_minutes INTEGER NOT NULL DEFAULT 5");
+            long stepStart = SystemClock.elapsedRealtime();
+            migration.apply(db);
+            version = migration.version;
+
+            Log.d(TAG, "Upgraded to version " + version + " (" + migration.description + ") in "
+                    + (SystemClock.elapsedRealtime() - stepStart) + " ms");
         }
 
-        // Add accessory table if upgrading to version 8
-        if (oldVersion < 8) {
-            db.execSQL(
-                    "CREATE TABLE IF NOT EXISTS accessory (" +
-                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                            "image INTEGER NOT NULL, " +
-                            "price INTEGER NOT NULL, " +
-                            "type TEXT NOT NULL CHECK " +
-                            "(type IN ('top','bottom','hat','glasses')), " +
-                            "owned INTEGER NOT NULL DEFAULT 0 CHECK (owned IN (0,1)), " +
-                            "equipped INTEGER NOT NULL DEFAULT 0 CHECK (equipped IN (0,1))" +
-                            ");"
-            );
+        if (version != newVersion) {
+            throw new IllegalStateException("No migration step for database version " + newVersion);
+        }
+
+        Log.d(TAG, "Upgraded from version " + oldVersion + " to " + newVersion + " in "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    /**
+     * Drop every table, view and trigger (the upgrade transaction is still open)
+     */
+    private void dropAllTables(SQLiteDatabase db) {
+        // Foreign keys are checked at commit, when nothing is left to violate them
+        db.execSQL("PRAGMA defer_foreign_keys=ON");
+
+        // Virtual tables first: dropping one also drops its shadow tables
+        Cursor c = db.rawQuery(
+                "SELECT type, name FROM sqlite_master WHERE type IN ('table','view','trigger') " +
+                        "AND name NOT LIKE 'sqlite_%' AND name != 'android_metadata' " +
+                        "ORDER BY type='table', sql NOT LIKE 'CREATE VIRTUAL TABLE%'",
+                null
+        );
+        List<String[]> objects = new ArrayList<>();
+        while (c.moveToNext()) {
+            objects.add(new String[]{c.getString(0), c.getString(1)});
+        }
+        c.close();
+
+        for (String[] object : objects) {
+            db.execSQL("DROP " + object[0].toUpperCase(Locale.ROOT) + " IF EXISTS \"" + object[1] + "\"");
         }
     }
-}
\ No newline at end of file
+}
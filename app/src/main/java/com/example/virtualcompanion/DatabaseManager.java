@@ -1,15 +1,19 @@
 package com.example.virtualcompanion;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * DatabaseManager
@@ -18,24 +22,319 @@ import java.util.Locale;
  * - Reads from database
  * - Writes to database
  * - Avoids SQL everywhere
+ * - Reports rows read and SQL to QueryMetrics (DatabaseRepository times the
+ *   calls; statements run outside one are timed on their own)
+ *
+ * Every companion is a profile (a user row with its own coins, items,
+ * moods and quests). Calls work on the active profile; switchProfile
+ * changes which one that is without reopening anything.
  */
 public class DatabaseManager {
 
     // Singleton instance (only one DB manager)
     private static DatabaseManager instance;
 
-    private static final String PREFS_NAME = "virtual_companion_prefs";
-    private static final String KEY_HAS_CUSTOMIZED = "has_customized";
-    private static final String KEY_CURRENT_QUEST_IDS = "current_quest_ids";
-    private static final String KEY_CURRENT_MOOD = "current_mood";
-    private static final String KEY_USED_QUEST_IDS = "used_quest_ids";
-    private static final String KEY_QUEST_DATE = "quest_date";
-    private static final String KEY_HAPPY_QUEST_DATE = "last_happy_quest_date";
-    private static final String KEY_FIRST_QUEST_COMPLETED = "first_quest_completed_today"; // NEW
+    // App state (was the "virtual_companion_prefs" file, now in AppStateStore).
+    // Per-profile keys are used through ProfileState; these are profile 1's.
+    private static final AppStateStore.Key<Long> KEY_ACTIVE_PROFILE =
+            AppStateStore.longKey("active_profile", DatabaseHelper.FIRST_PROFILE_ID);
+    private static final AppStateStore.Key<Boolean> KEY_HAS_CUSTOMIZED =
+            AppStateStore.booleanKey("has_customized", false);
+    private static final AppStateStore.Key<String> KEY_CURRENT_QUEST_IDS =
+            AppStateStore.stringKey("current_quest_ids", ""); // LEGACY - now quest_session
+    private static final AppStateStore.Key<String> KEY_CURRENT_MOOD =
+            AppStateStore.stringKey("current_mood", ""); // LEGACY - now quest_session
+    private static final String KEY_USED_QUEST_IDS = "used_quest_ids"; // LEGACY - now quest_session
+    private static final AppStateStore.Key<String> KEY_QUEST_DATE =
+            AppStateStore.stringKey("quest_date", "");
+    private static final AppStateStore.Key<String> KEY_HAPPY_QUEST_DATE =
+            AppStateStore.stringKey("last_happy_quest_date", "");
+    private static final AppStateStore.Key<String> KEY_FIRST_QUEST_COMPLETED =
+            AppStateStore.stringKey("first_quest_completed_today", ""); // NEW
+
+    // ================= QUERIES =================
+    // Kept as constants so QueryPlanTest can EXPLAIN every one of them.
+
+    static final String SQL_USER_ROW =
+            "SELECT name, coins, pet_gender FROM user WHERE id=?";
+    static final String SQL_PROFILES =
+            "SELECT id, name, coins, pet_gender FROM user ORDER BY id";
+    static final String SQL_ADD_PROFILE =
+            "INSERT INTO user (name, coins, pet_gender) VALUES ('', ?, 'male')";
+    static final String SQL_MOOD_LOGGED_ON_DAY =
+            "SELECT 1 FROM mood_daily WHERE profile_id=? AND day=?";
+    static final String SQL_LATEST_MOOD =
+            "SELECT value FROM mood WHERE profile_id=? ORDER BY day DESC, id DESC LIMIT 1";
+    static final String SQL_QUEST_IDS_FOR_MOOD =
+            "SELECT id FROM quest WHERE mood=?";
+    static final String SQL_CURRENT_SESSION_QUESTS =
+            "SELECT q.id, q.title, q.description, q.reward, q.timer_minutes, " +
+                    "COALESCE(p.progress, 0), COALESCE(p.rewarded, 0) " +
+                    "FROM quest_session s JOIN quest q ON q.id = s.quest_id " +
+                    "LEFT JOIN quest_progress p ON p.profile_id = s.profile_id AND p.quest_id = s.quest_id " +
+                    "WHERE s.profile_id=? AND s.date=? AND s.mood=? AND s.active=1 ORDER BY s.slot";
+    static final String SQL_CURRENT_SESSION_PROGRESS =
+            "SELECT COUNT(*), COALESCE(SUM(p.progress >= 100), 0) FROM quest_session s " +
+                    "LEFT JOIN quest_progress p ON p.profile_id = s.profile_id AND p.quest_id = s.quest_id " +
+                    "WHERE s.profile_id=? AND s.active=1";
+    static final String SQL_SESSION_QUEST_IDS =
+            "SELECT quest_id FROM quest_session WHERE profile_id=? AND date=? AND mood=? ORDER BY slot";
+    static final String SQL_NEXT_SESSION_SLOT =
+            "SELECT COALESCE(MAX(slot) + 1, 0) FROM quest_session WHERE profile_id=? AND date=? AND mood=?";
+    static final String SQL_DEACTIVATE_SESSION =
+            "UPDATE quest_session SET active=0 WHERE profile_id=? AND active=1";
+    static final String SQL_DELETE_OTHER_DAYS_SESSIONS =
+            "DELETE FROM quest_session WHERE profile_id=? AND (date<? OR date>?)";
+    static final String SQL_DELETE_OTHER_DAYS_PLANS =
+            "DELETE FROM quest_plan WHERE profile_id=? AND (date<? OR date>?)";
+    static final String SQL_DELETE_ALL_SESSIONS =
+            "DELETE FROM quest_session WHERE profile_id=?";
+    static final String SQL_DELETE_ALL_PLANS =
+            "DELETE FROM quest_plan WHERE profile_id=?";
+    static final String SQL_INSERT_PLANNED_QUEST =
+            "INSERT OR REPLACE INTO quest_plan(profile_id, date, mood, quest_id, slot) VALUES(?,?,?,?,?)";
+    static final String SQL_HAS_PLAN =
+            "SELECT 1 FROM quest_plan WHERE profile_id=? AND date=? AND mood=? LIMIT 1";
+    static final String SQL_ACTIVATE_PLAN =
+            "INSERT OR REPLACE INTO quest_session(profile_id, date, mood, quest_id, slot, active) " +
+                    "SELECT profile_id, date, mood, quest_id, slot, 1 FROM quest_plan " +
+                    "WHERE profile_id=? AND date=? AND mood=?";
+    static final String SQL_DELETE_PLAN_FOR_MOOD =
+            "DELETE FROM quest_plan WHERE profile_id=? AND date=? AND mood=?";
+    static final String SQL_QUEST_PROGRESS =
+            "SELECT progress FROM quest_progress WHERE profile_id=? AND quest_id=?";
+    static final String SQL_QUEST_REWARDED =
+            "SELECT rewarded FROM quest_progress WHERE profile_id=? AND quest_id=?";
+    // (bind: profile, quest)
+    static final String SQL_QUEST_REWARD_STATE =
+            "SELECT q.reward, COALESCE(p.rewarded, 0) FROM quest q " +
+                    "LEFT JOIN quest_progress p ON p.profile_id=? AND p.quest_id = q.id WHERE q.id=?";
+    static final String SQL_QUEST_STREAK =
+            "SELECT last_day, current, best FROM quest_streak WHERE profile_id=?";
+    static final String SQL_QUEST_STATS =
+            "SELECT quest_id, shown, completed, abandoned, last_shown_day, mood_gain_total, mood_gain_count " +
+                    "FROM quest_stats WHERE profile_id=?";
+    static final String SQL_LATEST_MOOD_AT =
+            "SELECT created_at FROM mood WHERE profile_id=? ORDER BY day DESC, id DESC LIMIT 1";
+    // Newest first; saveMood credits those since the last mood (at most 10)
+    static final String SQL_RECENT_COMPLETIONS =
+            "SELECT quest_id, completed_at, mood FROM quest_completion WHERE profile_id=? " +
+                    "ORDER BY id DESC LIMIT 10";
+    static final String SQL_COUNT_COMPLETED_FOR_MOOD =
+            "SELECT COUNT(*) FROM quest_progress p JOIN quest q ON q.id = p.quest_id " +
+                    "WHERE p.profile_id=? AND p.progress>=100 AND q.mood=?";
+    static final String SQL_RESET_QUEST_PROGRESS =
+            "DELETE FROM quest_progress WHERE profile_id=?";
+    static final String SQL_WARDROBE =
+            "SELECT item_id, equipped FROM profile_item WHERE profile_id=?";
+    // (bind: profile, item). Unknown item ids add nothing.
+    static final String SQL_MARK_OWNED =
+            "INSERT OR IGNORE INTO profile_item (profile_id, item_id, type) " +
+                    "SELECT ?, id, type FROM accessory WHERE id=?";
+    static final String SQL_UNEQUIP_TYPE =
+            "UPDATE profile_item SET equipped=0 WHERE profile_id=? AND type=? AND equipped=1";
+    // Owned items only - not owned = no row
+    static final String SQL_EQUIP_ITEM =
+            "UPDATE profile_item SET equipped=1 WHERE profile_id=? AND item_id=?";
+    // (bind: profile, item)
+    static final String SQL_ITEM_PRICE_OWNED =
+            "SELECT a.price, p.item_id IS NOT NULL FROM accessory a " +
+                    "LEFT JOIN profile_item p ON p.profile_id=? AND p.item_id = a.id WHERE a.id=?";
+    static final String SQL_LEDGER_FIRST_ID =
+            "SELECT MIN(id) FROM coin_ledger WHERE profile_id=?";
+    static final String SQL_LEDGER_LAST_ID =
+            "SELECT MAX(id) FROM coin_ledger WHERE profile_id=?";
+    // Newest row to fold: the one just before the LEDGER_KEEP_ROWS kept (bind: profile, keep)
+    static final String SQL_LEDGER_FOLD_UP_TO =
+            "SELECT id FROM coin_ledger WHERE profile_id=? ORDER BY id DESC LIMIT 1 OFFSET ?";
+    static final String SQL_LEDGER_SUM_UP_TO =
+            "SELECT SUM(delta) FROM coin_ledger WHERE profile_id=? AND id<=?";
+    static final String SQL_LEDGER_DELETE_UP_TO =
+            "DELETE FROM coin_ledger WHERE profile_id=? AND id<=?";
+    static final String SQL_LEDGER_INSERT_SNAPSHOT =
+            "INSERT INTO coin_ledger (profile_id, id, delta, reason, created_at) VALUES (?, ?, ?, 'snapshot', ?)";
+    static final String SQL_RESET_ALL_ITEMS =
+            "DELETE FROM profile_item WHERE profile_id=?";
+    static final String SQL_RESET_ITEM_CATEGORY =
+            "DELETE FROM profile_item WHERE profile_id=? AND type=?";
+    static final String SQL_SEARCH_QUEST_RANKS =
+            "SELECT docid, matchinfo(quest_fts, 'pcx') FROM quest_fts WHERE quest_fts MATCH ?";
+    // + comma-separated ids + ")". CROSS JOIN keeps quest_fts as the outer loop.
+    // (bind: profile, match)
+    static final String SQL_SEARCH_QUEST_ROWS_FOR_IDS =
+            "SELECT q.id, q.title, q.description, q.reward, q.timer_minutes, " +
+                    "COALESCE(p.progress, 0), COALESCE(p.rewarded, 0), q.mood, " +
+                    "snippet(quest_fts, '\u0002', '\u0003', '', 0, 64), " +
+                    "snippet(quest_fts, '\u0002', '\u0003', '\u2026', 1, 16) " +
+                    "FROM quest_fts CROSS JOIN quest q ON q.id = quest_fts.docid " +
+                    "LEFT JOIN quest_progress p ON p.profile_id=? AND p.quest_id = q.id " +
+                    "WHERE quest_fts MATCH ? AND quest_fts.docid IN (";
+    // Keyset pages: each page starts after the last id of the previous one
+    // (bind: profile, after id, limit)
+    static final String SQL_QUEST_CATALOG_PAGE =
+            "SELECT q.id, q.title, q.description, q.reward, q.timer_minutes, " +
+                    "COALESCE(p.progress, 0), COALESCE(p.rewarded, 0), q.mood FROM quest q " +
+                    "LEFT JOIN quest_progress p ON p.profile_id=? AND p.quest_id = q.id " +
+                    "WHERE q.id>? ORDER BY q.id LIMIT ?";
+    static final String SQL_QUEST_HISTORY_PAGE =
+            "SELECT c.id, c.quest_id, q.title, q.mood, c.reward, c.completed_at " +
+                    "FROM quest_completion c JOIN quest q ON q.id = c.quest_id " +
+                    "WHERE c.profile_id=? AND c.id<? ORDER BY c.id DESC LIMIT ?";
+
+    // ================= WRITES =================
+    // Every one is for one profile: bind its id where profile_id / user.id is
+
+    // (bind: name, profile)
+    static final String SQL_SET_NAME =
+            "UPDATE user SET name=? WHERE id=?";
+
+    // (bind: gender, profile)
+    static final String SQL_SET_GENDER =
+            "UPDATE user SET pet_gender=? WHERE id=?";
+
+    // (bind: amount, profile)
+    static final String SQL_ADD_COINS =
+            "UPDATE user SET coins = coins + ? WHERE id=?";
+
+    // Only succeeds if the balance covers it (bind: price, profile, price)
+    static final String SQL_SPEND_COINS =
+            "UPDATE user SET coins = coins - ? WHERE id=? AND coins >= ?";
+
+    // (bind: profile, delta, reason, ref_id or null, created_at)
+    static final String SQL_ADD_LEDGER_ENTRY =
+            "INSERT INTO coin_ledger(profile_id, delta, reason, ref_id, created_at) VALUES(?,?,?,?,?)";
+
+    // (bind: profile, value, day, created_at)
+    static final String SQL_SAVE_MOOD =
+            "INSERT INTO mood(profile_id,value,day,created_at) VALUES(?,?,?,?)";
+
+    // Rollups: make sure the row exists, then fold the new value in
+    // (bind: profile, day/week, value, value)
+    static final String SQL_ENSURE_MOOD_DAILY =
+            "INSERT OR IGNORE INTO mood_daily(profile_id,day,count,total,min_value,max_value) VALUES(?,?,0,0,?,?)";
+
+    // (bind: value, value, value, profile, day)
+    static final String SQL_ADD_MOOD_DAILY =
+            "UPDATE mood_daily SET count=count+1, total=total+?, " +
+                    "min_value=MIN(min_value,?), max_value=MAX(max_value,?) WHERE profile_id=? AND day=?";
+
+    static final String SQL_ENSURE_MOOD_WEEKLY =
+            "INSERT OR IGNORE INTO mood_weekly(profile_id,week,count,total,min_value,max_value) VALUES(?,?,0,0,?,?)";
+
+    static final String SQL_ADD_MOOD_WEEKLY =
+            "UPDATE mood_weekly SET count=count+1, total=total+?, " +
+                    "min_value=MIN(min_value,?), max_value=MAX(max_value,?) WHERE profile_id=? AND week=?";
+
+    // Progress rows are created on first write; then updated like the
+    // rollups (bind: profile, quest). Unknown quest ids add nothing.
+    static final String SQL_ENSURE_QUEST_PROGRESS =
+            "INSERT OR IGNORE INTO quest_progress(profile_id, quest_id) SELECT ?, id FROM quest WHERE id=?";
+
+    static final String SQL_COMPLETE_QUEST =
+            "UPDATE quest_progress SET progress=100, rewarded=1 WHERE profile_id=? AND quest_id=?";
+
+    // (bind: profile, quest_id, reward, completed_at, mood or null, duration_ms or null)
+    static final String SQL_ADD_QUEST_COMPLETION =
+            "INSERT INTO quest_completion(profile_id, quest_id, reward, completed_at, mood, duration_ms) " +
+                    "VALUES(?,?,?,?,?,?)";
+
+    // (bind: profile, last_day, current, best)
+    static final String SQL_SAVE_STREAK =
+            "INSERT OR REPLACE INTO quest_streak(profile_id, last_day, current, best) VALUES(?,?,?,?)";
+
+    // Recommendation counters, created on first event like quest_progress
+    // (bind: profile, quest). Unknown quest ids add nothing.
+    static final String SQL_ENSURE_QUEST_STATS =
+            "INSERT OR IGNORE INTO quest_stats(profile_id, quest_id) SELECT ?, id FROM quest WHERE id=?";
+
+    // (bind: day, profile, quest)
+    static final String SQL_ADD_QUEST_SHOWN =
+            "UPDATE quest_stats SET shown=shown+1, last_shown_day=? WHERE profile_id=? AND quest_id=?";
+
+    // (bind: profile, quest)
+    static final String SQL_ADD_QUEST_COMPLETED =
+            "UPDATE quest_stats SET completed=completed+1 WHERE profile_id=? AND quest_id=?";
+
+    static final String SQL_ADD_QUEST_ABANDONED =
+            "UPDATE quest_stats SET abandoned=abandoned+1 WHERE profile_id=? AND quest_id=?";
+
+    // (bind: gain, profile, quest)
+    static final String SQL_ADD_QUEST_MOOD_GAIN =
+            "UPDATE quest_stats SET mood_gain_total=mood_gain_total+?, mood_gain_count=mood_gain_count+1 " +
+                    "WHERE profile_id=? AND quest_id=?";
+
+    // (bind: profile, date, mood, quest_id, slot)
+    static final String SQL_INSERT_SESSION_QUEST =
+            "INSERT OR REPLACE INTO quest_session(profile_id, date, mood, quest_id, slot, active) VALUES(?,?,?,?,?,1)";
+
+    // Most search results shown at once (the best-ranked ones)
+    static final int SEARCH_RESULT_LIMIT = 50;
+
+    // coin_ledger.reason values
+    private static final String LEDGER_QUEST = "quest";
+    private static final String LEDGER_PURCHASE = "purchase";
+    private static final String LEDGER_BONUS = "bonus";
+    private static final String LEDGER_SNAPSHOT = "snapshot";
+
+    // Compact once a profile's ledger passes this many rows, keeping the newest ones
+    static final int LEDGER_COMPACT_THRESHOLD = 1000;
+    static final int LEDGER_KEEP_ROWS = 200;
+
+    // LEGACY - inventory/outfit kept in AppStateStore before the accessory table
+    private static final AppStateStore.Key<Long> KEY_LEGACY_OWNED_BITS =
+            AppStateStore.longKey(InventoryManager.KEY_PREFIX + "owned_bits", 0L);
+    private static final AppStateStore.Key<Set<String>> KEY_LEGACY_OWNED_ITEMS =
+            AppStateStore.stringSetKey(InventoryManager.KEY_PREFIX + "owned_items");
+
+    /**
+     * One profile's cached rows and app state keys. Switching profiles
+     * swaps which ProfileState is active; the others keep their caches,
+     * so switching back to a profile reads nothing from disk.
+     */
+    private static final class ProfileState {
+        final long id;
+
+        // Write-through cache of the user row (null until first read)
+        volatile UserState user;
+
+        // Owned + equipped items (null until first read, replaced on every change)
+        volatile Wardrobe wardrobe;
+
+        // Streak checkpoint (null until first read, replaced on every completion)
+        volatile StreakTracker streak;
+
+        // Quest ids + this profile's counters for weighted draws (null until first use)
+        volatile QuestSampler sampler;
+
+        final AppStateStore.Key<Boolean> hasCustomizedKey;
+        final AppStateStore.Key<String> questDateKey;
+        final AppStateStore.Key<String> happyQuestDateKey;
+        final AppStateStore.Key<String> firstQuestCompletedKey;
+
+        ProfileState(long id) {
+            this.id = id;
+            hasCustomizedKey = KEY_HAS_CUSTOMIZED.forProfile(id);
+            questDateKey = KEY_QUEST_DATE.forProfile(id);
+            happyQuestDateKey = KEY_HAPPY_QUEST_DATE.forProfile(id);
+            firstQuestCompletedKey = KEY_FIRST_QUEST_COMPLETED.forProfile(id);
+        }
+    }
 
     private final DatabaseHelper helper;
     private final Context appContext;
 
+    // Every profile used since start (guarded by itself)
+    private final Map<Long, ProfileState> profiles = new HashMap<>();
+
+    // The profile calls work on (null until first use)
+    private volatile ProfileState activeProfile;
+
+    // Old SharedPreferences session ids moved into quest_session
+    private volatile boolean legacySessionImported;
+
+    // Held while a wardrobe is read or changed
+    private final Object wardrobeLock = new Object();
+
     // Private constructor
     private DatabaseManager(Context context) {
         appContext = context.getApplicationContext();
@@ -57,172 +356,568 @@ public class DatabaseManager {
     // ================= DATE HELPER =================
 
     /**
-     * Get today's date as string (YYYY-MM-DD)
+     * Get today's date as string (YYYY-MM-DD), cached by AppClock
      */
     public String getTodayDate() {
-        return new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+        return AppClock.get().todayKey();
     }
 
-    // ================= USER =================
+    /**
+     * Get today as days since 1970-01-01 in local time
+     */
+    public long getTodayEpochDay() {
+        return AppClock.get().today();
+    }
+
+    // ================= QUERY HELPERS =================
+    // Each statement reports its SQL (and rows read) to the call
+    // DatabaseRepository is timing. With no call open - a synchronous call,
+    // usually from the UI thread - it is timed on its own instead. Nothing
+    // is recorded when metrics are off.
+
+    private static Cursor query(SQLiteDatabase db, String sql, String[] args) {
+        if (!QueryMetrics.isEnabled()) {
+            return db.rawQuery(sql, args);
+        }
+
+        try (QueryMetrics.Call call = QueryMetrics.beginStatement(sql)) {
+            Cursor c = db.rawQuery(sql, args);
+            QueryMetrics.sql(sql);
+            QueryMetrics.rows(c.getCount()); // Runs the query, so it is timed too
+            return c;
+        }
+    }
+
+    private static void execute(SQLiteDatabase db, String sql, Object[] args) {
+        try (QueryMetrics.Call call = QueryMetrics.beginStatement(sql)) {
+            QueryMetrics.sql(sql);
+            db.execSQL(sql, args);
+        }
+    }
 
     /**
-     * Get current user/pet name
+     * Run an UPDATE / DELETE and return the number of rows it changed
      */
-    public String getName() {
+    private static int executeUpdateDelete(SQLiteDatabase db, String sql, Object... args) {
+        try (QueryMetrics.Call call = QueryMetrics.beginStatement(sql)) {
+            QueryMetrics.sql(sql);
+            SQLiteStatement statement = db.compileStatement(sql);
+            try {
+                bind(statement, args);
+                return statement.executeUpdateDelete();
+            } finally {
+                statement.close();
+            }
+        }
+    }
 
-        SQLiteDatabase db = helper.getReadableDatabase();
+    /**
+     * Run an INSERT and return the new row id
+     */
+    private static long executeInsert(SQLiteDatabase db, String sql, Object... args) {
+        try (QueryMetrics.Call call = QueryMetrics.beginStatement(sql)) {
+            QueryMetrics.sql(sql);
+            SQLiteStatement statement = db.compileStatement(sql);
+            try {
+                bind(statement, args);
+                return statement.executeInsert();
+            } finally {
+                statement.close();
+            }
+        }
+    }
 
-        Cursor c = db.rawQuery(
-                "SELECT name FROM user WHERE id=1",
-                null
-        );
+    private static void bind(SQLiteStatement statement, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                statement.bindNull(i + 1);
+            } else if (arg instanceof Number) {
+                statement.bindLong(i + 1, ((Number) arg).longValue());
+            } else {
+                statement.bindString(i + 1, arg.toString());
+            }
+        }
+    }
 
-        String name = "";
+    // ================= PROFILES =================
 
-        if (c.moveToFirst()) {
-            name = c.getString(0);
+    /**
+     * The active profile, read from the app state on first use
+     */
+    private ProfileState profile() {
+        ProfileState profile = activeProfile;
+        if (profile == null) {
+            synchronized (profiles) {
+                if (activeProfile == null) {
+                    activeProfile = profileState(AppStateStore.get(appContext).get(KEY_ACTIVE_PROFILE));
+                }
+                profile = activeProfile;
+            }
         }
+        return profile;
+    }
 
-        c.close();
+    private ProfileState profileState(long profileId) {
+        synchronized (profiles) {
+            ProfileState profile = profiles.get(profileId);
+            if (profile == null) {
+                profile = new ProfileState(profileId);
+                profiles.put(profileId, profile);
+            }
+            return profile;
+        }
+    }
 
-        return name;
+    /**
+     * Id of the profile every call works on
+     */
+    public long getActiveProfileId() {
+        return profile().id;
     }
 
     /**
-     * Update user/pet name
+     * Every profile in creation order (one small query). Their user rows
+     * are cached on the way, so switching to one of them afterwards only
+     * has to load its wardrobe.
      */
-    public void setName(String name) {
+    public synchronized List<UserState> getProfiles() {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = query(db, SQL_PROFILES, null);
+
+        List<UserState> list = new ArrayList<>(c.getCount());
+        while (c.moveToNext()) {
+            UserState user = new UserState(c.getLong(0), c.getString(1), c.getInt(2), c.getString(3));
+            list.add(user);
+
+            ProfileState profile = profileState(user.getId());
+            if (profile.user == null) {
+                profile.user = user;
+            }
+        }
+        c.close();
+
+        return list;
+    }
 
+    /**
+     * Add a profile with the starting coins and the free items, unnamed
+     * (hasCustomized is false, so it goes through CustomizeActivity).
+     * It does not become active - call switchProfile.
+     */
+    public synchronized long createProfile() {
         SQLiteDatabase db = helper.getWritableDatabase();
+        long profileId;
 
-        db.execSQL(
-                "UPDATE user SET name=? WHERE id=1",
-                new Object[]{name}
-        );
+        db.beginTransaction();
+        try {
+            profileId = executeInsert(db, SQL_ADD_PROFILE, DatabaseHelper.STARTING_COINS);
+
+            // Starting coins are the ledger's first entry, as for profile 1
+            appendLedger(profileId, DatabaseHelper.STARTING_COINS, LEDGER_SNAPSHOT, -1);
+            execute(db, DatabaseHelper.SQL_GIVE_FREE_ITEMS_TO_PROFILE, new Object[]{profileId});
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        android.util.Log.d("DatabaseManager", "Created profile " + profileId);
+        return profileId;
     }
 
     /**
-     * Get current coins
+     * Make another profile the active one. Its user row and wardrobe are
+     * in memory before the switch (loaded now if it wasn't used yet), so
+     * the next screen draws without waiting on the database. Nothing is
+     * reopened: the pointer moves and the choice is saved in AppStateStore.
      */
-    public int getCoins() {
+    public synchronized void switchProfile(long profileId) {
+        ProfileState profile = profileState(profileId);
+
+        if (profile.user == null) {
+            UserState user = loadUserState(profileId);
+            if (user == null) {
+                throw new IllegalArgumentException("No profile " + profileId);
+            }
+            profile.user = user;
+        }
+        getWardrobe(profile);
+
+        activeProfile = profile;
+        AppStateStore.get(appContext).put(KEY_ACTIVE_PROFILE, profileId);
+
+        android.util.Log.d("DatabaseManager", "Switched to profile " + profileId);
+    }
+
+    // ================= USER =================
+
+    /**
+     * Get the cached user row, loading it from the database on first use.
+     * After the first load every read is served from memory.
+     */
+    public UserState getUserState() {
+        return getUserState(profile());
+    }
+
+    private UserState getUserState(ProfileState profile) {
+        UserState state = profile.user;
+
+        if (state == null) {
+            synchronized (this) {
+                if (profile.user == null) {
+                    UserState loaded = loadUserState(profile.id);
+                    profile.user = loaded != null ? loaded : new UserState(profile.id, "", 0, "male");
+                }
+                state = profile.user;
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * Read a user row from disk (only called when the cache is empty),
+     * null if there is no such profile
+     */
+    private UserState loadUserState(long profileId) {
 
         SQLiteDatabase db = helper.getReadableDatabase();
 
-        Cursor c = db.rawQuery(
-                "SELECT coins FROM user WHERE id=1",
-                null
+        Cursor c = query(db,
+                SQL_USER_ROW,
+                new String[]{String.valueOf(profileId)}
         );
 
-        int coins = 0;
+        UserState state = null;
 
         if (c.moveToFirst()) {
-            coins = c.getInt(0);
+            state = new UserState(profileId, c.getString(0), c.getInt(1), c.getString(2));
         }
 
         c.close();
 
-        return coins;
+        return state;
+    }
+
+    /**
+     * Drop the cached user row so the next read goes back to disk
+     * (used after resets that rewrite the user table)
+     */
+    public synchronized void invalidateUserState() {
+        profile().user = null;
+    }
+
+    /**
+     * Get current user/pet name
+     */
+    public String getName() {
+        return getUserState().getName();
+    }
+
+    /**
+     * Update user/pet name
+     */
+    public synchronized void setName(String name) {
+        ProfileState profile = profile();
+
+        execute(helper.getWritableDatabase(), SQL_SET_NAME, new Object[]{name, profile.id});
+
+        profile.user = getUserState(profile).withName(name);
+    }
+
+    /**
+     * Get current coins
+     */
+    public int getCoins() {
+        return getUserState().getCoins();
     }
 
     /**
-     * Add / subtract coins
+     * Add / subtract coins (bonus / dev cheat - purchases go through purchase())
      */
-    public void addCoins(int amount) {
+    public synchronized void addCoins(int amount) {
+        // Snapshot first so a cold cache doesn't load the already-updated row
+        ProfileState profile = profile();
+        UserState state = getUserState(profile);
 
         SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            execute(db, SQL_ADD_COINS, new Object[]{amount, profile.id});
+            appendLedger(profile.id, amount, LEDGER_BONUS, -1);
 
-        db.execSQL(
-                "UPDATE user SET coins = coins + ? WHERE id=1",
-                new Object[]{amount}
-        );
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        profile.user = state.withCoins(state.getCoins() + amount);
     }
 
     /**
-     * Get pet gender
+     * Buy a shop item (accessory.id = ItemRegistry ordinal) in ONE transaction:
+     * - coins taken only if the balance covers the price (conditional UPDATE)
+     * - coin_ledger row appended
+     * - item marked owned
+     * Nothing changes unless all three happen.
      */
-    public String getGender() {
+    public synchronized PurchaseResult purchase(int itemId) {
+        // Snapshots first so cold caches don't load already-updated rows
+        ProfileState profile = profile();
+        UserState state = getUserState(profile);
 
-        SQLiteDatabase db = helper.getReadableDatabase();
+        synchronized (wardrobeLock) {
+            Wardrobe current = getWardrobe(profile);
+            SQLiteDatabase db = helper.getWritableDatabase();
 
-        Cursor c = db.rawQuery(
-                "SELECT pet_gender FROM user WHERE id=1",
-                null
-        );
+            int price;
+            db.beginTransaction();
+            try {
+                Cursor c = query(db, SQL_ITEM_PRICE_OWNED,
+                        new String[]{String.valueOf(profile.id), String.valueOf(itemId)});
+                if (!c.moveToFirst()) {
+                    c.close();
+                    return new PurchaseResult(PurchaseResult.Status.UNKNOWN_ITEM, itemId, 0, state.getCoins());
+                }
+                price = c.getInt(0);
+                boolean owned = c.getInt(1) == 1;
+                c.close();
+
+                if (owned) {
+                    return new PurchaseResult(PurchaseResult.Status.ALREADY_OWNED, itemId, 0, state.getCoins());
+                }
+
+                int spent = executeUpdateDelete(db, SQL_SPEND_COINS, price, profile.id, price);
+                if (spent == 0) {
+                    return new PurchaseResult(PurchaseResult.Status.NOT_ENOUGH_COINS, itemId, 0, state.getCoins());
+                }
+
+                appendLedger(profile.id, -price, LEDGER_PURCHASE, itemId);
+                execute(db, SQL_MARK_OWNED, new Object[]{profile.id, itemId});
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
 
-        String gender = "male";
+            // Caches follow the rows only once the commit went through
+            profile.user = state.withCoins(state.getCoins() - price);
+            profile.wardrobe = current.withOwned(itemId);
 
-        if (c.moveToFirst()) {
-            gender = c.getString(0);
+            android.util.Log.d("DatabaseManager", "Purchased item " + itemId + " for " + price + " coins");
+            return new PurchaseResult(PurchaseResult.Status.PURCHASED, itemId, price, state.getCoins() - price);
+        }
+    }
+
+    /**
+     * Append a coin_ledger row (caller holds the transaction that changed user.coins)
+     *
+     * @param refId quest or accessory id, -1 for none
+     */
+    private void appendLedger(long profileId, int delta, String reason, long refId) {
+        execute(helper.getWritableDatabase(), SQL_ADD_LEDGER_ENTRY, new Object[]{
+                profileId, delta, reason, refId < 0 ? null : refId, AppClock.get().now()});
+    }
+
+    /**
+     * Fold all but the newest LEDGER_KEEP_ROWS of the active profile's
+     * ledger rows into one 'snapshot' row once the ledger passes
+     * LEDGER_COMPACT_THRESHOLD. The sum (= the balance) is unchanged.
+     * The midnight rollover does this for every profile.
+     */
+    public synchronized void compactCoinLedger() {
+        compactCoinLedger(profile().id);
+    }
+
+    private void compactCoinLedger(long profileId) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            long first = queryLong(db, SQL_LEDGER_FIRST_ID, profileId);
+            long last = queryLong(db, SQL_LEDGER_LAST_ID, profileId);
+
+            // Ids only grow and compaction removes a prefix, so the id span is
+            // at least the row count (more once profiles' rows interleave)
+            if (last - first + 1 <= LEDGER_COMPACT_THRESHOLD) return;
+
+            // 0 = this profile has no more than LEDGER_KEEP_ROWS rows
+            long cutoff = queryLong(db, SQL_LEDGER_FOLD_UP_TO, profileId, LEDGER_KEEP_ROWS);
+            if (cutoff == 0) return;
+
+            long folded = queryLong(db, SQL_LEDGER_SUM_UP_TO, profileId, cutoff);
+
+            // The snapshot reuses the newest folded row's id
+            execute(db, SQL_LEDGER_DELETE_UP_TO, new Object[]{profileId, cutoff});
+            execute(db, SQL_LEDGER_INSERT_SNAPSHOT, new Object[]{profileId, cutoff, folded, AppClock.get().now()});
+
+            db.setTransactionSuccessful();
+            android.util.Log.d("DatabaseManager", "Compacted coin ledger of profile " + profileId + " up to id " + cutoff);
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static long queryLong(SQLiteDatabase db, String sql, Object... args) {
+        String[] bindArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            bindArgs[i] = String.valueOf(args[i]);
         }
 
+        Cursor c = query(db, sql, bindArgs);
+        long value = c.moveToFirst() ? c.getLong(0) : 0;
         c.close();
+        return value;
+    }
 
-        return gender;
+    /**
+     * Get pet gender
+     */
+    public String getGender() {
+        return getUserState().getGender();
     }
 
     /**
      * Update pet gender
      */
-    public void setGender(String gender) {
+    public synchronized void setGender(String gender) {
+        ProfileState profile = profile();
 
-        SQLiteDatabase db = helper.getWritableDatabase();
+        execute(helper.getWritableDatabase(), SQL_SET_GENDER, new Object[]{gender, profile.id});
 
-        db.execSQL(
-                "UPDATE user SET pet_gender=? WHERE id=1",
-                new Object[]{gender}
-        );
+        profile.user = getUserState(profile).withGender(gender);
     }
 
     // ================= MOOD =================
 
     /**
-     * Save mood entry
+     * Save mood entry for right now.
+     * The daily and weekly rollups, and the mood gain of quests completed
+     * since the previous mood, are updated in the same transaction.
      */
-    public void saveMood(int value, String date) {
+    public synchronized void saveMood(int value) {
+        ProfileState profile = profile();
+        long profileId = profile.id;
+        QuestSampler sampler = getQuestSampler(profile);
+        AppClock clock = AppClock.get();
+        long now = clock.now();
+        long day = clock.epochDayOf(now);
+        long week = MoodStats.weekOf(day);
 
         SQLiteDatabase db = helper.getWritableDatabase();
+        int[][] gains;
+        db.beginTransaction();
+        try {
+            // Before the insert: the quests done since the previous mood
+            gains = creditMoodGain(profileId, value);
 
-        db.execSQL(
-                "INSERT INTO mood(value,date) VALUES(?,?)",
-                new Object[]{value, date}
-        );
+            execute(db, SQL_SAVE_MOOD, new Object[]{profileId, value, day, now});
+
+            addToRollup(SQL_ENSURE_MOOD_DAILY, SQL_ADD_MOOD_DAILY, profileId, day, value);
+            addToRollup(SQL_ENSURE_MOOD_WEEKLY, SQL_ADD_MOOD_WEEKLY, profileId, week, value);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        for (int[] gain : gains) {
+            sampler.recordMoodGain(gain[0], gain[1]);
+        }
+    }
+
+    /**
+     * Credit a new mood to the quests completed since the previous one:
+     * each gets the change from the mood it was done in (caller holds the
+     * transaction, before the new mood is inserted). Reads at most the 10
+     * newest completions. Returns {quest id, gain} pairs.
+     */
+    private int[][] creditMoodGain(long profileId, int value) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        String[] args = {String.valueOf(profileId)};
+
+        Cursor c = query(db, SQL_LATEST_MOOD_AT, args);
+        if (!c.moveToFirst()) {
+            c.close();
+            return new int[0][]; // no mood before - no completion has one to compare
+        }
+        long since = c.getLong(0);
+        c.close();
+
+        List<int[]> gains = new ArrayList<>();
+        c = query(db, SQL_RECENT_COMPLETIONS, args);
+        while (c.moveToNext()) {
+            if (c.isNull(1) || c.getLong(1) < since) break;
+            if (c.isNull(2)) continue;
+
+            int questId = c.getInt(0);
+            int gain = QuestSampler.moodGain(c.getInt(2), value);
+            addQuestStat(SQL_ADD_QUEST_MOOD_GAIN, profileId, questId, gain);
+            gains.add(new int[]{questId, gain});
+        }
+        c.close();
+
+        return gains.toArray(new int[0][]);
+    }
+
+    /**
+     * Add to one quest_stats counter, creating the row first if needed
+     * (caller holds the transaction). value is bound before profile and quest.
+     */
+    private void addQuestStat(String addSql, long profileId, int questId, long value) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        execute(db, SQL_ENSURE_QUEST_STATS, new Object[]{profileId, questId});
+        execute(db, addSql, new Object[]{value, profileId, questId});
+    }
+
+    private void addQuestStat(String addSql, long profileId, int questId) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        execute(db, SQL_ENSURE_QUEST_STATS, new Object[]{profileId, questId});
+        execute(db, addSql, new Object[]{profileId, questId});
+    }
+
+    private void addToRollup(String ensureSql, String addSql, long profileId, long period, int value) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        execute(db, ensureSql, new Object[]{profileId, period, value, value});
+        execute(db, addSql, new Object[]{value, value, value, profileId, period});
     }
 
     /**
      * Check if mood was already selected today
      */
     public boolean hasSelectedMoodToday() {
-
         SQLiteDatabase db = helper.getReadableDatabase();
 
-        String today = getTodayDate();
-
-        Cursor c = db.rawQuery(
-                "SELECT COUNT(*) FROM mood WHERE date=?",
-                new String[]{today}
+        Cursor c = query(db,
+                SQL_MOOD_LOGGED_ON_DAY,
+                new String[]{String.valueOf(profile().id), String.valueOf(getTodayEpochDay())}
         );
 
-        boolean result = false;
-
-        if (c.moveToFirst()) {
-            result = c.getInt(0) > 0;
-        }
+        boolean result = c.moveToFirst();
 
         c.close();
 
         return result;
     }
 
+    /**
+     * Mood trends of the active profile (reads the rollup tables only)
+     */
+    public MoodStats getMoodStats() {
+        return new MoodStats(helper, profile().id);
+    }
+
     /**
      * Get latest mood value (1-5)
      */
     public int getLatestMood() {
-
         SQLiteDatabase db = helper.getReadableDatabase();
 
-        Cursor c = db.rawQuery(
-                "SELECT value FROM mood ORDER BY id DESC LIMIT 1",
-                null
+        Cursor c = query(db,
+                SQL_LATEST_MOOD,
+                new String[]{String.valueOf(profile().id)}
         );
 
         int mood = 0; // 0 = neutral
@@ -240,7 +935,6 @@ public class DatabaseManager {
      * Get latest mood as text
      */
     public String getLatestMoodText() {
-
         int moodIndex = getLatestMood();
 
         switch (moodIndex) {
@@ -253,29 +947,13 @@ public class DatabaseManager {
         }
     }
 
-    /**
-     * Delete mood for today (for testing)
-     */
-    public void deleteMoodForToday() {
-
-        SQLiteDatabase db = helper.getWritableDatabase();
-
-        String today = getTodayDate();
-
-        db.execSQL(
-                "DELETE FROM mood WHERE date=?",
-                new String[]{today}
-        );
-    }
-
     // ================= FIRST QUEST COMPLETION TRACKING (PER DAY) =================
 
     /**
      * Check if user completed ANY quest set today (first use done)
      */
     public boolean hasCompletedFirstQuestToday() {
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String lastCompletionDate = prefs.getString(KEY_FIRST_QUEST_COMPLETED, "");
+        String lastCompletionDate = AppStateStore.get(appContext).get(profile().firstQuestCompletedKey);
         String today = getTodayDate();
 
         boolean completed = lastCompletionDate.equals(today);
@@ -287,9 +965,8 @@ public class DatabaseManager {
      * Mark that first quest set was completed today (any mood)
      */
     public void markFirstQuestCompleted() {
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         String today = getTodayDate();
-        prefs.edit().putString(KEY_FIRST_QUEST_COMPLETED, today).apply();
+        AppStateStore.get(appContext).put(profile().firstQuestCompletedKey, today);
         android.util.Log.d("DatabaseManager", "Marked first quest completed for today: " + today);
     }
 
@@ -320,101 +997,287 @@ public class DatabaseManager {
     /**
      * Get quests for current session (persists until all complete)
      * Excludes used quests TODAY ONLY - resets tomorrow
+     *
+     * Synchronized like the other writers: the draw, the session rows and
+     * the sampler's shown counts must not interleave with completeQuest
+     * or a rollover.
      */
-    public List<Quest> getQuestsForMood(int moodIndex) {
+    public synchronized List<Quest> getQuestsForMood(int moodIndex) {
+        ProfileState profile = profile();
         String moodText = getMoodTextFromIndex(moodIndex);
         String today = getTodayDate();
 
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String savedMood = prefs.getString(KEY_CURRENT_MOOD, "");
-        String savedIds = prefs.getString(KEY_CURRENT_QUEST_IDS, "");
-        String savedDate = prefs.getString(KEY_QUEST_DATE, "");
+        importLegacyQuestSession();
 
-        // Check if date changed - if so, reset everything
+        String savedDate = AppStateStore.get(appContext).get(profile.questDateKey);
+
+        // Normally DayRolloverReceiver already did this just after midnight;
+        // only runs here if the alarm hasn't fired yet (device off, app killed)
+        // or the profile was added since
         if (!savedDate.equals(today)) {
-            android.util.Log.d("DatabaseManager", "New day detected! Resetting quest history.");
-            clearAllQuestHistory();
-            savedMood = "";
-            savedIds = "";
+            android.util.Log.d("DatabaseManager", "New day detected before rollover job - rolling over now");
+            rolloverProfileIfNewDay(profile);
+        }
+
+        // Current session for this mood today (one indexed query)
+        List<Quest> current = loadCurrentSession(profile.id, today, moodText);
+        if (!current.isEmpty()) {
+            return current;
         }
 
-        // If mood changed or no saved quests, generate new random 5
-        if (!savedMood.equals(moodText) || savedIds.isEmpty()) {
-            // Get previously used quest IDs for this mood TODAY
-            String usedIds = prefs.getString(KEY_USED_QUEST_IDS + "_" + moodText, "");
+        // Mood changed or no saved quests - use the planned 5 for this mood,
+        // or draw the next 5 if the plan was already used up today.
+        // The sampler never repeats a quest until the mood's pool runs out.
+        QuestSampler sampler = getQuestSampler(profile);
+        long epochDay = getTodayEpochDay();
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            if (!activatePlannedSession(profile.id, today, moodText)) {
+                int position = getNextSessionSlot(profile.id, today, moodText);
+                int[] used = getSessionQuestIds(profile.id, today, moodText);
+                int[] questIds = sampler.draw(moodText, epochDay, used, 5);
+                saveCurrentQuestSession(profile.id, moodText, questIds, position, today);
+            }
 
-            List<Quest> newQuests = generateRandomQuestsExcluding(moodText, 5, usedIds);
-            saveCurrentQuestSession(moodText, newQuests, today);
+            current = loadCurrentSession(profile.id, today, moodText);
+            for (Quest quest : current) {
+                addQuestStat(SQL_ADD_QUEST_SHOWN, profile.id, quest.getId(), epochDay);
+            }
 
-            // Add these quest IDs to used history
-            addToUsedQuests(moodText, newQuests);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
 
-            return newQuests;
+        for (Quest quest : current) {
+            sampler.recordShown(quest.getId(), epochDay);
         }
 
-        // Load saved quests by IDs
-        return loadQuestsByIds(savedIds, moodText);
+        return current;
     }
 
+    // ================= DAY ROLLOVER =================
+
     /**
-     * Generate new random quests, excluding previously used ones TODAY
+     * Start a new day, for every profile not already on today:
+     * - Drop other days' quest sessions and plans
+     * - Plan the next quest session for all 5 moods (one transaction)
+     * - Clear the daily flags
+     * - Compact the coin ledger
+     *
+     * Run by DayRolloverReceiver shortly after midnight, off the UI thread.
+     * The alarm is inexact, so the app may already have rolled a profile
+     * over (and the user finished quests) - those profiles are left alone.
      */
-    private List<Quest> generateRandomQuestsExcluding(String mood, int count, String excludeIds) {
-        SQLiteDatabase db = helper.getReadableDatabase();
-        List<Quest> quests = new ArrayList<>();
-
-        String excludeClause = "";
-        if (!excludeIds.isEmpty()) {
-            excludeClause = " AND id NOT IN (" + excludeIds + ")";
-        }
-
-        Cursor c = db.rawQuery(
-                "SELECT id, title, description, reward, timer_minutes, progress, rewarded " +
-                        "FROM quest WHERE mood=?" + excludeClause + " ORDER BY RANDOM() LIMIT ?",
-                new String[]{mood, String.valueOf(count)}
-        );
-
+    public synchronized void rolloverDay() {
+        List<Long> ids = new ArrayList<>();
+        Cursor c = query(helper.getReadableDatabase(), SQL_PROFILES, null);
         while (c.moveToNext()) {
-            int id = c.getInt(0);
-            String title = c.getString(1);
-            String description = c.getString(2);
-            int reward = c.getInt(3);
-            int timerMinutes = c.getInt(4);
-            int progress = c.getInt(5);
-            int rewarded = c.getInt(6);
-
-            Quest quest = new Quest(id, title, description, reward, mood, timerMinutes);
-            quest.setProgress(progress);
-            quest.setRewarded(rewarded == 1);
-
-            quests.add(quest);
+            ids.add(c.getLong(0));
         }
-
         c.close();
 
-        // If not enough quests available (all have been used today), reset today's history
-        if (quests.size() < count && !excludeIds.isEmpty()) {
-            android.util.Log.d("DatabaseManager", "All quests used today. Resetting history for " + mood);
-            clearUsedQuestsForMood(mood);
-            return generateRandomQuestsExcluding(mood, count, "");
+        for (long id : ids) {
+            rolloverProfileIfNewDay(profileState(id));
         }
+    }
 
-        return quests;
+    /**
+     * Roll a profile over unless its saved quest date is already today
+     * (caller holds this)
+     */
+    private void rolloverProfileIfNewDay(ProfileState profile) {
+        String savedDate = AppStateStore.get(appContext).get(profile.questDateKey);
+        if (!getTodayDate().equals(savedDate)) {
+            rolloverProfile(profile);
+        }
     }
 
     /**
-     * Load quests by their IDs
+     * Start a new day for one profile (caller holds this)
      */
-    private List<Quest> loadQuestsByIds(String ids, String mood) {
-        SQLiteDatabase db = helper.getReadableDatabase();
-        List<Quest> quests = new ArrayList<>();
+    private void rolloverProfile(ProfileState profile) {
+        String today = getTodayDate();
+        long epochDay = getTodayEpochDay();
+        QuestSampler sampler = getQuestSampler(profile);
 
-        Cursor c = db.rawQuery(
-                "SELECT id, title, description, reward, timer_minutes, progress, rewarded " +
-                        "FROM quest WHERE id IN (" + ids + ") ORDER BY id",
-                null
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            execute(db, SQL_DELETE_OTHER_DAYS_SESSIONS, new Object[]{profile.id, today, today});
+            execute(db, SQL_DELETE_OTHER_DAYS_PLANS, new Object[]{profile.id, today, today});
+
+            for (int i = 0; i < 5; i++) {
+                String mood = getMoodTextFromIndex(i);
+                if (hasPlannedSession(profile.id, today, mood)) continue;
+
+                int position = getNextSessionSlot(profile.id, today, mood);
+                int[] used = getSessionQuestIds(profile.id, today, mood);
+                int[] questIds = sampler.draw(mood, epochDay, used, 5);
+                for (int slot = 0; slot < questIds.length; slot++) {
+                    execute(db, SQL_INSERT_PLANNED_QUEST,
+                            new Object[]{profile.id, today, mood, questIds[slot], position + slot});
+                }
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        // Flags only move to the new day once the plan is committed
+        AppStateStore.get(appContext).edit()
+                .remove(profile.firstQuestCompletedKey)
+                .remove(profile.happyQuestDateKey)
+                .put(profile.questDateKey, today)
+                .apply();
+
+        compactCoinLedger(profile.id);
+
+        android.util.Log.d("DatabaseManager", "Rolled over profile " + profile.id + " to " + today
+                + " - planned quests for all moods");
+    }
+
+    /**
+     * Make the planned session for a mood the current one.
+     * Returns false if there is no plan left for it today.
+     */
+    private boolean activatePlannedSession(long profileId, String date, String mood) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        execute(db, SQL_DEACTIVATE_SESSION, new Object[]{profileId});
+
+        int activated = executeUpdateDelete(db, SQL_ACTIVATE_PLAN, profileId, date, mood);
+        if (activated == 0) {
+            return false;
+        }
+
+        // A plan is used once; the next session for this mood is drawn on demand
+        execute(db, SQL_DELETE_PLAN_FOR_MOOD, new Object[]{profileId, date, mood});
+        return true;
+    }
+
+    private boolean hasPlannedSession(long profileId, String date, String mood) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = query(db,
+                SQL_HAS_PLAN,
+                new String[]{String.valueOf(profileId), date, mood}
+        );
+
+        boolean planned = c.moveToFirst();
+        c.close();
+        return planned;
+    }
+
+    /**
+     * Quest ids per mood and the profile's quest_stats, read once; every
+     * later event updates the sampler in memory after its commit
+     */
+    private QuestSampler getQuestSampler(ProfileState profile) {
+        QuestSampler sampler = profile.sampler;
+        if (sampler == null) {
+            synchronized (this) {
+                sampler = profile.sampler;
+                if (sampler == null) {
+                    sampler = loadQuestSampler(profile.id);
+                    profile.sampler = sampler;
+                }
+            }
+        }
+        return sampler;
+    }
+
+    private QuestSampler loadQuestSampler(long profileId) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        Map<String, int[]> idsByMood = new HashMap<>();
+
+        for (int i = 0; i < 5; i++) {
+            String mood = getMoodTextFromIndex(i);
+            Cursor c = query(db, SQL_QUEST_IDS_FOR_MOOD, new String[]{mood});
+
+            int[] ids = new int[c.getCount()];
+            int n = 0;
+            while (c.moveToNext()) {
+                ids[n++] = c.getInt(0);
+            }
+            c.close();
+
+            idsByMood.put(mood, ids);
+        }
+
+        QuestSampler sampler = new QuestSampler(idsByMood);
+
+        Cursor c = query(db, SQL_QUEST_STATS, new String[]{String.valueOf(profileId)});
+        while (c.moveToNext()) {
+            sampler.load(c.getInt(0), c.getInt(1), c.getInt(2), c.getInt(3),
+                    c.isNull(4) ? QuestSampler.NEVER : c.getLong(4), c.getInt(5), c.getInt(6));
+        }
+        c.close();
+
+        return sampler;
+    }
+
+    /**
+     * Quest ids already drawn for a mood on a given day, in slot order
+     */
+    private int[] getSessionQuestIds(long profileId, String date, String mood) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = query(db,
+                SQL_SESSION_QUEST_IDS,
+                new String[]{String.valueOf(profileId), date, mood}
         );
 
+        int[] ids = new int[c.getCount()];
+        int n = 0;
+        while (c.moveToNext()) {
+            ids[n++] = c.getInt(0);
+        }
+        c.close();
+        return ids;
+    }
+
+    /**
+     * How many quests were already drawn for a mood on a given day
+     * (slots keep counting up across sessions, so MAX(slot) + 1)
+     */
+    private int getNextSessionSlot(long profileId, String date, String mood) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = query(db,
+                SQL_NEXT_SESSION_SLOT,
+                new String[]{String.valueOf(profileId), date, mood}
+        );
+
+        int slot = c.moveToFirst() ? c.getInt(0) : 0;
+        c.close();
+        return slot;
+    }
+
+    /**
+     * Load the active session for a mood on a given day, in slot order
+     */
+    private List<Quest> loadCurrentSession(long profileId, String date, String mood) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = query(db,
+                SQL_CURRENT_SESSION_QUESTS,
+                new String[]{String.valueOf(profileId), date, mood}
+        );
+
+        return readQuests(c, mood);
+    }
+
+    /**
+     * Turn quest rows (id, title, description, reward, timer, progress, rewarded) into Quests.
+     * A null mood means the rows carry their own mood as an 8th column.
+     */
+    private List<Quest> readQuests(Cursor c, String mood) {
+        List<Quest> quests = new ArrayList<>();
+
         while (c.moveToNext()) {
             int id = c.getInt(0);
             String title = c.getString(1);
@@ -424,7 +1287,9 @@ public class DatabaseManager {
             int progress = c.getInt(5);
             int rewarded = c.getInt(6);
 
-            Quest quest = new Quest(id, title, description, reward, mood, timerMinutes);
+            String questMood = mood != null ? mood : c.getString(7);
+
+            Quest quest = new Quest(id, title, description, reward, questMood, timerMinutes);
             quest.setProgress(progress);
             quest.setRewarded(rewarded == 1);
 
@@ -437,93 +1302,51 @@ public class DatabaseManager {
 
     /**
      * Save current quest session WITH DATE
+     * The new rows also become part of today's used history for the mood.
+     * Slots continue from firstSlot so every draw of the day keeps its rows.
      */
-    private void saveCurrentQuestSession(String mood, List<Quest> quests, String date) {
-        StringBuilder ids = new StringBuilder();
-        for (int i = 0; i < quests.size(); i++) {
-            ids.append(quests.get(i).getId());
-            if (i < quests.size() - 1) {
-                ids.append(",");
-            }
-        }
-
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit()
-                .putString(KEY_CURRENT_MOOD, mood)
-                .putString(KEY_CURRENT_QUEST_IDS, ids.toString())
-                .putString(KEY_QUEST_DATE, date)
-                .apply();
-
-        android.util.Log.d("DatabaseManager", "Saved quest session: mood=" + mood + ", ids=" + ids.toString() + ", date=" + date);
-    }
+    private void saveCurrentQuestSession(long profileId, String mood, int[] questIds, int firstSlot, String date) {
+        SQLiteDatabase db = helper.getWritableDatabase();
 
-    /**
-     * Add quest IDs to used history for a mood TODAY
-     */
-    private void addToUsedQuests(String mood, List<Quest> quests) {
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String key = KEY_USED_QUEST_IDS + "_" + mood;
-        String existingIds = prefs.getString(key, "");
+        // Only one session is active at a time
+        execute(db, SQL_DEACTIVATE_SESSION, new Object[]{profileId});
 
-        StringBuilder newIds = new StringBuilder(existingIds);
-        for (Quest quest : quests) {
-            if (newIds.length() > 0) {
-                newIds.append(",");
-            }
-            newIds.append(quest.getId());
+        for (int i = 0; i < questIds.length; i++) {
+            execute(db, SQL_INSERT_SESSION_QUEST, new Object[]{profileId, date, mood, questIds[i], firstSlot + i});
         }
 
-        prefs.edit().putString(key, newIds.toString()).apply();
-        android.util.Log.d("DatabaseManager", "Added to used quests for " + mood + " today: " + newIds.toString());
-    }
-
-    /**
-     * Clear used quests for a specific mood
-     */
-    private void clearUsedQuestsForMood(String mood) {
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String key = KEY_USED_QUEST_IDS + "_" + mood;
-        prefs.edit().remove(key).apply();
-        android.util.Log.d("DatabaseManager", "Cleared used quest history for " + mood);
+        android.util.Log.d("DatabaseManager", "Saved quest session: mood=" + mood + ", count=" + questIds.length + ", date=" + date);
     }
 
     /**
      * Clear current quest session (call after completing all 5)
      */
     public void clearCurrentQuestSession() {
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit()
-                .remove(KEY_CURRENT_MOOD)
-                .remove(KEY_CURRENT_QUEST_IDS)
-                .apply();
+        SQLiteDatabase db = helper.getWritableDatabase();
+        execute(db, SQL_DEACTIVATE_SESSION, new Object[]{profile().id});
 
         android.util.Log.d("DatabaseManager", "Cleared quest session");
     }
 
     /**
-     * Clear ALL quest history (called on new day or reset)
+     * Clear ALL quest history of the active profile (called on new day or reset)
      */
     public void clearAllQuestHistory() {
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
+        // Clear used quest IDs for all moods and the current session
+        ProfileState profile = profile();
+        SQLiteDatabase db = helper.getWritableDatabase();
+        execute(db, SQL_DELETE_ALL_SESSIONS, new Object[]{profile.id});
+        execute(db, SQL_DELETE_ALL_PLANS, new Object[]{profile.id});
 
-        // Clear used quest IDs for all moods
-        editor.remove(KEY_USED_QUEST_IDS + "_neutral");
-        editor.remove(KEY_USED_QUEST_IDS + "_happy");
-        editor.remove(KEY_USED_QUEST_IDS + "_sad");
-        editor.remove(KEY_USED_QUEST_IDS + "_angry");
-        editor.remove(KEY_USED_QUEST_IDS + "_anxious");
+        AppStateStore.Editor editor = AppStateStore.get(appContext).edit();
 
-        // Clear current session
-        editor.remove(KEY_CURRENT_MOOD);
-        editor.remove(KEY_CURRENT_QUEST_IDS);
-        editor.remove(KEY_QUEST_DATE);
+        editor.remove(profile.questDateKey);
 
         // Clear happy quest date (reset daily) - LEGACY
-        editor.remove(KEY_HAPPY_QUEST_DATE);
+        editor.remove(profile.happyQuestDateKey);
 
         // Clear first quest completion flag (reset daily)
-        editor.remove(KEY_FIRST_QUEST_COMPLETED);
+        editor.remove(profile.firstQuestCompletedKey);
 
         editor.apply();
         android.util.Log.d("DatabaseManager", "Cleared all quest history");
@@ -533,31 +1356,109 @@ public class DatabaseManager {
      * Check if all current quests are complete
      */
     public boolean areAllCurrentQuestsComplete() {
-        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String savedIds = prefs.getString(KEY_CURRENT_QUEST_IDS, "");
-
-        if (savedIds.isEmpty()) {
-            return false;
-        }
+        importLegacyQuestSession();
 
         SQLiteDatabase db = helper.getReadableDatabase();
 
-        Cursor c = db.rawQuery(
-                "SELECT COUNT(*) FROM quest WHERE id IN (" + savedIds + ") AND progress >= 100",
-                null
-        );
+        Cursor c = query(db, SQL_CURRENT_SESSION_PROGRESS, new String[]{String.valueOf(profile().id)});
 
+        int totalCount = 0;
         int completedCount = 0;
         if (c.moveToFirst()) {
-            completedCount = c.getInt(0);
+            totalCount = c.getInt(0);
+            completedCount = c.getInt(1);
         }
         c.close();
 
-        // Count total quests in session
-        String[] idArray = savedIds.split(",");
-        int totalCount = idArray.length;
+        return totalCount > 0 && completedCount == totalCount;
+    }
 
-        return completedCount == totalCount;
+    /**
+     * One-time import of the comma-joined id lists that older versions
+     * kept in SharedPreferences (current session + used ids per mood),
+     * which LegacyPrefsImporter carried over into AppStateStore.
+     * They belong to profile 1, the only one back then (the plain keys
+     * and profile_id's default).
+     */
+    private void importLegacyQuestSession() {
+        if (legacySessionImported) return;
+
+        synchronized (this) {
+            if (legacySessionImported) return;
+
+            AppStateStore store = AppStateStore.get(appContext);
+            String date = store.get(KEY_QUEST_DATE);
+            String[] moods = {"neutral", "happy", "sad", "angry", "anxious"};
+
+            boolean hasLegacyIds = store.contains(KEY_CURRENT_QUEST_IDS) || hasLegacyUsedIds(store, moods);
+
+            if (hasLegacyIds) {
+                // Ids without a date can't be placed on a day - just drop them
+                if (!date.isEmpty()) {
+                    SQLiteDatabase db = helper.getWritableDatabase();
+                    // SELECT ... FROM quest skips ids that no longer exist
+                    // (they would fail the quest_session foreign key)
+                    db.beginTransaction();
+                    try {
+                        for (String mood : moods) {
+                            String[] used = store.get(usedQuestIdsKey(mood)).split(",");
+                            for (int slot = 0; slot < used.length; slot++) {
+                                if (used[slot].isEmpty()) continue;
+                                execute(
+                                        db,
+                                        "INSERT OR IGNORE INTO quest_session(date, mood, quest_id, slot, active) " +
+                                                "SELECT ?, ?, id, ?, 0 FROM quest WHERE id=?",
+                                        new Object[]{date, mood, slot, Integer.parseInt(used[slot].trim())}
+                                );
+                            }
+                        }
+
+                        String mood = store.get(KEY_CURRENT_MOOD);
+                        String[] current = store.get(KEY_CURRENT_QUEST_IDS).split(",");
+                        if (!mood.isEmpty()) {
+                            for (int slot = 0; slot < current.length; slot++) {
+                                if (current[slot].isEmpty()) continue;
+                                execute(
+                                        db,
+                                        "INSERT OR REPLACE INTO quest_session(date, mood, quest_id, slot, active) " +
+                                                "SELECT ?, ?, id, ?, 1 FROM quest WHERE id=?",
+                                        new Object[]{date, mood, slot, Integer.parseInt(current[slot].trim())}
+                                );
+                            }
+                        }
+
+                        db.setTransactionSuccessful();
+                    } catch (NumberFormatException e) {
+                        android.util.Log.e("DatabaseManager", "Skipping malformed legacy quest ids: " + e.getMessage());
+                    } finally {
+                        db.endTransaction();
+                    }
+                }
+
+                AppStateStore.Editor editor = store.edit()
+                        .remove(KEY_CURRENT_MOOD)
+                        .remove(KEY_CURRENT_QUEST_IDS);
+                for (String mood : moods) {
+                    editor.remove(usedQuestIdsKey(mood));
+                }
+                editor.apply();
+
+                android.util.Log.d("DatabaseManager", "Imported legacy quest session ids for " + date);
+            }
+
+            legacySessionImported = true;
+        }
+    }
+
+    private boolean hasLegacyUsedIds(AppStateStore store, String[] moods) {
+        for (String mood : moods) {
+            if (store.contains(usedQuestIdsKey(mood))) return true;
+        }
+        return false;
+    }
+
+    private static AppStateStore.Key<String> usedQuestIdsKey(String mood) {
+        return AppStateStore.stringKey(KEY_USED_QUEST_IDS + "_" + mood, "");
     }
 
     /**
@@ -578,12 +1479,11 @@ public class DatabaseManager {
      * Get progress of a specific quest
      */
     public int getQuestProgress(int questId) {
-
         SQLiteDatabase db = helper.getReadableDatabase();
 
-        Cursor c = db.rawQuery(
-                "SELECT progress FROM quest WHERE id=?",
-                new String[]{String.valueOf(questId)}
+        Cursor c = query(db,
+                SQL_QUEST_PROGRESS,
+                new String[]{String.valueOf(profile().id), String.valueOf(questId)}
         );
 
         int progress = 0;
@@ -598,28 +1498,170 @@ public class DatabaseManager {
     }
 
     /**
-     * Update quest progress
+     * Add the profile's quest_progress row if it has none yet
+     * (caller holds the transaction that updates it)
+     */
+    private void ensureQuestProgress(long profileId, int questId) {
+        execute(helper.getWritableDatabase(), SQL_ENSURE_QUEST_PROGRESS, new Object[]{profileId, questId});
+    }
+
+    /**
+     * Complete a quest in ONE transaction:
+     * - progress = 100 and rewarded = 1
+     * - reward coins added (only if not rewarded before)
+     * - a quest_completion row (every time, with the last mood logged and
+     *   durationMs, or -1 if unknown)
+     * - the streak checkpoint moved on (first completion of a day)
+     * - the quest's completed counter for weighted draws
+     * - session completion checked before commit; a finished session is
+     *   cleared and today's first-quest flag set
+     * An id that isn't in the catalog changes nothing (isKnownQuest() is false).
      */
-    public void updateQuestProgress(int questId, int progress) {
+    public synchronized QuestCompletion completeQuest(int questId, long durationMs) {
+        // Snapshot first so a cold cache doesn't load the already-updated row
+        ProfileState profile = profile();
+        UserState state = getUserState(profile);
+        StreakTracker streak = getStreak(profile);
+        StreakTracker nextStreak = streak;
+        QuestSampler sampler = getQuestSampler(profile);
+        long now = AppClock.get().now();
 
         SQLiteDatabase db = helper.getWritableDatabase();
 
-        db.execSQL(
-                "UPDATE quest SET progress=? WHERE id=?",
-                new Object[]{progress, questId}
-        );
+        int coinsAwarded = 0;
+        boolean sessionComplete;
+
+        db.beginTransaction();
+        try {
+            Cursor c = query(db,
+                    SQL_QUEST_REWARD_STATE,
+                    new String[]{String.valueOf(profile.id), String.valueOf(questId)}
+            );
+
+            if (!c.moveToFirst()) {
+                // No such quest - its progress row would break the foreign key.
+                // Not marked successful, so nothing is written.
+                c.close();
+                android.util.Log.w("DatabaseManager", "completeQuest: no quest " + questId);
+                return QuestCompletion.unknownQuest(questId, state.getCoins(),
+                        streak.getCurrent(AppClock.get().today()));
+            }
+
+            int reward = c.getInt(0);
+            boolean alreadyRewarded = c.getInt(1) == 1;
+
+            c.close();
+
+            ensureQuestProgress(profile.id, questId);
+            execute(db, SQL_COMPLETE_QUEST, new Object[]{profile.id, questId});
+
+            // Never pay twice for the same quest
+            if (!alreadyRewarded && reward > 0) {
+                execute(db, SQL_ADD_COINS, new Object[]{reward, profile.id});
+                appendLedger(profile.id, reward, LEDGER_QUEST, questId);
+                coinsAwarded = reward;
+            }
+
+            c = query(db, SQL_LATEST_MOOD, new String[]{String.valueOf(profile.id)});
+            int mood = c.moveToFirst() ? c.getInt(0) : 0;
+            c.close();
+
+            execute(db, SQL_ADD_QUEST_COMPLETION, new Object[]{profile.id, questId, coinsAwarded, now,
+                    mood > 0 ? mood : null, durationMs >= 0 ? durationMs : null});
+
+            // Only the day's first completion moves the checkpoint
+            nextStreak = streak.record(AppClock.get().epochDayOf(now));
+            if (nextStreak != streak) {
+                execute(db, SQL_SAVE_STREAK, new Object[]{profile.id,
+                        nextStreak.getLastDay(), nextStreak.getStoredCurrent(), nextStreak.getBest()});
+            }
+
+            addQuestStat(SQL_ADD_QUEST_COMPLETED, profile.id, questId);
+
+            sessionComplete = areAllCurrentQuestsComplete();
+            if (sessionComplete) {
+                execute(db, SQL_DEACTIVATE_SESSION, new Object[]{profile.id});
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        UserState updated = state.withCoins(state.getCoins() + coinsAwarded);
+        profile.user = updated;
+        profile.streak = nextStreak;
+        sampler.recordCompleted(questId);
+
+        // The flag only moves once the cleared session is committed
+        if (sessionComplete) {
+            AppStateStore.get(appContext).put(profile.firstQuestCompletedKey, getTodayDate());
+        }
+
+        int streakDays = nextStreak.getCurrent(AppClock.get().today());
+
+        android.util.Log.d("DatabaseManager", "Completed quest " + questId + ": +" + coinsAwarded + " coins, streak=" + streakDays + ", sessionComplete=" + sessionComplete);
+
+        return new QuestCompletion(questId, coinsAwarded, updated.getCoins(), streakDays, sessionComplete);
+    }
+
+    /**
+     * The quest's timer was started and the quest left before it was
+     * completed - counts against it in later draws
+     */
+    public synchronized void recordQuestAbandoned(int questId) {
+        ProfileState profile = profile();
+        QuestSampler sampler = getQuestSampler(profile);
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            addQuestStat(SQL_ADD_QUEST_ABANDONED, profile.id, questId);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        sampler.recordAbandoned(questId);
+    }
+
+    /**
+     * The active profile's quest streak, from memory after the first read
+     */
+    public StreakTracker getStreak() {
+        return getStreak(profile());
+    }
+
+    private StreakTracker getStreak(ProfileState profile) {
+        StreakTracker streak = profile.streak;
+
+        if (streak == null) {
+            synchronized (this) {
+                if (profile.streak == null) {
+                    SQLiteDatabase db = helper.getReadableDatabase();
+                    Cursor c = query(db, SQL_QUEST_STREAK, new String[]{String.valueOf(profile.id)});
+
+                    profile.streak = c.moveToFirst()
+                            ? new StreakTracker(c.getLong(0), c.getInt(1), c.getInt(2))
+                            : StreakTracker.empty();
+                    c.close();
+                }
+                streak = profile.streak;
+            }
+        }
+
+        return streak;
     }
 
     /**
      * Check if quest is rewarded
      */
     public boolean isQuestRewarded(int questId) {
-
         SQLiteDatabase db = helper.getReadableDatabase();
 
-        Cursor c = db.rawQuery(
-                "SELECT rewarded FROM quest WHERE id=?",
-                new String[]{String.valueOf(questId)}
+        Cursor c = query(db,
+                SQL_QUEST_REWARDED,
+                new String[]{String.valueOf(profile().id), String.valueOf(questId)}
         );
 
         boolean rewarded = false;
@@ -633,29 +1675,15 @@ public class DatabaseManager {
         return rewarded;
     }
 
-    /**
-     * Mark quest as rewarded
-     */
-    public void markQuestRewarded(int questId) {
-
-        SQLiteDatabase db = helper.getWritableDatabase();
-
-        db.execSQL(
-                "UPDATE quest SET rewarded=1 WHERE id=?",
-                new Object[]{questId}
-        );
-    }
-
     /**
      * Get completed quest count for a mood
      */
     public int getCompletedQuestCountForMood(String mood) {
-
         SQLiteDatabase db = helper.getReadableDatabase();
 
-        Cursor c = db.rawQuery(
-                "SELECT COUNT(*) FROM quest WHERE mood=? AND progress>=100",
-                new String[]{mood}
+        Cursor c = query(db,
+                SQL_COUNT_COMPLETED_FOR_MOOD,
+                new String[]{String.valueOf(profile().id), mood}
         );
 
         int count = 0;
@@ -678,59 +1706,337 @@ public class DatabaseManager {
     }
 
     /**
-     * Reset all quest progress (for testing)
+     * TESTING ONLY - close and delete the database file
      */
-    public void resetAllQuestProgressForTesting() {
+    public synchronized void deleteDatabaseForTesting() {
+        helper.close();
+        boolean deleted = appContext.deleteDatabase(DatabaseHelper.DB_NAME);
+        android.util.Log.d("DatabaseManager", "Database deleted: " + deleted);
+
+        // Everything cached came from the deleted file; the helper reopens
+        // (and recreates) the database on the next query, with profile 1 only
+        synchronized (profiles) {
+            profiles.clear();
+            activeProfile = null;
+        }
+        legacySessionImported = false;
+    }
 
+    /**
+     * Reset the active profile's quest progress (for testing)
+     */
+    public void resetAllQuestProgressForTesting() {
         SQLiteDatabase db = helper.getWritableDatabase();
 
-        db.execSQL("UPDATE quest SET progress=0, rewarded=0");
+        execute(db, SQL_RESET_QUEST_PROGRESS, new Object[]{profile().id});
     }
 
-    // ================= CUSTOMIZATION =================
+    // ================= QUEST SEARCH =================
 
     /**
-     * Check if user has customized their pet
+     * Search every quest in the catalog (not just today's session) for
+     * QuestSearchActivity, best match first. Blank text finds nothing -
+     * browse with getQuestCatalogPage instead.
      */
-    public boolean hasCustomized() {
+    public List<QuestSearchResult> searchQuests(String text) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        String match = QuestSearchQuery.toMatchExpression(text);
+        if (match == null) {
+            return new ArrayList<>();
+        }
 
-        SharedPreferences prefs = appContext.getSharedPreferences(
-                PREFS_NAME,
-                Context.MODE_PRIVATE
+        // Rank from the index alone (docid + matchinfo, no quest rows or
+        // snippets), keeping only the best SEARCH_RESULT_LIMIT
+        PriorityQueue<double[]> best = new PriorityQueue<>(
+                SEARCH_RESULT_LIMIT + 1, (a, b) -> Double.compare(a[0], b[0]));
+        Cursor c = query(db, SQL_SEARCH_QUEST_RANKS, new String[]{match});
+        try {
+            while (c.moveToNext()) {
+                best.add(new double[]{QuestSearchQuery.score(c.getBlob(1)), c.getInt(0)});
+                if (best.size() > SEARCH_RESULT_LIMIT) {
+                    best.poll(); // drop the weakest
+                }
+            }
+        } finally {
+            c.close();
+        }
+
+        if (best.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Weakest first out of the heap - fill the list from the back
+        int[] ids = new int[best.size()];
+        double[] scores = new double[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            double[] ranked = best.poll();
+            scores[i] = ranked[0];
+            ids[i] = (int) ranked[1];
+        }
+
+        // Now the rows and snippets, for the shown results only
+        StringBuilder sql = new StringBuilder(SQL_SEARCH_QUEST_ROWS_FOR_IDS);
+        Map<Integer, Integer> rankById = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            sql.append(i == 0 ? "" : ",").append(ids[i]);
+            rankById.put(ids[i], i);
+        }
+        sql.append(')');
+
+        QuestSearchResult[] results = new QuestSearchResult[ids.length];
+        c = query(db, sql.toString(), new String[]{String.valueOf(profile().id), match});
+        try {
+            while (c.moveToNext()) {
+                int rank = rankById.get(c.getInt(0));
+
+                Quest quest = new Quest(c.getInt(0), c.getString(1), c.getString(2),
+                        c.getInt(3), c.getString(7), c.getInt(4));
+                quest.setProgress(c.getInt(5));
+                quest.setRewarded(c.getInt(6) == 1);
+
+                results[rank] = new QuestSearchResult(quest, c.getString(8), c.getString(9), scores[rank]);
+            }
+        } finally {
+            c.close();
+        }
+
+        List<QuestSearchResult> found = new ArrayList<>(results.length);
+        for (QuestSearchResult result : results) {
+            if (result != null) {
+                found.add(result);
+            }
+        }
+        return found;
+    }
+
+    // ================= PAGED LISTS =================
+
+    /**
+     * Up to limit quests in catalog (id) order, starting after afterId
+     * (0 for the first page). Pass the last id of one page to get the next.
+     */
+    public List<Quest> getQuestCatalogPage(int afterId, int limit) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = query(db,
+                SQL_QUEST_CATALOG_PAGE,
+                new String[]{String.valueOf(profile().id), String.valueOf(afterId), String.valueOf(limit)}
+        );
+
+        List<Quest> page = readQuests(c, null);
+        return page;
+    }
+
+    /**
+     * Up to limit quests the active profile completed, newest first, older than beforeId
+     * (Long.MAX_VALUE for the first page). Pass the last entry's id of
+     * one page to get the next.
+     */
+    public List<QuestHistoryEntry> getQuestHistoryPage(long beforeId, int limit) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = query(db,
+                SQL_QUEST_HISTORY_PAGE,
+                new String[]{String.valueOf(profile().id), String.valueOf(beforeId), String.valueOf(limit)}
         );
 
-        return prefs.getBoolean(KEY_HAS_CUSTOMIZED, false);
+        List<QuestHistoryEntry> page = new ArrayList<>(limit);
+        try {
+            while (c.moveToNext()) {
+                page.add(new QuestHistoryEntry(
+                        c.getLong(0),
+                        c.getInt(1),
+                        c.getString(2),
+                        c.getString(3),
+                        c.getInt(4),
+                        c.isNull(5) ? QuestHistoryEntry.UNKNOWN_TIME : c.getLong(5)
+                ));
+            }
+        } finally {
+            c.close();
+        }
+
+        return page;
+    }
+
+    // ================= CUSTOMIZATION =================
+
+    /**
+     * Check if user has customized their pet
+     */
+    public boolean hasCustomized() {
+        return AppStateStore.get(appContext).get(profile().hasCustomizedKey);
     }
 
     /**
      * Mark user as having customized
      */
     public void setHasCustomized(boolean hasCustomized) {
+        AppStateStore.get(appContext).put(profile().hasCustomizedKey, hasCustomized);
+    }
 
-        SharedPreferences prefs = appContext.getSharedPreferences(
-                PREFS_NAME,
-                Context.MODE_PRIVATE
-        );
+    // ================= WARDROBE (profile_item table) =================
 
-        prefs.edit()
-                .putBoolean(KEY_HAS_CUSTOMIZED, hasCustomized)
-                .apply();
+    /**
+     * The active profile's owned and equipped items. One indexed query
+     * the first time, then from memory (kept in step with every write below).
+     */
+    public Wardrobe getWardrobe() {
+        return getWardrobe(profile());
+    }
+
+    private Wardrobe getWardrobe(ProfileState profile) {
+        Wardrobe current = profile.wardrobe;
+        if (current != null) return current;
+
+        synchronized (wardrobeLock) {
+            if (profile.wardrobe == null) {
+                if (profile.id == DatabaseHelper.FIRST_PROFILE_ID) {
+                    importLegacyWardrobe();
+                }
+                profile.wardrobe = loadWardrobe(profile.id);
+            }
+            return profile.wardrobe;
+        }
+    }
+
+    private Wardrobe loadWardrobe(long profileId) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        Cursor c = query(db, SQL_WARDROBE, new String[]{String.valueOf(profileId)});
+
+        Wardrobe loaded = Wardrobe.empty();
+        while (c.moveToNext()) {
+            int ordinal = c.getInt(0);
+            if (ordinal >= ItemRegistry.size()) continue; // row from a newer build
+
+            loaded = loaded.withOwned(ordinal);
+            if (c.getInt(1) == 1) {
+                loaded = loaded.withEquipped(ItemRegistry.get(ordinal).type, ordinal);
+            }
+        }
+
+        c.close();
+        return loaded;
+    }
+
+    /**
+     * Equip an owned item in its type's slot, or clear the slot (ordinal -1).
+     * One transaction: the old item's flag is cleared and the new one set.
+     * An item the profile doesn't own changes nothing (returns false).
+     */
+    public boolean equipItem(String type, int ordinal) {
+        synchronized (wardrobeLock) {
+            ProfileState profile = profile();
+            Wardrobe current = getWardrobe(profile);
+
+            if (ordinal >= 0 && !current.isOwned(ordinal)) {
+                android.util.Log.w("DatabaseManager", "Not equipping item " + ordinal + " - not owned");
+                return false;
+            }
+
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                execute(db, SQL_UNEQUIP_TYPE, new Object[]{profile.id, type});
+
+                if (ordinal >= 0) {
+                    int updated = executeUpdateDelete(db, SQL_EQUIP_ITEM, profile.id, ordinal);
+                    if (updated == 0) {
+                        // Not owned after all - the unequip rolls back too
+                        return false;
+                    }
+                }
+
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            profile.wardrobe = current.withEquipped(type, ordinal);
+            return true;
+        }
+    }
+
+    /**
+     * One-time move of the inventory bits / drawable id set and the
+     * equipped drawable ids that older versions kept in AppStateStore
+     * (all profile 1's - there were no other profiles then)
+     */
+    private void importLegacyWardrobe() {
+        AppStateStore store = AppStateStore.get(appContext);
+
+        // Was one int per type: outfit.top, outfit.bottom, ...
+        List<AppStateStore.Key<Integer>> outfitKeys = new ArrayList<>();
+        for (String type : ItemRegistry.TYPES) {
+            outfitKeys.add(AppStateStore.intKey(OutfitManager.KEY_PREFIX + type, 0));
+        }
+
+        boolean hasLegacy = store.contains(KEY_LEGACY_OWNED_BITS) || store.contains(KEY_LEGACY_OWNED_ITEMS);
+        for (AppStateStore.Key<Integer> key : outfitKeys) {
+            hasLegacy |= store.contains(key);
+        }
+        if (!hasLegacy) return;
+
+        long owned = store.get(KEY_LEGACY_OWNED_BITS);
+        for (String id : store.get(KEY_LEGACY_OWNED_ITEMS)) {
+            try {
+                int ordinal = ItemRegistry.ordinalOf(Integer.parseInt(id));
+                if (ordinal >= 0) owned |= 1L << ordinal;
+            } catch (NumberFormatException e) {
+                android.util.Log.w("DatabaseManager", "Skipping malformed item id " + id);
+            }
+        }
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int ordinal = 0; ordinal < ItemRegistry.size(); ordinal++) {
+                if ((owned & (1L << ordinal)) != 0) {
+                    execute(db, SQL_MARK_OWNED, new Object[]{DatabaseHelper.FIRST_PROFILE_ID, ordinal});
+                }
+            }
+
+            // Equipped drawables from the same build resolve to their items;
+            // anything wearable was owned, so it's marked owned as well
+            for (AppStateStore.Key<Integer> key : outfitKeys) {
+                int ordinal = ItemRegistry.ordinalOf(store.get(key));
+                if (ordinal < 0) continue;
+
+                String type = ItemRegistry.get(ordinal).type;
+                execute(db, SQL_MARK_OWNED, new Object[]{DatabaseHelper.FIRST_PROFILE_ID, ordinal});
+                execute(db, SQL_UNEQUIP_TYPE, new Object[]{DatabaseHelper.FIRST_PROFILE_ID, type});
+                execute(db, SQL_EQUIP_ITEM, new Object[]{DatabaseHelper.FIRST_PROFILE_ID, ordinal});
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        AppStateStore.Editor editor = store.edit()
+                .remove(KEY_LEGACY_OWNED_BITS)
+                .remove(KEY_LEGACY_OWNED_ITEMS);
+        for (AppStateStore.Key<Integer> key : outfitKeys) {
+            editor.remove(key);
+        }
+        editor.apply();
+
+        android.util.Log.d("DatabaseManager", "Imported inventory and outfit into profile_item table");
     }
 
     // ================= ACCESSORY RESET =================
 
     /**
-     * Reset all accessories to unowned and unequipped (for testing)
+     * Reset the active profile's accessories to the starting state: only
+     * free items owned, nothing equipped (for testing)
      */
     public void resetAllAccessories() {
-        try {
-            SQLiteDatabase db = helper.getWritableDatabase();
+        synchronized (wardrobeLock) {
+            ProfileState profile = profile();
+            resetItems(SQL_RESET_ALL_ITEMS, new Object[]{profile.id});
 
-            // Reset all accessories to not owned and not equipped
-            db.execSQL("UPDATE accessory SET owned=0, equipped=0");
-        } catch (Exception e) {
-            // Table doesn't exist yet, ignore
-            android.util.Log.d("DatabaseManager", "Accessory table not found: " + e.getMessage());
+            profile.wardrobe = null; // Reloaded on next read
         }
     }
 
@@ -738,85 +2044,127 @@ public class DatabaseManager {
      * Reset specific accessory category (top, bottom, hat, glasses)
      */
     public void resetAccessoryCategory(String category) {
-        try {
-            SQLiteDatabase db = helper.getWritableDatabase();
+        synchronized (wardrobeLock) {
+            ProfileState profile = profile();
+            resetItems(SQL_RESET_ITEM_CATEGORY, new Object[]{profile.id, category});
 
-            db.execSQL(
-                    "UPDATE accessory SET owned=0, equipped=0 WHERE type=?",
-                    new String[]{category}
-            );
-        } catch (Exception e) {
-            // Table doesn't exist yet, ignore
-            android.util.Log.d("DatabaseManager", "Accessory table not found: " + e.getMessage());
+            profile.wardrobe = null; // Reloaded on next read
+        }
+    }
+
+    /**
+     * Delete profile_item rows, then hand the free items back (bind: profile first)
+     */
+    private void resetItems(String deleteSql, Object[] args) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            execute(db, deleteSql, args);
+            execute(db, DatabaseHelper.SQL_GIVE_FREE_ITEMS_TO_PROFILE, new Object[]{args[0]});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
     }
 
-    // ================= RESET INVENTORY & OUTFIT (SharedPreferences) =================
+    // ================= RESET INVENTORY & OUTFIT =================
 
     /**
-     * Reset all inventory and outfit data stored in SharedPreferences (for testing)
-     * This clears InventoryManager and OutfitManager data
+     * Reset all inventory and outfit data (for testing)
+     * Same as resetAllAccessories - both live in the profile_item table now
      */
     public void resetInventoryAndOutfit() {
-        android.util.Log.d("DatabaseManager", "========== STARTING RESET ==========");
+        resetAllAccessories();
 
-        // Reset InventoryManager (items owned) - "inventory_data"
-        try {
-            SharedPreferences invPrefs = appContext.getSharedPreferences("inventory_data", Context.MODE_PRIVATE);
-            boolean cleared = invPrefs.edit().clear().commit(); // Use commit() to ensure it's immediate
-            android.util.Log.d("DatabaseManager", "InventoryManager cleared: " + cleared);
+        android.util.Log.d("DatabaseManager", "Inventory and outfit reset");
+    }
 
-            // Verify it's empty
-            int remaining = invPrefs.getAll().size();
-            android.util.Log.d("DatabaseManager", "Inventory items remaining: " + remaining);
-        } catch (Exception e) {
-            android.util.Log.e("DatabaseManager", "Error clearing InventoryManager: " + e.getMessage());
-        }
+    /**
+     * Nuclear option: Clear ALL saved app state (for testing)
+     */
+    public void resetAllAppState() {
+        android.util.Log.d("DatabaseManager", "========== CLEARING ALL APP STATE ==========");
 
-        // Reset OutfitManager (items equipped) - "outfit_data"
-        try {
-            SharedPreferences outfitPrefs = appContext.getSharedPreferences("outfit_data", Context.MODE_PRIVATE);
-            boolean cleared = outfitPrefs.edit().clear().commit(); // Use commit() to ensure it's immediate
-            android.util.Log.d("DatabaseManager", "OutfitManager cleared: " + cleared);
+        AppStateStore.get(appContext).edit().clear().apply();
 
-            // Verify it's empty
-            int remaining = outfitPrefs.getAll().size();
-            android.util.Log.d("DatabaseManager", "Outfit items remaining: " + remaining);
-        } catch (Exception e) {
-            android.util.Log.e("DatabaseManager", "Error clearing OutfitManager: " + e.getMessage());
-        }
+        // Also clear quest session and history
+        clearCurrentQuestSession();
+        clearAllQuestHistory();
 
-        android.util.Log.d("DatabaseManager", "========== RESET COMPLETE ==========");
+        android.util.Log.d("DatabaseManager", "========== ALL APP STATE CLEARED ==========");
     }
 
+
+    // ================= BACKUP =================
+
     /**
-     * Nuclear option: Clear ALL SharedPreferences (for testing)
+     * Write the active companion's pet, coins, items, quest progress, quest
+     * history and mood history to a backup file (see CompanionBackup). The
+     * rows are read in one transaction, so the file is a consistent snapshot.
      */
-    public void resetAllSharedPreferences() {
-        android.util.Log.d("DatabaseManager", "========== CLEARING ALL SHAREDPREFS ==========");
+    public synchronized void exportBackup(OutputStream out) throws IOException {
+        ProfileState profile = profile();
+        String petName = NameManager.getName(appContext);
+        boolean customized = AppStateStore.get(appContext).get(profile.hasCustomizedKey);
 
-        String[] prefsNames = {
-                "inventory_data",
-                "outfit_data",
-                "virtual_companion_prefs",
-                "inventory_prefs",
-                "outfit_prefs"
-        };
+        synchronized (wardrobeLock) {
+            SQLiteDatabase db = helper.getWritableDatabase();
 
-        for (String name : prefsNames) {
+            // Nothing is written - the transaction only pins one snapshot
+            db.beginTransaction();
             try {
-                SharedPreferences prefs = appContext.getSharedPreferences(name, Context.MODE_PRIVATE);
-                boolean cleared = prefs.edit().clear().commit();
-                android.util.Log.d("DatabaseManager", "Cleared " + name + ": " + cleared);
-            } catch (Exception e) {
-                android.util.Log.e("DatabaseManager", "Error clearing " + name + ": " + e.getMessage());
+                CompanionBackup.Contents contents = CompanionBackup.write(db, profile.id, petName, customized, out);
+                QueryMetrics.rows(1 + contents.items + contents.quests + contents.moods + contents.completions);
+
+                android.util.Log.d("DatabaseManager", "Exported backup: " + contents.moods + " moods, "
+                        + contents.items + " items, " + contents.quests + " quests, "
+                        + contents.completions + " completions");
+            } finally {
+                db.endTransaction();
             }
         }
+    }
 
-        // Also clear quest session and history
-        clearCurrentQuestSession();
-        clearAllQuestHistory();
+    /**
+     * Replace the active companion with a backup, in one transaction: either
+     * all of it is restored or (bad file) nothing changes. Other profiles
+     * are left alone.
+     */
+    public synchronized void restoreBackup(InputStream in) throws IOException {
+        ProfileState profile = profile();
+        CompanionBackup.Contents contents;
+
+        synchronized (wardrobeLock) {
+            SQLiteDatabase db = helper.getWritableDatabase();
+
+            db.beginTransaction();
+            try {
+                contents = CompanionBackup.read(db, profile.id, in);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            profile.user = null;
+            profile.wardrobe = null;
+            profile.streak = null;
+            profile.sampler = null;
+        }
+
+        QueryMetrics.rows(1 + contents.items + contents.quests + contents.moods + contents.completions);
+
+        // Today's quest sessions were cleared - the next quest request rolls over
+        AppStateStore.get(appContext).edit()
+                .put(profile.hasCustomizedKey, contents.hasCustomized)
+                .remove(profile.questDateKey)
+                .remove(profile.firstQuestCompletedKey)
+                .remove(profile.happyQuestDateKey)
+                .apply();
+        if (contents.petName != null) {
+            NameManager.setName(appContext, contents.petName);
+        }
 
-        android.util.Log.d("DatabaseManager", "========== ALL PREFS CLEARED ==========");
+        android.util.Log.d("DatabaseManager", "Restored backup: " + contents.moods + " moods, "
+                + contents.items + " items, " + contents.quests + " quests");
     }
-}
\ No newline at end of file
+}
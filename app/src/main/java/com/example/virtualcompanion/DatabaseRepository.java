@@ -0,0 +1,287 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * DatabaseRepository
+ *
+ * Asynchronous front for DatabaseManager:
+ * - Runs every read and write on one background "db-io" thread
+ * - Delivers results back on the main thread
+ * - Keeps writes in submission order (single thread = serialized)
+ *
+ * DatabaseManager keeps its synchronous methods; this class only
+ * moves the calls off the UI thread. Each call is timed once under
+ * its name (QueryMetrics, debug builds). A call that throws is logged and
+ * the exception is rethrown on the main thread, so it crashes the app
+ * like the synchronous call would have instead of leaving a screen
+ * waiting for a callback that never comes.
+ */
+public class DatabaseRepository {
+
+    /**
+     * Receives a result on the main thread
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private static final String TAG = "DatabaseRepository";
+
+    // Singleton instance (one I/O thread for the whole app)
+    private static DatabaseRepository instance;
+
+    private final Context appContext;
+    private final DatabaseManager db;
+    private final ExecutorService ioExecutor;
+    private final Handler mainHandler;
+
+    // Private constructor
+    private DatabaseRepository(Context context) {
+        appContext = context;
+        db = DatabaseManager.get(context);
+        ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Get repository instance
+     */
+    public static synchronized DatabaseRepository get(Context c) {
+
+        if (instance == null) {
+            instance = new DatabaseRepository(c.getApplicationContext());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Direct access to the synchronous manager (for code already on the I/O thread)
+     */
+    public DatabaseManager getManager() {
+        return db;
+    }
+
+    // ================= GENERIC =================
+
+    /**
+     * Run a read on the I/O thread and post the result to the main thread
+     *
+     * @param method name the call is timed under
+     */
+    public <T> Future<T> query(String method, Callable<T> work, Callback<T> callback) {
+        return ioExecutor.submit(() -> {
+            T result;
+            try (QueryMetrics.Call call = QueryMetrics.begin(method)) {
+                result = work.call();
+            } catch (Throwable t) {
+                reportFailure(t);
+                throw t;
+            }
+            if (callback != null) {
+                mainHandler.post(() -> callback.onResult(result));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Run a write on the I/O thread, then optionally run onDone on the main thread
+     *
+     * @param method name the call is timed under
+     */
+    public Future<?> execute(String method, Runnable work, Runnable onDone) {
+        return ioExecutor.submit(() -> {
+            try (QueryMetrics.Call call = QueryMetrics.begin(method)) {
+                work.run();
+            } catch (Throwable t) {
+                reportFailure(t);
+                throw t;
+            }
+            if (onDone != null) {
+                mainHandler.post(onDone);
+            }
+        });
+    }
+
+    /**
+     * Log a failed call and rethrow it on the main thread (the Future
+     * holding it is rarely read, so it would otherwise vanish)
+     */
+    private void reportFailure(Throwable t) {
+        Log.e(TAG, "Database call failed on db-io", t);
+        mainHandler.post(() -> {
+            throw new IllegalStateException("Database call failed on db-io", t);
+        });
+    }
+
+    // ================= USER =================
+
+    public Future<Integer> getCoins(Callback<Integer> callback) {
+        return query("getCoins", db::getCoins, callback);
+    }
+
+    public Future<?> addCoins(int amount, Runnable onDone) {
+        return execute("addCoins", () -> db.addCoins(amount), onDone);
+    }
+
+    public Future<?> setName(String name, Runnable onDone) {
+        return execute("setName", () -> db.setName(name), onDone);
+    }
+
+    public Future<?> setGender(String gender, Runnable onDone) {
+        return execute("setGender", () -> db.setGender(gender), onDone);
+    }
+
+    public Future<?> setHasCustomized(boolean value, Runnable onDone) {
+        return execute("setHasCustomized", () -> db.setHasCustomized(value), onDone);
+    }
+
+    /**
+     * Buy a shop item (accessory id = ItemRegistry ordinal)
+     */
+    public Future<PurchaseResult> purchase(int itemId, Callback<PurchaseResult> callback) {
+        return query("purchase", () -> db.purchase(itemId), callback);
+    }
+
+    // ================= OUTFIT =================
+
+    /**
+     * Equip an owned item, or clear the slot with ordinal -1 (result: false
+     * if the item isn't owned - nothing changed)
+     */
+    public Future<Boolean> equipItem(String type, int ordinal, Callback<Boolean> callback) {
+        return query("equipItem", () -> db.equipItem(type, ordinal), callback);
+    }
+
+    // ================= PROFILES =================
+
+    public Future<List<UserState>> getProfiles(Callback<List<UserState>> callback) {
+        return query("getProfiles", db::getProfiles, callback);
+    }
+
+    /**
+     * Add a companion (result: its profile id; not switched to)
+     */
+    public Future<Long> createProfile(Callback<Long> callback) {
+        return query("createProfile", db::createProfile, callback);
+    }
+
+    /**
+     * Make a profile active (result: the screen to show for it)
+     */
+    public Future<StartupPipeline.Result> switchProfile(long profileId,
+                                                        Callback<StartupPipeline.Result> callback) {
+        return query("switchProfile", () -> {
+            db.switchProfile(profileId);
+            return StartupPipeline.nextScreen(db);
+        }, callback);
+    }
+
+    // ================= MOOD =================
+
+    public Future<?> saveMood(int value, Runnable onDone) {
+        return execute("saveMood", () -> db.saveMood(value), onDone);
+    }
+
+    public Future<Integer> getLatestMood(Callback<Integer> callback) {
+        return query("getLatestMood", db::getLatestMood, callback);
+    }
+
+    public Future<Boolean> hasSelectedMoodToday(Callback<Boolean> callback) {
+        return query("hasSelectedMoodToday", db::hasSelectedMoodToday, callback);
+    }
+
+    // ================= QUESTS =================
+
+    public Future<List<Quest>> getQuestsForMood(int moodIndex, Callback<List<Quest>> callback) {
+        return query("getQuestsForMood", () -> db.getQuestsForMood(moodIndex), callback);
+    }
+
+    /**
+     * durationMs: time from starting the quest timer to confirming, -1 if unknown
+     */
+    public Future<QuestCompletion> completeQuest(int questId, long durationMs, Callback<QuestCompletion> callback) {
+        return query("completeQuest", () -> db.completeQuest(questId, durationMs), callback);
+    }
+
+    public Future<?> recordQuestAbandoned(int questId, Runnable onDone) {
+        return execute("recordQuestAbandoned", () -> db.recordQuestAbandoned(questId), onDone);
+    }
+
+    public Future<StreakTracker> getStreak(Callback<StreakTracker> callback) {
+        return query("getStreak", db::getStreak, callback);
+    }
+
+    public Future<Boolean> areAllCurrentQuestsComplete(Callback<Boolean> callback) {
+        return query("areAllCurrentQuestsComplete", db::areAllCurrentQuestsComplete, callback);
+    }
+
+    public Future<List<Quest>> getQuestCatalogPage(int afterId, int limit, Callback<List<Quest>> callback) {
+        return query("getQuestCatalogPage", () -> db.getQuestCatalogPage(afterId, limit), callback);
+    }
+
+    public Future<List<QuestHistoryEntry>> getQuestHistoryPage(long beforeId, int limit,
+                                                              Callback<List<QuestHistoryEntry>> callback) {
+        return query("getQuestHistoryPage", () -> db.getQuestHistoryPage(beforeId, limit), callback);
+    }
+
+    /**
+     * Ranked catalog search; cancel the Future when the text changes again
+     */
+    public Future<List<QuestSearchResult>> searchQuests(String text, Callback<List<QuestSearchResult>> callback) {
+        return query("searchQuests", () -> db.searchQuests(text), callback);
+    }
+
+    // ================= BACKUP =================
+
+    /**
+     * Write a backup to a document the user picked (result: success)
+     */
+    public Future<Boolean> exportBackup(Uri target, Callback<Boolean> callback) {
+        return query("exportBackup", () -> {
+            try (OutputStream out = appContext.getContentResolver().openOutputStream(target)) {
+                if (out == null) return false;
+                db.exportBackup(out);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Backup failed: " + e.getMessage(), e);
+                return false;
+            }
+        }, callback);
+    }
+
+    /**
+     * Replace all companion data with a backup document (result: success)
+     */
+    public Future<Boolean> restoreBackup(Uri source, Callback<Boolean> callback) {
+        return query("restoreBackup", () -> {
+            try (InputStream in = appContext.getContentResolver().openInputStream(source)) {
+                if (in == null) return false;
+                db.restoreBackup(in);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Restore failed: " + e.getMessage(), e);
+                return false;
+            }
+        }, callback);
+    }
+}
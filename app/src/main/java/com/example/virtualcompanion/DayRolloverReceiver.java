@@ -0,0 +1,66 @@
+package com.example.virtualcompanion;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * DayRolloverReceiver
+ *
+ * Fires a few minutes after local midnight and runs
+ * DatabaseManager.rolloverDay() on the I/O thread, so the new day's
+ * quest plan is ready before the user opens the quest list.
+ *
+ * The alarm is inexact and non-waking: if the phone is asleep it runs
+ * at the next wake-up, and getQuestsForMood rolls over by itself if
+ * the app is opened first.
+ */
+public class DayRolloverReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "DayRolloverReceiver";
+
+    // Run a little after midnight so a slightly early alarm can't land on the old day
+    private static final long DELAY_AFTER_MIDNIGHT_MS = 5 * 60 * 1000;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+
+        DatabaseRepository.get(appContext).execute("rolloverDay", () -> {
+            try {
+                DatabaseManager.get(appContext).rolloverDay();
+            } catch (Exception e) {
+                android.util.Log.e(TAG, "Rollover failed: " + e.getMessage(), e);
+            } finally {
+                schedule(appContext);
+                result.finish();
+            }
+        }, null);
+    }
+
+    /**
+     * (Re)schedule the alarm for just after the next local midnight
+     */
+    public static void schedule(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+
+        long triggerAt = AppClock.get().nextDayStartMillis() + DELAY_AFTER_MIDNIGHT_MS;
+        alarmManager.set(AlarmManager.RTC, triggerAt, pendingIntent(context));
+
+        android.util.Log.d(TAG, "Next rollover at " + triggerAt);
+    }
+
+    private static PendingIntent pendingIntent(Context context) {
+        Intent intent = new Intent(context, DayRolloverReceiver.class);
+        return PendingIntent.getBroadcast(
+                context,
+                0,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
@@ -1,23 +1,18 @@
 package com.example.virtualcompanion;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * InventoryManager
  * Tracks which outfit items the user owns
+ *
+ * Ownership lives in the accessory table; reads come from
+ * DatabaseManager's in-memory Wardrobe (a bit test, no query).
  */
 public class InventoryManager {
 
-    private static final String PREF_NAME = "inventory_data";
-    private static final String KEY_OWNED_ITEMS = "owned_items";
-
-    private static SharedPreferences getPrefs(Context context) {
-        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-    }
+    // Was the "inventory_data" prefs file (DatabaseManager imports what's left)
+    static final String KEY_PREFIX = "inventory.";
 
     /**
      * Check if user owns an item
@@ -25,29 +20,7 @@ public class InventoryManager {
     public static boolean isOwned(Context c, int resId) {
         if (resId == 0) return true; // Empty slot is always "owned"
 
-        Set<String> owned = getPrefs(c).getStringSet(KEY_OWNED_ITEMS, new HashSet<>());
-        return owned.contains(String.valueOf(resId));
-    }
-
-    /**
-     * Mark an item as owned
-     */
-    public static void addItem(Context c, int resId) {
-        Set<String> owned = new HashSet<>(
-                getPrefs(c).getStringSet(KEY_OWNED_ITEMS, new HashSet<>())
-        );
-        owned.add(String.valueOf(resId));
-        getPrefs(c).edit().putStringSet(KEY_OWNED_ITEMS, owned).apply();
-    }
-
-    /**
-     * Initialize default free items
-     */
-    public static void initDefaults(Context c, int[] freeItems) {
-        for (int resId : freeItems) {
-            if (resId != 0 && !isOwned(c, resId)) {
-                addItem(c, resId);
-            }
-        }
+        int ordinal = ItemRegistry.ordinalOf(resId);
+        return ordinal >= 0 && DatabaseManager.get(c).getWardrobe().isOwned(ordinal);
     }
-}
\ No newline at end of file
+}
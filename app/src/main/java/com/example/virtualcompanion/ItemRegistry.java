@@ -0,0 +1,151 @@
+package com.example.virtualcompanion;
+
+import android.util.SparseIntArray;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * ItemRegistry
+ *
+ * Every outfit item the shop sells, with a stable key and a small
+ * ordinal (its position in ITEMS). Saved data refers to items by ordinal,
+ * never by R.drawable id - those are renumbered between builds.
+ *
+ * The accessory table has one row per item (id = ordinal), installed by
+ * DatabaseHelper whenever this list changes.
+ *
+ * ITEMS is append-only: never reorder or remove an entry, or saved
+ * ownership bits will point at the wrong item.
+ */
+public final class ItemRegistry {
+
+    // Item types (accessory.type) - index = position in TYPES
+    public static final String TYPE_TOP = "top";
+    public static final String TYPE_BOTTOM = "bottom";
+    public static final String TYPE_HAT = "hat";
+    public static final String TYPE_GLASSES = "glasses";
+
+    static final String[] TYPES = {TYPE_TOP, TYPE_BOTTOM, TYPE_HAT, TYPE_GLASSES};
+
+    /**
+     * One shop item
+     */
+    public static final class Item {
+        public final String key;
+        public final String type; // the part of the key before the '.'
+        public final int price;   // 0 = free, owned from the start
+        public final int drawable; // the "_1" layer drawn on the pet
+
+        Item(String key, int price, int drawable) {
+            this.key = key;
+            this.type = key.substring(0, key.indexOf('.'));
+            this.price = price;
+            this.drawable = drawable;
+        }
+    }
+
+    private static final Item[] ITEMS = {
+            // Tops
+            new Item("top.boy_flannel", 0, R.drawable.top_boy_flannel_1),
+            new Item("top.girl_pink", 0, R.drawable.top_girl_pink_1),
+            new Item("top.boy_floral", 0, R.drawable.top_boy_floral_1),
+            new Item("top.girl_plaid", 0, R.drawable.top_girl_plaid_1),
+            new Item("top.boy_quarterzip", 150, R.drawable.top_boy_quarterzip_1),
+            new Item("top.girl_cardigan", 150, R.drawable.top_girl_cardigan_1),
+            new Item("top.boy_leather", 200, R.drawable.top_boy_leather_1),
+            new Item("top.girl_dress", 250, R.drawable.top_girl_dress_1),
+            new Item("top.boy_tuxedo", 250, R.drawable.top_boy_tuxedo_1),
+
+            // Bottoms
+            new Item("bottom.girl_flaredpants", 0, R.drawable.bottom_girl_flaredpants_1),
+            new Item("bottom.boy_denimpants", 0, R.drawable.bottom_boy_denimpants_1),
+            new Item("bottom.girl_skirt", 200, R.drawable.bottom_girl_skirt_1),
+            new Item("bottom.boy_short", 200, R.drawable.bottom_boy_short_1),
+            new Item("bottom.boy_blackpants", 250, R.drawable.bottom_boy_blackpants_1),
+
+            // Hats
+            new Item("hat.gang", 0, R.drawable.hat_gang_1),
+            new Item("hat.flower", 0, R.drawable.hat_flower_1),
+            new Item("hat.cowboy", 150, R.drawable.hat_cowboy_1),
+            new Item("hat.beach", 180, R.drawable.hat_beach_1),
+
+            // Glasses
+            new Item("glasses.normal", 0, R.drawable.glasses_normal_1),
+            new Item("glasses.shades", 0, R.drawable.glasses_shades_1),
+            new Item("glasses.maloi", 150, R.drawable.glasses_maloi_1),
+            new Item("glasses.heart", 180, R.drawable.glasses_heart_1)
+    };
+
+    // Ownership is one bit per ordinal in a single long
+    static final int MAX_ITEMS = 64;
+
+    // drawable id -> ordinal (binary search, no boxing)
+    private static final SparseIntArray ORDINALS = new SparseIntArray(ITEMS.length);
+
+    // CRC32 of every key and price, stored in meta once the rows are installed
+    private static final long CHECKSUM;
+
+    static {
+        if (ITEMS.length > MAX_ITEMS) {
+            throw new IllegalStateException("More than " + MAX_ITEMS + " items - widen the ownership bitset");
+        }
+
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < ITEMS.length; i++) {
+            ORDINALS.put(ITEMS[i].drawable, i);
+            crc.update((ITEMS[i].key + '|' + ITEMS[i].price + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        CHECKSUM = crc.getValue();
+    }
+
+    private ItemRegistry() {
+    }
+
+    public static int size() {
+        return ITEMS.length;
+    }
+
+    public static Item get(int ordinal) {
+        return ITEMS[ordinal];
+    }
+
+    public static long checksum() {
+        return CHECKSUM;
+    }
+
+    /**
+     * Position of a type in TYPES, or -1
+     */
+    public static int typeIndex(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Ordinal of an item's drawable, or -1 if it's not a shop item
+     */
+    public static int ordinalOf(int drawable) {
+        return ORDINALS.get(drawable, -1);
+    }
+
+    /**
+     * Price of an item's drawable, 0 if it's not a shop item (or the empty slot)
+     */
+    public static int priceOf(int drawable) {
+        int ordinal = ordinalOf(drawable);
+        return ordinal < 0 ? 0 : ITEMS[ordinal].price;
+    }
+
+    /**
+     * Ordinal of an item key, or -1 if there is no such item
+     */
+    public static int ordinalOf(String key) {
+        for (int i = 0; i < ITEMS.length; i++) {
+            if (ITEMS[i].key.equals(key)) return i;
+        }
+        return -1;
+    }
+}
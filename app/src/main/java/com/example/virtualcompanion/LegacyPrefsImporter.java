@@ -0,0 +1,91 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LegacyPrefsImporter
+ *
+ * One-time move of the old SharedPreferences XML files into AppStateStore.
+ * Runs only when the store file doesn't exist yet; the XML files are
+ * deleted once the store has been written, so it never runs twice.
+ */
+final class LegacyPrefsImporter {
+
+    private static final String TAG = "LegacyPrefsImporter";
+
+    // XML file -> key prefix in the store
+    private static final String[][] IMPORTED = {
+            {"virtual_companion_prefs", ""},
+            {"inventory_data", InventoryManager.KEY_PREFIX},
+            {"outfit_data", OutfitManager.KEY_PREFIX},
+            {"pet_data", NameManager.KEY_PREFIX}
+    };
+
+    // Older files nothing reads any more - just removed
+    private static final String[] DROPPED = {
+            "inventory_prefs",
+            "outfit_prefs"
+    };
+
+    private LegacyPrefsImporter() {
+    }
+
+    static void importAll(Context context, AppStateStore store) {
+        AppStateStore.Editor editor = store.edit();
+        int count = 0;
+
+        for (String[] file : IMPORTED) {
+            SharedPreferences prefs = context.getSharedPreferences(file[0], Context.MODE_PRIVATE);
+            for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+                if (put(editor, file[1] + entry.getKey(), entry.getValue())) {
+                    count++;
+                }
+            }
+        }
+        editor.apply();
+
+        try {
+            // Store file first: if we die before the deletes, the import
+            // still counts as done and the XML is just left over
+            store.flush();
+        } catch (IOException e) {
+            // Keep the XML so the import is retried next launch
+            android.util.Log.e(TAG, "Could not save imported prefs: " + e.getMessage(), e);
+            return;
+        }
+
+        for (String[] file : IMPORTED) {
+            context.deleteSharedPreferences(file[0]);
+        }
+        for (String name : DROPPED) {
+            context.deleteSharedPreferences(name);
+        }
+
+        android.util.Log.d(TAG, "Imported " + count + " values from SharedPreferences");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean put(AppStateStore.Editor editor, String name, Object value) {
+        if (value instanceof Boolean) {
+            editor.put(AppStateStore.booleanKey(name, false), (Boolean) value);
+        } else if (value instanceof Integer) {
+            editor.put(AppStateStore.intKey(name, 0), (Integer) value);
+        } else if (value instanceof Long) {
+            editor.put(AppStateStore.longKey(name, 0), (Long) value);
+        } else if (value instanceof String) {
+            editor.put(AppStateStore.stringKey(name, null), (String) value);
+        } else if (value instanceof Set) {
+            editor.put(AppStateStore.stringSetKey(name), (Set<String>) value);
+        } else {
+            // The app never stored floats
+            android.util.Log.w(TAG, "Skipping " + name + " (unsupported type)");
+            return false;
+        }
+        return true;
+    }
+}
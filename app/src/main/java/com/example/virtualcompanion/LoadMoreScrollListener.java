@@ -0,0 +1,32 @@
+package com.example.virtualcompanion;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * LoadMoreScrollListener
+ *
+ * Calls loadMore() when the user scrolls down to within PREFETCH_ROWS
+ * of the end of a LinearLayoutManager list, so the next page is usually
+ * there before it is needed. It may fire many times while one page is
+ * loading - loadMore() must ignore calls until that page arrives.
+ */
+public abstract class LoadMoreScrollListener extends RecyclerView.OnScrollListener {
+
+    private static final int PREFETCH_ROWS = 10;
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy <= 0) {
+            return;
+        }
+
+        LinearLayoutManager layout = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layout != null && layout.findLastVisibleItemPosition() >= layout.getItemCount() - PREFETCH_ROWS) {
+            loadMore();
+        }
+    }
+
+    protected abstract void loadMore();
+}
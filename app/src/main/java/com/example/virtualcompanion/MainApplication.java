@@ -2,10 +2,16 @@ package com.example.virtualcompanion;
 
 import android.app.Application;
 import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 
 public class MainApplication extends Application {
 
@@ -17,6 +23,28 @@ public class MainApplication extends Application {
     public void onCreate() {
         super.onCreate();
 
+        // Time DatabaseManager calls in debug builds (see QueryMetricsProvider)
+        QueryMetrics.setEnabled((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
+
+        // Drop AppClock's cached "today" when the user changes the time or zone
+        IntentFilter timeFilter = new IntentFilter();
+        timeFilter.addAction(Intent.ACTION_TIME_CHANGED);
+        timeFilter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        timeFilter.addAction(Intent.ACTION_DATE_CHANGED);
+        ContextCompat.registerReceiver(this, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                android.util.Log.d("AppClock", "Time changed (" + intent.getAction() + ") - refreshing today");
+                AppClock.get().invalidate();
+
+                // "Midnight" moved too
+                DayRolloverReceiver.schedule(context);
+            }
+        }, timeFilter, ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        // Plan tomorrow's quests in the background just after midnight
+        DayRolloverReceiver.schedule(this);
+
         // Register activity lifecycle callbacks
         registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
             @Override
@@ -37,6 +65,9 @@ public class MainApplication extends Application {
             @Override
             public void onActivityResumed(@NonNull Activity activity) {
                 currentActivity = activity;
+
+                // Named in slow-call logs
+                QueryMetrics.setCurrentScreen(activity.getClass().getSimpleName());
             }
 
             @Override
@@ -52,6 +83,9 @@ public class MainApplication extends Application {
 
                     // Just pause, don't stop - this preserves the track and position
                     MusicManager.pauseMusic();
+
+                    // We may be killed from here on - write pending app state now
+                    AppStateStore.get(MainApplication.this).flushSoon();
                 }
             }
 
@@ -122,23 +122,27 @@ public class MoodActivity extends BaseActivity {
                 return;
             }
 
-            // Save mood with current date
-            DatabaseManager dbManager = DatabaseManager.get(this);
-            dbManager.saveMood(
-                    selectedMoodIndex + 1,
-                    dbManager.getTodayDate()
+            // Prevent a double tap from logging the mood twice
+            submitButton.setEnabled(false);
+
+            final int savedMoodIndex = selectedMoodIndex;
+
+            // Save mood for today (on the I/O thread), then move on
+            DatabaseRepository.get(this).saveMood(
+                    savedMoodIndex + 1,
+                    () -> {
+                        Intent intent = new Intent(
+                                MoodActivity.this,
+                                MoodResultActivity.class
+                        );
+
+                        intent.putExtra("selected_mood", savedMoodIndex);
+
+                        startActivity(intent);
+                        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+                        finish(); // Finish this activity so they can't go back to selection today
+                    }
             );
-
-            Intent intent = new Intent(
-                    MoodActivity.this,
-                    MoodResultActivity.class
-            );
-
-            intent.putExtra("selected_mood", selectedMoodIndex);
-
-            startActivity(intent);
-            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-            finish(); // Finish this activity so they can't go back to selection today
         });
 
         // Settings - ALWAYS DISABLED (NO OPACITY CHANGE)
@@ -185,8 +189,7 @@ public class MoodActivity extends BaseActivity {
 
             // CHEAT MODE: Long press to add 100 coins
             coinAmount.setOnLongClickListener(v -> {
-                DatabaseManager.get(this).addCoins(100);
-                updateCoinDisplay();
+                DatabaseRepository.get(this).addCoins(100, this::updateCoinDisplay);
                 Toast.makeText(this, "[DEV] +100 coins added", Toast.LENGTH_SHORT).show();
                 return true;
             });
@@ -21,95 +21,28 @@ public class MoodResultActivity extends BaseActivity {
             "Breathe. You're safe. You've got this."
     };
 
+    private DatabaseRepository repository;
+    private int moodIndex = -1;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_mood_result);
 
+        repository = DatabaseRepository.get(this);
+
         // ===== MOOD REFLECTION =====
-        int moodIndex = getIntent().getIntExtra("selected_mood", -1);
+        moodIndex = getIntent().getIntExtra("selected_mood", -1);
 
         if (moodIndex == -1) {
-            moodIndex = DatabaseManager.get(this).getLatestMood();
-        }
-        final int finalMoodIndex = moodIndex;
-
-        String gender = DatabaseManager.get(this).getGender();
-
-        int[] emotions = "male".equalsIgnoreCase(gender)
-                ? new int[]{
-                R.drawable.emotion_neutral,
-                R.drawable.emotion_happy,
-                R.drawable.emotion_sad,
-                R.drawable.emotion_angry,
-                R.drawable.emotion_anxious
-        }
-                : new int[]{
-                R.drawable.emotion_neutral_g,
-                R.drawable.emotion_happy_g,
-                R.drawable.emotion_sad_g,
-                R.drawable.emotion_angry_g,
-                R.drawable.emotion_anxious_g
-        };
-
-        int[] overlays = "male".equalsIgnoreCase(gender)
-                ? new int[]{
-                R.drawable.emote_neutral_b_moodresult,
-                R.drawable.emote_happy_b_moodresult,
-                R.drawable.emote_sad_b_moodresult,
-                R.drawable.emote_angry_b_moodresult,
-                R.drawable.emote_anxious_b_moodresult
-        }
-                : new int[]{
-                R.drawable.emote_neutral_g_moodresult,
-                R.drawable.emote_happy_g_moodresult,
-                R.drawable.emote_sad_g_moodresult,
-                R.drawable.emote_angry_g_moodresult,
-                R.drawable.emote_anxious_g_moodresult
-        };
-
-        ImageView emotionOverlay = findViewById(R.id.emotionOverlay);
-        ImageView resultPetBase = findViewById(R.id.resultPetBase);
-        TextView resultMoodLabel = findViewById(R.id.resultMoodLabel);
-        TextView moodMessage = findViewById(R.id.moodMessage);
-
-        if (resultPetBase != null) {
-            resultPetBase.setImageResource(emotions[moodIndex]);
-        }
-
-        if (emotionOverlay != null) {
-            emotionOverlay.setImageResource((overlays[moodIndex]));
-        }
-
-        if (resultMoodLabel != null) {
-            resultMoodLabel.setText(MOOD_LABELS[moodIndex]);
-        }
-
-        if (moodMessage != null) {
-            moodMessage.setText(MOOD_MESSAGES[moodIndex]);
-        }
-
-        String flow = getIntent().getStringExtra("flow");
-
-        if ("QUEST_COMPLETE".equals(flow)) {
-
-            if (moodMessage != null) {
-                moodMessage.setText("You completed all your tasks. How do you feel now?");
-            }
-
-            if (resultMoodLabel != null) {
-                resultMoodLabel.setText("Well Done");
-            }
-
-        } else if ("HAPPY_MOOD".equals(flow)) {
-
-            if (moodMessage != null) {
-                moodMessage.setText("You're feeling happy today! No need for you to do some tasks! Have a great day ahead!");
-            }
-
-            if (resultMoodLabel != null) {
-                resultMoodLabel.setText("Happy");
-            }
+            // No mood passed in - look up the latest one off the UI thread
+            repository.getLatestMood(latestMood -> {
+                if (isFinishing() || isDestroyed()) return;
+                moodIndex = latestMood;
+                showMoodReflection();
+            });
+        } else {
+            showMoodReflection();
         }
 
         // ================= OUTFIT LAYERS =================
@@ -137,9 +70,8 @@ public class MoodResultActivity extends BaseActivity {
 
                 // CHEAT MODE: Long press to add 100 coins
                 coinAmount.setOnLongClickListener(v -> {
-                    DatabaseManager.get(this).addCoins(100);
-                    int newCoins = DatabaseManager.get(this).getCoins();
-                    coinAmount.setText(String.valueOf(newCoins));
+                    repository.addCoins(100, () -> coinAmount.setText(
+                            String.valueOf(DatabaseManager.get(this).getCoins())));
                     Toast.makeText(this, "[DEV] +100 coins added", Toast.LENGTH_SHORT).show();
                     return true;
                 });
@@ -187,7 +119,7 @@ public class MoodResultActivity extends BaseActivity {
                         MoodResultActivity.this,
                         QuestsActivity.class
                 );
-                intent.putExtra("selected_mood", finalMoodIndex);
+                intent.putExtra("selected_mood", moodIndex);
                 startActivity(intent);
                 overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
             });
@@ -200,13 +132,97 @@ public class MoodResultActivity extends BaseActivity {
                         MoodResultActivity.this,
                         CustomTopActivity.class
                 );
-                intent.putExtra("selected_mood", finalMoodIndex);
+                intent.putExtra("selected_mood", moodIndex);
                 startActivity(intent);
                 overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
             });
         }
     }
 
+    /**
+     * Show pet emotion, label and message for the current mood
+     */
+    private void showMoodReflection() {
+
+        String gender = DatabaseManager.get(this).getGender();
+
+        int[] emotions = "male".equalsIgnoreCase(gender)
+                ? new int[]{
+                R.drawable.emotion_neutral,
+                R.drawable.emotion_happy,
+                R.drawable.emotion_sad,
+                R.drawable.emotion_angry,
+                R.drawable.emotion_anxious
+        }
+                : new int[]{
+                R.drawable.emotion_neutral_g,
+                R.drawable.emotion_happy_g,
+                R.drawable.emotion_sad_g,
+                R.drawable.emotion_angry_g,
+                R.drawable.emotion_anxious_g
+        };
+
+        int[] overlays = "male".equalsIgnoreCase(gender)
+                ? new int[]{
+                R.drawable.emote_neutral_b_moodresult,
+                R.drawable.emote_happy_b_moodresult,
+                R.drawable.emote_sad_b_moodresult,
+                R.drawable.emote_angry_b_moodresult,
+                R.drawable.emote_anxious_b_moodresult
+        }
+                : new int[]{
+                R.drawable.emote_neutral_g_moodresult,
+                R.drawable.emote_happy_g_moodresult,
+                R.drawable.emote_sad_g_moodresult,
+                R.drawable.emote_angry_g_moodresult,
+                R.drawable.emote_anxious_g_moodresult
+        };
+
+        ImageView emotionOverlay = findViewById(R.id.emotionOverlay);
+        ImageView resultPetBase = findViewById(R.id.resultPetBase);
+        TextView resultMoodLabel = findViewById(R.id.resultMoodLabel);
+        TextView moodMessage = findViewById(R.id.moodMessage);
+
+        if (resultPetBase != null) {
+            resultPetBase.setImageResource(emotions[moodIndex]);
+        }
+
+        if (emotionOverlay != null) {
+            emotionOverlay.setImageResource((overlays[moodIndex]));
+        }
+
+        if (resultMoodLabel != null) {
+            resultMoodLabel.setText(MOOD_LABELS[moodIndex]);
+        }
+
+        if (moodMessage != null) {
+            moodMessage.setText(MOOD_MESSAGES[moodIndex]);
+        }
+
+        String flow = getIntent().getStringExtra("flow");
+
+        if ("QUEST_COMPLETE".equals(flow)) {
+
+            if (moodMessage != null) {
+                moodMessage.setText("You completed all your tasks. How do you feel now?");
+            }
+
+            if (resultMoodLabel != null) {
+                resultMoodLabel.setText("Well Done");
+            }
+
+        } else if ("HAPPY_MOOD".equals(flow)) {
+
+            if (moodMessage != null) {
+                moodMessage.setText("You're feeling happy today! No need for you to do some tasks! Have a great day ahead!");
+            }
+
+            if (resultMoodLabel != null) {
+                resultMoodLabel.setText("Happy");
+            }
+        }
+    }
+
     /**
      * Load outfit layer from OutfitManager
      */
@@ -0,0 +1,136 @@
+package com.example.virtualcompanion;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MoodStats
+ *
+ * One profile's mood trends, read from the mood_daily / mood_weekly rollups only.
+ * DatabaseManager.saveMood keeps the rollups up to date, so a year of
+ * weekly history is ~52 primary-key rows instead of a scan of every mood.
+ *
+ * Days are epoch days (local time). Weeks start on Monday.
+ */
+public class MoodStats {
+
+    static final String SQL_DAILY_RANGE =
+            "SELECT day, count, total, min_value, max_value FROM mood_daily " +
+                    "WHERE profile_id=? AND day BETWEEN ? AND ? ORDER BY day";
+    static final String SQL_WEEKLY_RANGE =
+            "SELECT week, count, total, min_value, max_value FROM mood_weekly " +
+                    "WHERE profile_id=? AND week BETWEEN ? AND ? ORDER BY week";
+
+    /**
+     * One day or week of moods (days/weeks with no mood are not returned)
+     */
+    public static final class Point {
+        private final long period;
+        private final int count;
+        private final int total;
+        private final int minValue;
+        private final int maxValue;
+
+        Point(long period, int count, int total, int minValue, int maxValue) {
+            this.period = period;
+            this.count = count;
+            this.total = total;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+        }
+
+        /**
+         * Epoch day (daily) or week number (weekly)
+         */
+        public long getPeriod() {
+            return period;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Average mood value (1-5)
+         */
+        public double getAverage() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        public int getMinValue() {
+            return minValue;
+        }
+
+        public int getMaxValue() {
+            return maxValue;
+        }
+    }
+
+    private final DatabaseHelper helper;
+    private final long profileId;
+
+    MoodStats(DatabaseHelper helper, long profileId) {
+        this.helper = helper;
+        this.profileId = profileId;
+    }
+
+    // ================= WEEK MATH =================
+
+    /**
+     * Week number of an epoch day (epoch day 0 was a Thursday)
+     */
+    public static long weekOf(long epochDay) {
+        return Math.floorDiv(epochDay + 3, 7L);
+    }
+
+    /**
+     * Epoch day of the Monday that starts a week
+     */
+    public static long firstDayOfWeek(long week) {
+        return week * 7 - 3;
+    }
+
+    // ================= QUERIES =================
+
+    /**
+     * Daily points between two epoch days (inclusive)
+     */
+    public List<Point> getDaily(long fromDay, long toDay) {
+        return readRange(SQL_DAILY_RANGE, fromDay, toDay);
+    }
+
+    /**
+     * Weekly points between two week numbers (inclusive)
+     */
+    public List<Point> getWeekly(long fromWeek, long toWeek) {
+        return readRange(SQL_WEEKLY_RANGE, fromWeek, toWeek);
+    }
+
+    /**
+     * The last N weeks up to and including the week of today
+     */
+    public List<Point> getRecentWeeks(long today, int weeks) {
+        long currentWeek = weekOf(today);
+        return getWeekly(currentWeek - weeks + 1, currentWeek);
+    }
+
+    private List<Point> readRange(String sql, long from, long to) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        Cursor c = db.rawQuery(
+                sql,
+                new String[]{String.valueOf(profileId), String.valueOf(from), String.valueOf(to)}
+        );
+
+        List<Point> points = new ArrayList<>(c.getCount());
+        while (c.moveToNext()) {
+            points.add(new Point(c.getLong(0), c.getInt(1), c.getInt(2), c.getInt(3), c.getInt(4)));
+        }
+
+        c.close();
+        return points;
+    }
+}
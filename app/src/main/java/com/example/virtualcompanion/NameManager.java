@@ -1,27 +1,28 @@
 package com.example.virtualcompanion;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
 public class NameManager {
 
-    private static final String PREF_NAME = "pet_data";
-    private static final String KEY_NAME = "pet_name";
+    // Was the "pet_data" prefs file
+    static final String KEY_PREFIX = "pet.";
 
-
-    private static SharedPreferences getPrefs(Context c) {
-        return c.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-    }
+    private static final AppStateStore.Key<String> KEY_NAME =
+            AppStateStore.stringKey(KEY_PREFIX + "pet_name", "ECHO");
 
 
-    // Save name
+    // Save name (of the active profile)
     public static void setName(Context c, String name) {
-        getPrefs(c).edit().putString(KEY_NAME, name).apply();
+        AppStateStore.get(c).put(key(c), name);
     }
 
 
     // Get name (default = ECHO)
     public static String getName(Context c) {
-        return getPrefs(c).getString(KEY_NAME, "ECHO");
+        return AppStateStore.get(c).get(key(c));
+    }
+
+    private static AppStateStore.Key<String> key(Context c) {
+        return KEY_NAME.forProfile(DatabaseManager.get(c).getActiveProfileId());
     }
 }
@@ -2,8 +2,8 @@ package com.example.virtualcompanion;
 
 import android.animation.ObjectAnimator;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
-import android.view.View;
 import android.view.WindowManager;
 import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
@@ -13,6 +13,13 @@ import androidx.constraintlayout.widget.ConstraintLayout;
 
 public class OpeningActivity extends BaseActivity {
 
+    // Debug builds only: wipe the database and prefs before starting
+    public static final String EXTRA_RESET_ALL_DATA = "reset_all_data";
+
+    // Filled in by the startup pipeline (null until it finishes)
+    private StartupPipeline.Result startupResult;
+    private boolean tappedBeforeReady = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -23,39 +30,28 @@ public class OpeningActivity extends BaseActivity {
                 WindowManager.LayoutParams.FLAG_FULLSCREEN
         );
 
-        android.util.Log.d("OpeningActivity", "========== APP RESTART - TESTING MODE ==========");
-
-        // ================= TESTING MODE - FORCE COMPLETE RESET =================
-        // Step 1: Delete the entire database
-        boolean dbDeleted = this.deleteDatabase("virtual_companion.db");
-        android.util.Log.d("OpeningActivity", "Database deleted: " + dbDeleted);
-
-        // Step 2: Initialize database (creates fresh tables)
-        DatabaseManager db = DatabaseManager.get(this);
-        android.util.Log.d("OpeningActivity", "Database recreated");
-
-        // Step 3: Reset database data
-        db.deleteMoodForToday();
-        db.resetAllQuestProgressForTesting();
-        db.setHasCustomized(false);
-        db.resetAllAccessories();
-        android.util.Log.d("OpeningActivity", "Database data reset");
-
-        // Step 4: NUCLEAR OPTION - Clear ALL SharedPreferences
-        db.resetAllSharedPreferences(); // NEW: Use nuclear option
-        android.util.Log.d("OpeningActivity", "All SharedPreferences cleared");
-
-        android.util.Log.d("OpeningActivity", "========== RESET COMPLETE ==========");
-        // =======================================================================
-
         setContentView(R.layout.activity_opening);
 
         MusicManager.startMusic(this);
 
-        // uncomment this if testing phase done
-        // =======================================================================
-        // DatabaseManager db = DatabaseManager.get(this);
-        // =======================================================================
+        // ================= STARTUP PIPELINE =================
+        // Open the DB, load prefs and pick the next screen while the
+        // animation below plays. Reset is a debug-only entry point:
+        // adb shell am start -n com.example.virtualcompanion/.OpeningActivity --ez reset_all_data true
+        boolean resetForTesting = savedInstanceState == null
+                && isDebuggable()
+                && getIntent().getBooleanExtra(EXTRA_RESET_ALL_DATA, false);
+
+        DatabaseRepository.get(this).query("startup",
+                () -> StartupPipeline.run(getApplicationContext(), resetForTesting),
+                result -> {
+                    startupResult = result;
+                    if (tappedBeforeReady) {
+                        openNextScreen();
+                    }
+                }
+        );
+        // =================================================================
 
         // Get main layout
         ConstraintLayout mainLayout = findViewById(R.id.main);
@@ -76,33 +72,33 @@ public class OpeningActivity extends BaseActivity {
         // =================================================================
 
         // Click anywhere to continue
-        mainLayout.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-
-                // Go to Customize screen (new users only)
-                Intent intent;
-                if (!db.hasCustomized()) {
-                    intent = new Intent(
-                            OpeningActivity.this,
-                            CustomizeActivity.class
-                    );
-                } else if (db.hasSelectedMoodToday()) {
-                    intent = new Intent(
-                            OpeningActivity.this,
-                            MoodResultActivity.class
-                    );
-                } else {
-                    intent = new Intent(
-                            OpeningActivity.this,
-                            MoodActivity.class
-                    );
-                }
-
-                startActivity(intent);
-                overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-                finish(); // prevent going back
+        mainLayout.setOnClickListener(v -> {
+            if (startupResult == null) {
+                // Still loading - go as soon as the pipeline finishes
+                tappedBeforeReady = true;
+                return;
             }
+            openNextScreen();
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Start the screen chosen by the startup pipeline
+     */
+    private void openNextScreen() {
+        if (isFinishing() || isDestroyed()) return;
+
+        Intent intent = new Intent(this, startupResult.getDestination());
+        if (startupResult.getMoodIndex() != -1) {
+            intent.putExtra("selected_mood", startupResult.getMoodIndex());
+        }
+
+        startActivity(intent);
+        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+        finish(); // prevent going back
+    }
+
+    private boolean isDebuggable() {
+        return (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+}
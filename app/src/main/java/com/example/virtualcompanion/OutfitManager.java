@@ -1,70 +1,80 @@
 package com.example.virtualcompanion;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
+/**
+ * OutfitManager
+ * What the pet is wearing, one item per type
+ *
+ * Reads come from DatabaseManager's in-memory Wardrobe (the whole outfit
+ * is loaded in one query); each change is one accessory transaction on
+ * the I/O thread, and the callback runs once the Wardrobe shows it
+ * (false: the item isn't owned, nothing changed).
+ */
 public class OutfitManager {
 
-    private static final String PREF_NAME = "outfit_data";
-
-    private static final String KEY_TOP = "top";
-    private static final String KEY_BOTTOM = "bottom";
-    private static final String KEY_HAT = "hat";
-    private static final String KEY_GLASSES = "glasses";
-
-
-    private static SharedPreferences getPrefs(Context context) {
-        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-    }
-
-
-    // ================= RESET (for testing) =================
-
-    public static void resetAll(Context context) {
-        getPrefs(context).edit().clear().apply();
-    }
+    // Was the "outfit_data" prefs file (DatabaseManager imports what's left)
+    static final String KEY_PREFIX = "outfit.";
 
 
     // ================= TOP =================
 
-    public static void setTop(Context c, int resId) {
-        getPrefs(c).edit().putInt(KEY_TOP, resId).apply();
+    public static void setTop(Context c, int resId, DatabaseRepository.Callback<Boolean> onDone) {
+        equip(c, ItemRegistry.TYPE_TOP, resId, onDone);
     }
 
     public static int getTop(Context c) {
-        return getPrefs(c).getInt(KEY_TOP, 0);
+        return equipped(c, ItemRegistry.TYPE_TOP);
     }
 
 
     // ================= BOTTOM =================
 
-    public static void setBottom(Context c, int resId) {
-        getPrefs(c).edit().putInt(KEY_BOTTOM, resId).apply();
+    public static void setBottom(Context c, int resId, DatabaseRepository.Callback<Boolean> onDone) {
+        equip(c, ItemRegistry.TYPE_BOTTOM, resId, onDone);
     }
 
     public static int getBottom(Context c) {
-        return getPrefs(c).getInt(KEY_BOTTOM, 0);
+        return equipped(c, ItemRegistry.TYPE_BOTTOM);
     }
 
 
     // ================= HAT =================
 
-    public static void setHat(Context c, int resId) {
-        getPrefs(c).edit().putInt(KEY_HAT, resId).apply();
+    public static void setHat(Context c, int resId, DatabaseRepository.Callback<Boolean> onDone) {
+        equip(c, ItemRegistry.TYPE_HAT, resId, onDone);
     }
 
     public static int getHat(Context c) {
-        return getPrefs(c).getInt(KEY_HAT, 0);
+        return equipped(c, ItemRegistry.TYPE_HAT);
     }
 
 
     // ================= GLASSES =================
 
-    public static void setGlasses(Context c, int resId) {
-        getPrefs(c).edit().putInt(KEY_GLASSES, resId).apply();
+    public static void setGlasses(Context c, int resId, DatabaseRepository.Callback<Boolean> onDone) {
+        equip(c, ItemRegistry.TYPE_GLASSES, resId, onDone);
     }
 
     public static int getGlasses(Context c) {
-        return getPrefs(c).getInt(KEY_GLASSES, 0);
+        return equipped(c, ItemRegistry.TYPE_GLASSES);
+    }
+
+
+    // ================= HELPERS =================
+
+    /**
+     * Equip a drawable in a slot (0 = take it off)
+     */
+    private static void equip(Context c, String type, int resId, DatabaseRepository.Callback<Boolean> onDone) {
+        int ordinal = resId == 0 ? -1 : ItemRegistry.ordinalOf(resId);
+        if (resId != 0 && ordinal < 0) {
+            throw new IllegalArgumentException("Not a shop item: " + resId);
+        }
+        DatabaseRepository.get(c).equipItem(type, ordinal, onDone);
+    }
+
+    private static int equipped(Context c, String type) {
+        return DatabaseManager.get(c).getWardrobe().getEquippedDrawable(type);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.example.virtualcompanion;
+
+/**
+ * PurchaseResult
+ *
+ * Result of DatabaseManager.purchase():
+ * - Whether the item was bought, and if not, why
+ * - What it cost (0 unless bought)
+ * - The coin balance afterwards
+ */
+public final class PurchaseResult {
+
+    public enum Status {
+        PURCHASED,
+        NOT_ENOUGH_COINS,
+        ALREADY_OWNED,
+        UNKNOWN_ITEM
+    }
+
+    private final Status status;
+    private final int itemId;
+    private final int price;
+    private final int newCoinBalance;
+
+    public PurchaseResult(Status status, int itemId, int price, int newCoinBalance) {
+        this.status = status;
+        this.itemId = itemId;
+        this.price = price;
+        this.newCoinBalance = newCoinBalance;
+    }
+
+    // ================= GETTERS =================
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isPurchased() {
+        return status == Status.PURCHASED;
+    }
+
+    /**
+     * ItemRegistry ordinal (accessory.id)
+     */
+    public int getItemId() {
+        return itemId;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public int getNewCoinBalance() {
+        return newCoinBalance;
+    }
+}
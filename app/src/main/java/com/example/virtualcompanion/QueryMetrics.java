@@ -0,0 +1,251 @@
+package com.example.virtualcompanion;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * QueryMetrics
+ *
+ * Call counts, rows read and latency histograms per database call.
+ * DatabaseRepository times every call it runs on the I/O thread:
+ *
+ *     try (QueryMetrics.Call call = QueryMetrics.begin("name")) { ... }
+ *
+ * DatabaseManager reports the rows it reads and the SQL it runs with the
+ * static rows()/sql(), which add to the call open on the current thread.
+ * A call begun inside another one is not recorded separately, so a method
+ * that calls other public methods is counted once.
+ *
+ * A statement DatabaseManager runs with no call open (a synchronous call,
+ * usually from the UI thread) is timed on its own with beginStatement()
+ * and recorded under the thread and SQL, e.g. "main: SELECT ...".
+ *
+ * Calls slower than the threshold are logged with their SQL and the
+ * screen in front at the time.
+ *
+ * Only enabled in debuggable builds; otherwise begin() hands out one
+ * shared no-op Call and records nothing.
+ *
+ * Read it from the debug screen (QueryMetricsActivity) or with
+ *   adb shell dumpsys activity provider com.example.virtualcompanion/.QueryMetricsProvider
+ */
+public final class QueryMetrics {
+
+    private static final String TAG = "QueryMetrics";
+
+    // One frame at 60 Hz
+    static final long DEFAULT_SLOW_CALL_MS = 16;
+
+    // Upper bounds of the latency buckets (microseconds); the last bucket is everything slower
+    static final long[] BUCKET_LIMITS_US = {250, 500, 1_000, 2_000, 4_000, 8_000, 16_000, 32_000, 64_000};
+
+    private static volatile boolean enabled;
+    private static volatile long slowCallNanos = DEFAULT_SLOW_CALL_MS * 1_000_000L;
+
+    // Simple name of the last resumed activity (set by MainApplication)
+    private static volatile String currentScreen = "-";
+
+    private static final ConcurrentHashMap<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    private static final Call DISABLED = new Call(null, 0);
+
+    // The outermost call open on each thread
+    private static final ThreadLocal<Call> CURRENT = new ThreadLocal<>();
+
+    private QueryMetrics() {
+    }
+
+    // ================= CONFIG =================
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setSlowCallThresholdMs(long ms) {
+        slowCallNanos = ms * 1_000_000L;
+    }
+
+    public static long getSlowCallThresholdMs() {
+        return slowCallNanos / 1_000_000L;
+    }
+
+    public static void setCurrentScreen(String screen) {
+        currentScreen = screen;
+    }
+
+    // ================= RECORDING =================
+
+    /**
+     * Start timing a call; close the result when it returns. Inside
+     * another call on the same thread this records nothing.
+     */
+    public static Call begin(String method) {
+        if (!enabled || CURRENT.get() != null) return DISABLED;
+
+        Call call = new Call(method, SystemClock.elapsedRealtimeNanos());
+        CURRENT.set(call);
+        return call;
+    }
+
+    /**
+     * Start timing one statement run outside any call; inside a call this
+     * records nothing, and the statement adds to that call instead
+     */
+    public static Call beginStatement(String sql) {
+        if (!enabled || CURRENT.get() != null) return DISABLED;
+        return begin(Thread.currentThread().getName() + ": " + sql);
+    }
+
+    /**
+     * Rows read from a cursor, added to the call open on this thread
+     */
+    public static void rows(int count) {
+        if (!enabled) return;
+
+        Call call = CURRENT.get();
+        if (call != null) {
+            call.rows += count;
+        }
+    }
+
+    /**
+     * SQL to show if the call open on this thread turns out slow (the last one set wins)
+     */
+    public static void sql(String statement) {
+        if (!enabled) return;
+
+        Call call = CURRENT.get();
+        if (call != null) {
+            call.sql = statement;
+        }
+    }
+
+    /**
+     * One timed method call
+     */
+    public static final class Call implements AutoCloseable {
+        private final String method;
+        private final long startNanos;
+        private int rows;
+        private String sql;
+
+        private Call(String method, long startNanos) {
+            this.method = method;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (method == null) return;
+            CURRENT.remove();
+            record(method, SystemClock.elapsedRealtimeNanos() - startNanos, rows, sql);
+        }
+    }
+
+    private static void record(String method, long nanos, int rows, String sql) {
+        Stats stats = STATS.get(method);
+        if (stats == null) {
+            STATS.putIfAbsent(method, new Stats());
+            stats = STATS.get(method);
+        }
+        stats.add(nanos, rows);
+
+        if (nanos >= slowCallNanos) {
+            Log.w(TAG, String.format(Locale.US, "Slow call %s: %.1f ms, %d rows, screen=%s, thread=%s%s",
+                    method, nanos / 1e6, rows, currentScreen, Thread.currentThread().getName(),
+                    sql == null ? "" : ", sql=" + sql));
+        }
+    }
+
+    /**
+     * Totals for one method
+     */
+    static final class Stats {
+        long calls;
+        long rows;
+        long totalNanos;
+        long maxNanos;
+        final long[] buckets = new long[BUCKET_LIMITS_US.length + 1];
+
+        synchronized void add(long nanos, int rowCount) {
+            calls++;
+            rows += rowCount;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+
+            long micros = nanos / 1_000;
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_US.length && micros > BUCKET_LIMITS_US[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+    }
+
+    // ================= REPORT =================
+
+    public static void reset() {
+        STATS.clear();
+    }
+
+    /**
+     * Plain-text table of every method called so far, most total time first
+     */
+    public static void dump(PrintWriter out) {
+        out.println("Query metrics (enabled=" + enabled + ", slow >= " + getSlowCallThresholdMs() + " ms)");
+
+        List<String> methods = new ArrayList<>(STATS.keySet());
+        List<long[]> rows = new ArrayList<>();
+        for (String method : methods) {
+            Stats s = STATS.get(method);
+            synchronized (s) {
+                long[] row = new long[4 + s.buckets.length];
+                row[0] = s.calls;
+                row[1] = s.rows;
+                row[2] = s.totalNanos;
+                row[3] = s.maxNanos;
+                System.arraycopy(s.buckets, 0, row, 4, s.buckets.length);
+                rows.add(row);
+            }
+        }
+
+        // Most total time first
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < methods.size(); i++) order.add(i);
+        Collections.sort(order, (a, b) -> Long.compare(rows.get(b)[2], rows.get(a)[2]));
+
+        StringBuilder header = new StringBuilder(String.format(Locale.US,
+                "%-34s %7s %8s %9s %9s %9s  |", "method", "calls", "rows", "total ms", "avg ms", "max ms"));
+        for (long limit : BUCKET_LIMITS_US) {
+            header.append(String.format(Locale.US, " %6s", "<" + formatMicros(limit)));
+        }
+        header.append(String.format(Locale.US, " %6s", "more"));
+        out.println(header);
+
+        for (int i : order) {
+            long[] row = rows.get(i);
+            StringBuilder line = new StringBuilder(String.format(Locale.US,
+                    "%-34s %7d %8d %9.1f %9.2f %9.1f  |", methods.get(i), row[0], row[1],
+                    row[2] / 1e6, row[0] == 0 ? 0 : row[2] / 1e6 / row[0], row[3] / 1e6));
+            for (int b = 4; b < row.length; b++) {
+                line.append(String.format(Locale.US, " %6d", row[b]));
+            }
+            out.println(line);
+        }
+    }
+
+    private static String formatMicros(long micros) {
+        return micros < 1_000 ? micros + "us" : (micros / 1_000) + "ms";
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.virtualcompanion;
+
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.widget.HorizontalScrollView;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * QueryMetricsActivity
+ *
+ * [DEV] Shows the QueryMetrics table. Opened by long-pressing the back
+ * button in Settings (debug builds only). Tap the table to refresh,
+ * long-press it to reset the counters.
+ */
+public class QueryMetricsActivity extends BaseActivity {
+
+    private TextView report;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        int padding = (int) (12 * getResources().getDisplayMetrics().density);
+
+        report = new TextView(this);
+        report.setTypeface(Typeface.MONOSPACE);
+        report.setTextSize(11);
+        report.setPadding(padding, padding, padding, padding);
+
+        report.setOnClickListener(v -> refresh());
+        report.setOnLongClickListener(v -> {
+            QueryMetrics.reset();
+            refresh();
+            return true;
+        });
+
+        // Wide table: scroll both ways
+        HorizontalScrollView horizontal = new HorizontalScrollView(this);
+        horizontal.addView(report);
+        ScrollView vertical = new ScrollView(this);
+        vertical.addView(horizontal);
+        setContentView(vertical);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        QueryMetrics.dump(out);
+        out.flush();
+        report.setText(text.toString());
+    }
+}
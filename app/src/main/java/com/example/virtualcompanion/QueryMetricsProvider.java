@@ -0,0 +1,84 @@
+package com.example.virtualcompanion;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+/**
+ * QueryMetricsProvider
+ *
+ * Serves no data - it only exists so QueryMetrics can be read with dumpsys
+ * while the app is running (providers live as long as the process):
+ *
+ *   adb shell dumpsys activity provider com.example.virtualcompanion/.QueryMetricsProvider
+ *   ... QueryMetricsProvider reset      clear the counters
+ *   ... QueryMetricsProvider slow 50    log calls slower than 50 ms
+ */
+public class QueryMetricsProvider extends ContentProvider {
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (args != null && args.length > 0) {
+            if ("reset".equals(args[0])) {
+                QueryMetrics.reset();
+                writer.println("Query metrics reset");
+                return;
+            }
+
+            if ("slow".equals(args[0]) && args.length > 1) {
+                try {
+                    QueryMetrics.setSlowCallThresholdMs(Long.parseLong(args[1]));
+                } catch (NumberFormatException e) {
+                    writer.println("Not a number: " + args[1]);
+                    return;
+                }
+            }
+        }
+
+        QueryMetrics.dump(writer);
+    }
+
+    // ================= NO DATA =================
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+                        @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        return null;
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        return 0;
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+                      @Nullable String[] selectionArgs) {
+        return 0;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * QuestCatalog
+ *
+ * Reads assets/quests.bin, the quest list compiled at build time from
+ * src/main/quests/quests.tsv (see buildQuestCatalog in app/build.gradle.kts).
+ *
+ * The header carries a CRC32 of the records so DatabaseHelper can tell
+ * whether the installed quests are still current without parsing them.
+ */
+public final class QuestCatalog {
+
+    static final String ASSET_NAME = "quests.bin";
+
+    private static final int MAGIC = 0x51434154; // "QCAT"
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * One quest row from the catalog
+     */
+    public static final class Entry {
+        public final int id;
+        public final String mood;
+        public final int reward;
+        public final int timerMinutes;
+        public final String title;
+        public final String description;
+
+        Entry(int id, String mood, int reward, int timerMinutes, String title, String description) {
+            this.id = id;
+            this.mood = mood;
+            this.reward = reward;
+            this.timerMinutes = timerMinutes;
+            this.title = title;
+            this.description = description;
+        }
+    }
+
+    private final long checksum;
+    private final List<Entry> entries;
+
+    private QuestCatalog(long checksum, List<Entry> entries) {
+        this.checksum = checksum;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    // ================= READING =================
+
+    /**
+     * Read only the header checksum (cheap - used on every open)
+     */
+    public static long readChecksum(Context context) throws IOException {
+        try (DataInputStream in = new DataInputStream(context.getAssets().open(ASSET_NAME))) {
+            return readHeader(in)[0];
+        }
+    }
+
+    /**
+     * Read and verify the whole catalog
+     */
+    public static QuestCatalog read(Context context) throws IOException {
+        try (InputStream asset = new BufferedInputStream(context.getAssets().open(ASSET_NAME))) {
+            return read(asset);
+        }
+    }
+
+    static QuestCatalog read(InputStream asset) throws IOException {
+        DataInputStream in = new DataInputStream(asset);
+        long[] header = readHeader(in);
+        long checksum = header[0];
+        int count = (int) header[1];
+
+        // Records run to the end of the file
+        byte[] payload = readAll(in);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Quest catalog checksum mismatch");
+        }
+
+        DataInputStream records = new DataInputStream(new ByteArrayInputStream(payload));
+        List<Entry> entries = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int id = records.readInt();
+            String mood = records.readUTF();
+            int reward = records.readShort();
+            int timerMinutes = records.readShort();
+            String title = records.readUTF();
+            String description = records.readUTF();
+
+            entries.add(new Entry(id, mood, reward, timerMinutes, title, description));
+        }
+
+        return new QuestCatalog(checksum, entries);
+    }
+
+    /**
+     * Returns {checksum, count}
+     */
+    private static long[] readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a quest catalog");
+        }
+
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported quest catalog version " + version);
+        }
+
+        long checksum = in.readInt() & 0xFFFFFFFFL;
+        int count = in.readInt();
+        return new long[]{checksum, count};
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        byte[] buffer = new byte[8 * 1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.virtualcompanion;
+
+/**
+ * QuestCompletion
+ *
+ * Result of DatabaseManager.completeQuest():
+ * - How many coins were awarded (0 if the quest was already rewarded)
+ * - The coin balance after the award
+ * - The quest streak in days, counting this completion
+ * - Whether every quest in the current session is now done
+ *
+ * For a quest id that isn't in the catalog nothing is saved and
+ * isKnownQuest() is false.
+ */
+public final class QuestCompletion {
+
+    private final int questId;
+    private final int coinsAwarded;
+    private final int newCoinBalance;
+    private final int streakDays;
+    private final boolean sessionComplete;
+    private final boolean knownQuest;
+
+    public QuestCompletion(int questId, int coinsAwarded, int newCoinBalance, int streakDays,
+                           boolean sessionComplete) {
+        this(questId, coinsAwarded, newCoinBalance, streakDays, sessionComplete, true);
+    }
+
+    private QuestCompletion(int questId, int coinsAwarded, int newCoinBalance, int streakDays,
+                            boolean sessionComplete, boolean knownQuest) {
+        this.questId = questId;
+        this.coinsAwarded = coinsAwarded;
+        this.newCoinBalance = newCoinBalance;
+        this.streakDays = streakDays;
+        this.sessionComplete = sessionComplete;
+        this.knownQuest = knownQuest;
+    }
+
+    /**
+     * Nothing was completed: no quest has this id
+     */
+    static QuestCompletion unknownQuest(int questId, int coinBalance, int streakDays) {
+        return new QuestCompletion(questId, 0, coinBalance, streakDays, false, false);
+    }
+
+    // ================= GETTERS =================
+
+    public int getQuestId() {
+        return questId;
+    }
+
+    public int getCoinsAwarded() {
+        return coinsAwarded;
+    }
+
+    public int getNewCoinBalance() {
+        return newCoinBalance;
+    }
+
+    public int getStreakDays() {
+        return streakDays;
+    }
+
+    public boolean isSessionComplete() {
+        return sessionComplete;
+    }
+
+    public boolean isKnownQuest() {
+        return knownQuest;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.virtualcompanion;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * QuestHistoryActivity
+ *
+ * Every completed quest with its date and reward, newest first, under
+ * the profile's quest streak. Opened from the history icon on the quests
+ * screen.
+ *
+ * Pages of PAGE_SIZE are read by id (keyset, no OFFSET) as the user
+ * scrolls, so each query costs the same however long the history is,
+ * and only what was scrolled to is ever in memory.
+ */
+public class QuestHistoryActivity extends BaseActivity {
+
+    private static final int PAGE_SIZE = 50;
+
+    private DatabaseRepository repository;
+    private QuestHistoryAdapter adapter;
+    private RecyclerView historyRecyclerView;
+    private TextView emptyStateMessage;
+    private TextView streakBadge;
+
+    private List<QuestHistoryEntry> loaded = new ArrayList<>();
+    private boolean loadingPage;
+    private boolean historyComplete;
+
+    // Bumped on reload; pages for an older load are dropped
+    private int loadSequence;
+    private Future<?> pendingLoad;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_quest_history);
+
+        repository = DatabaseRepository.get(this);
+
+        ImageView backButton = findViewById(R.id.backButton);
+        emptyStateMessage = findViewById(R.id.emptyStateMessage);
+        streakBadge = findViewById(R.id.streakBadge);
+        historyRecyclerView = findViewById(R.id.historyRecyclerView);
+
+        historyRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new QuestHistoryAdapter();
+        historyRecyclerView.setAdapter(adapter);
+        historyRecyclerView.addOnScrollListener(new LoadMoreScrollListener() {
+            @Override
+            protected void loadMore() {
+                loadNextPage();
+            }
+        });
+
+        backButton.setOnClickListener(v -> {
+            finish();
+            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        reload();
+        repository.getStreak(this::showStreak);
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+        }
+        super.onDestroy();
+    }
+
+    // ================= PAGING =================
+
+    /**
+     * Read the newest entries again - as many as are already shown, in one
+     * query - so the list stays where it was and new completions slide in
+     */
+    private void reload() {
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+        }
+
+        final int sequence = ++loadSequence;
+        final int count = Math.max(PAGE_SIZE, loaded.size());
+        loadingPage = true;
+
+        pendingLoad = repository.getQuestHistoryPage(Long.MAX_VALUE, count, entries -> {
+            if (sequence != loadSequence || isFinishing() || isDestroyed()) {
+                return;
+            }
+            loadingPage = false;
+            loaded = new ArrayList<>(entries);
+            historyComplete = entries.size() < count;
+            showHistory();
+        });
+    }
+
+    private void loadNextPage() {
+        if (loadingPage || historyComplete || loaded.isEmpty()) {
+            return;
+        }
+
+        final int sequence = loadSequence;
+        long beforeId = loaded.get(loaded.size() - 1).getId();
+        loadingPage = true;
+
+        pendingLoad = repository.getQuestHistoryPage(beforeId, PAGE_SIZE, page -> {
+            if (sequence != loadSequence || isFinishing() || isDestroyed()) {
+                return;
+            }
+            loadingPage = false;
+            loaded.addAll(page);
+            historyComplete = page.size() < PAGE_SIZE;
+            showHistory();
+        });
+    }
+
+    // ================= STREAK =================
+
+    /**
+     * From the in-memory checkpoint - never reads the history
+     */
+    private void showStreak(StreakTracker streak) {
+        if (isFinishing() || isDestroyed()) return;
+
+        if (streak.getBest() == 0) {
+            streakBadge.setVisibility(View.GONE);
+            return;
+        }
+
+        int current = streak.getCurrent(AppClock.get().today());
+        streakBadge.setText(current + "-day streak   Best: " + streak.getBest());
+        streakBadge.setVisibility(View.VISIBLE);
+    }
+
+    private void showHistory() {
+        if (loaded.isEmpty()) {
+            historyRecyclerView.setVisibility(View.GONE);
+            emptyStateMessage.setVisibility(View.VISIBLE);
+        } else {
+            emptyStateMessage.setVisibility(View.GONE);
+            historyRecyclerView.setVisibility(View.VISIBLE);
+        }
+
+        // ListAdapter keeps the list it is given - hand it a copy
+        adapter.submitList(new ArrayList<>(loaded));
+    }
+}
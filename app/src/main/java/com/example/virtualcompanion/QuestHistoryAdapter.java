@@ -0,0 +1,88 @@
+package com.example.virtualcompanion;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Objects;
+
+/**
+ * QuestHistoryAdapter
+ *
+ * Completed quests, newest first. A ListAdapter: each submitList()
+ * is diffed off the main thread, so appending a page only inserts
+ * the new rows.
+ */
+public class QuestHistoryAdapter extends ListAdapter<QuestHistoryEntry, QuestHistoryAdapter.HistoryViewHolder> {
+
+    private static final DiffUtil.ItemCallback<QuestHistoryEntry> DIFF =
+            new DiffUtil.ItemCallback<QuestHistoryEntry>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull QuestHistoryEntry a, @NonNull QuestHistoryEntry b) {
+                    return a.getId() == b.getId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull QuestHistoryEntry a, @NonNull QuestHistoryEntry b) {
+                    // Completions never change; only the quest text can (catalog update)
+                    return a.getReward() == b.getReward()
+                            && a.getCompletedAt() == b.getCompletedAt()
+                            && Objects.equals(a.getTitle(), b.getTitle())
+                            && Objects.equals(a.getMood(), b.getMood());
+                }
+            };
+
+    public QuestHistoryAdapter() {
+        super(DIFF);
+    }
+
+    @NonNull
+    @Override
+    public HistoryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_quest_history, parent, false);
+        return new HistoryViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull HistoryViewHolder holder, int position) {
+        QuestHistoryEntry entry = getItem(position);
+        Context context = holder.itemView.getContext();
+
+        holder.title.setText(entry.getTitle());
+        holder.reward.setText("+" + entry.getReward());
+
+        String when = entry.hasCompletedAt()
+                ? DateUtils.formatDateTime(context, entry.getCompletedAt(),
+                        DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME | DateUtils.FORMAT_ABBREV_MONTH)
+                : "Before history was kept";
+        holder.details.setText(capitalize(entry.getMood()) + " - " + when);
+    }
+
+    private static String capitalize(String mood) {
+        return mood.isEmpty() ? mood : Character.toUpperCase(mood.charAt(0)) + mood.substring(1);
+    }
+
+    // ViewHolder class
+    public static class HistoryViewHolder extends RecyclerView.ViewHolder {
+        TextView title;
+        TextView details;
+        TextView reward;
+
+        public HistoryViewHolder(@NonNull View itemView) {
+            super(itemView);
+
+            title = itemView.findViewById(R.id.historyTitle);
+            details = itemView.findViewById(R.id.historyDetails);
+            reward = itemView.findViewById(R.id.historyReward);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.virtualcompanion;
+
+/**
+ * QuestHistoryEntry
+ *
+ * One completed quest in the history (a quest_completion row):
+ * - Which quest, with its title and mood
+ * - The coins it paid
+ * - When it was completed (UNKNOWN_TIME if before history was kept)
+ */
+public final class QuestHistoryEntry {
+
+    public static final long UNKNOWN_TIME = -1;
+
+    private final long id;
+    private final int questId;
+    private final String title;
+    private final String mood;
+    private final int reward;
+    private final long completedAt;
+
+    public QuestHistoryEntry(long id, int questId, String title, String mood, int reward, long completedAt) {
+        this.id = id;
+        this.questId = questId;
+        this.title = title;
+        this.mood = mood;
+        this.reward = reward;
+        this.completedAt = completedAt;
+    }
+
+    // ================= GETTERS =================
+
+    /**
+     * quest_completion.id - also the paging key
+     */
+    public long getId() {
+        return id;
+    }
+
+    public int getQuestId() {
+        return questId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getMood() {
+        return mood;
+    }
+
+    public int getReward() {
+        return reward;
+    }
+
+    /**
+     * ms since epoch, or UNKNOWN_TIME
+     */
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    public boolean hasCompletedAt() {
+        return completedAt != UNKNOWN_TIME;
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.virtualcompanion;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * QuestSampler
+ *
+ * Picks quest ids for one profile's sessions without touching the database:
+ * - Keeps every mood's quest ids plus the profile's counters per quest
+ *   (shown, completed, abandoned, last day shown, mood change after it)
+ * - Turns the counters into a weight per quest (see weight())
+ * - Draws from a precomputed alias table per mood, so each pick is O(1)
+ *
+ * Counters move one event at a time (recordShown, recordCompleted, ...):
+ * an event touches one quest and marks its mood's table stale. A stale
+ * table - or one built on an earlier day, since "days since shown" has
+ * moved on - is rebuilt from the counters in memory on the next draw,
+ * O(quests in the mood). History is never read again.
+ *
+ * A "position" is how many ids have already been drawn for the mood
+ * today. A quest is not drawn twice in a day until the mood's pool runs
+ * out: once fewer than k unused ids are left, the next draw starts a new
+ * round (same behaviour as the old "all quests used today - reset
+ * history"). Draws are seeded from (day, mood, position), so the same
+ * counters and day always give the same quests.
+ *
+ * Plain Java (no Android classes) so it can be unit tested on the JVM.
+ */
+public final class QuestSampler {
+
+    // lastShownDay of a quest never shown
+    static final long NEVER = Long.MIN_VALUE;
+
+    // Days after being shown until a quest is back to full weight
+    static final int RECOVERY_DAYS = 7;
+
+    // Weight left for a quest shown today (never 0 - a small pool must still fill)
+    static final double MIN_FRESHNESS = 0.1;
+
+    // Rejected picks (ids already used) before falling back to a scan of the rest
+    private static final int MAX_REJECTIONS_PER_ID = 32;
+
+    private final Map<String, Pool> pools = new HashMap<>();
+
+    // Quest id -> its mood's pool and index there
+    private final Map<Integer, Pool> poolOf = new HashMap<>();
+    private final Map<Integer, Integer> indexOf = new HashMap<>();
+
+    public QuestSampler(Map<String, int[]> idsByMood) {
+        for (Map.Entry<String, int[]> entry : idsByMood.entrySet()) {
+            int[] ids = entry.getValue().clone();
+            Arrays.sort(ids); // draws must not depend on the caller's order
+
+            Pool pool = new Pool(ids);
+            pools.put(entry.getKey(), pool);
+            for (int i = 0; i < ids.length; i++) {
+                poolOf.put(ids[i], pool);
+                indexOf.put(ids[i], i);
+            }
+        }
+    }
+
+    /**
+     * Number of quests known for a mood
+     */
+    public int size(String mood) {
+        Pool pool = pools.get(mood);
+        return pool == null ? 0 : pool.ids.length;
+    }
+
+    // ================= EVENTS =================
+
+    /**
+     * Set a quest's counters as stored (quest_stats row)
+     */
+    synchronized void load(int questId, int shown, int completed, int abandoned, long lastShownDay,
+                           int moodGainTotal, int moodGainCount) {
+        Pool pool = poolOf.get(questId);
+        if (pool == null) return;
+
+        int i = indexOf.get(questId);
+        pool.shown[i] = shown;
+        pool.completed[i] = completed;
+        pool.abandoned[i] = abandoned;
+        pool.lastShownDay[i] = lastShownDay;
+        pool.moodGainTotal[i] = moodGainTotal;
+        pool.moodGainCount[i] = moodGainCount;
+        pool.table = null;
+    }
+
+    /**
+     * The quest became part of a session on epochDay
+     */
+    public synchronized void recordShown(int questId, long epochDay) {
+        Pool pool = poolOf.get(questId);
+        if (pool == null) return;
+
+        int i = indexOf.get(questId);
+        pool.shown[i]++;
+        pool.lastShownDay[i] = epochDay;
+        pool.table = null;
+    }
+
+    public synchronized void recordCompleted(int questId) {
+        Pool pool = poolOf.get(questId);
+        if (pool == null) return;
+
+        pool.completed[indexOf.get(questId)]++;
+        pool.table = null;
+    }
+
+    /**
+     * The quest's timer was started but the quest was left before completing
+     */
+    public synchronized void recordAbandoned(int questId) {
+        Pool pool = poolOf.get(questId);
+        if (pool == null) return;
+
+        pool.abandoned[indexOf.get(questId)]++;
+        pool.table = null;
+    }
+
+    /**
+     * The first mood logged after completing the quest (see moodGain())
+     */
+    public synchronized void recordMoodGain(int questId, int gain) {
+        Pool pool = poolOf.get(questId);
+        if (pool == null) return;
+
+        int i = indexOf.get(questId);
+        pool.moodGainTotal[i] += gain;
+        pool.moodGainCount[i]++;
+        pool.table = null;
+    }
+
+    // ================= WEIGHTS =================
+
+    /**
+     * How much better a mood got: happy = +1, neutral = 0, sad/angry/anxious = -1,
+     * after minus before, so -2..2. Values are mood table values (1-5).
+     */
+    static int moodGain(int before, int after) {
+        return valence(after) - valence(before);
+    }
+
+    private static int valence(int mood) {
+        switch (mood) {
+            case 2:  // happy
+                return 1;
+            case 1:  // neutral
+                return 0;
+            default: // sad, angry, anxious
+                return -1;
+        }
+    }
+
+    /**
+     * Relative chance of drawing a quest. With no history every quest
+     * weighs 1, so a new profile gets the old uniform draws.
+     * - completion rate: (completed + 1) / (shown + 2), 0.5 with no data
+     * - abandoned share of started timers lowers it, down to half
+     * - average mood gain after it (-2..2) moves it by 25% a step
+     * - a quest shown in the last RECOVERY_DAYS days is scaled down
+     */
+    static double weight(int shown, int completed, int abandoned, long daysSinceShown,
+                         int moodGainTotal, int moodGainCount) {
+        double completionRate = Math.min(1.0, (completed + 1.0) / (shown + 2.0));
+        double abandonRate = abandoned / (completed + abandoned + 1.0);
+        double moodGain = moodGainCount == 0 ? 0 : (double) moodGainTotal / moodGainCount;
+        double freshness = Math.max(MIN_FRESHNESS, Math.min(1.0, (double) daysSinceShown / RECOVERY_DAYS));
+
+        return (0.5 + completionRate)
+                * (1.0 - 0.5 * abandonRate)
+                * (1.0 + 0.25 * moodGain)
+                * freshness;
+    }
+
+    /**
+     * A quest's current weight (0 if unknown)
+     */
+    synchronized double weightOf(int questId, long epochDay) {
+        Pool pool = poolOf.get(questId);
+        return pool == null ? 0 : pool.weight(indexOf.get(questId), epochDay);
+    }
+
+    // ================= DRAWS =================
+
+    /**
+     * Draw up to count distinct ids for a mood.
+     *
+     * @param epochDay   days since 1970-01-01 (local time), used as the seed
+     * @param usedToday  ids already drawn for this mood on that day, in slot order
+     *                   (its length is the position)
+     */
+    public synchronized int[] draw(String mood, long epochDay, int[] usedToday, int count) {
+        Pool pool = pools.get(mood);
+        if (pool == null || pool.ids.length == 0 || count <= 0) {
+            return new int[0];
+        }
+
+        int n = pool.ids.length;
+        int take = Math.min(count, n);
+        int position = usedToday.length;
+
+        // Whole draws that fit in one round; the leftover ids are skipped
+        int perRound = (n / take) * take;
+        int roundStart = (position / perRound) * perRound;
+        if (position - roundStart + take > perRound) {
+            roundStart = position; // new round - nothing used in it yet
+        }
+
+        boolean[] used = new boolean[n];
+        for (int p = roundStart; p < position; p++) {
+            Integer i = pool == poolOf.get(usedToday[p]) ? indexOf.get(usedToday[p]) : null;
+            if (i != null) {
+                used[i] = true;
+            }
+        }
+
+        AliasTable table = pool.table(epochDay);
+        Random random = new Random(seed(epochDay, mood, position));
+        int[] drawn = new int[take];
+        int found = 0;
+
+        for (int tries = 0; found < take && tries < take * MAX_REJECTIONS_PER_ID; tries++) {
+            int i = table.sample(random);
+            if (!used[i]) {
+                used[i] = true;
+                drawn[found++] = pool.ids[i];
+            }
+        }
+
+        // Nearly everything left is light (or already used) - pick from the rest directly
+        while (found < take) {
+            int i = pool.pickUnused(used, epochDay, random);
+            if (i < 0) break;
+            used[i] = true;
+            drawn[found++] = pool.ids[i];
+        }
+
+        return found == take ? drawn : Arrays.copyOf(drawn, found);
+    }
+
+    private static long seed(long epochDay, String mood, int position) {
+        long seed = epochDay;
+        seed = seed * 1_000_003L + mood.hashCode();
+        seed = seed * 1_000_003L + position;
+        return seed;
+    }
+
+    /**
+     * One mood's quests, their counters and the alias table over them
+     */
+    private static final class Pool {
+        final int[] ids;
+        final int[] shown;
+        final int[] completed;
+        final int[] abandoned;
+        final long[] lastShownDay;
+        final int[] moodGainTotal;
+        final int[] moodGainCount;
+
+        // null = stale; rebuilt on the next draw
+        AliasTable table;
+        long tableDay;
+
+        Pool(int[] ids) {
+            int n = ids.length;
+            this.ids = ids;
+            shown = new int[n];
+            completed = new int[n];
+            abandoned = new int[n];
+            lastShownDay = new long[n];
+            moodGainTotal = new int[n];
+            moodGainCount = new int[n];
+            Arrays.fill(lastShownDay, NEVER);
+        }
+
+        double weight(int i, long epochDay) {
+            long daysSinceShown = lastShownDay[i] == NEVER ? RECOVERY_DAYS : epochDay - lastShownDay[i];
+            return QuestSampler.weight(shown[i], completed[i], abandoned[i], daysSinceShown,
+                    moodGainTotal[i], moodGainCount[i]);
+        }
+
+        AliasTable table(long epochDay) {
+            if (table == null || tableDay != epochDay) {
+                double[] weights = new double[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    weights[i] = weight(i, epochDay);
+                }
+                table = new AliasTable(weights);
+                tableDay = epochDay;
+            }
+            return table;
+        }
+
+        /**
+         * Weighted pick among the unused ids by a linear scan, -1 if none are left
+         */
+        int pickUnused(boolean[] used, long epochDay, Random random) {
+            double total = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (!used[i]) total += weight(i, epochDay);
+            }
+
+            double target = random.nextDouble() * total;
+            int last = -1;
+            for (int i = 0; i < ids.length; i++) {
+                if (used[i]) continue;
+                last = i;
+                target -= weight(i, epochDay);
+                if (target < 0) return i;
+            }
+            return last;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.virtualcompanion;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * QuestSearchActivity
+ *
+ * Search and browse the whole quest catalog, whatever today's mood, and
+ * start any quest from the results. Opened from the search icon on the
+ * quests screen.
+ *
+ * Empty search browses the catalog, loaded PAGE_SIZE quests at a time as
+ * the user scrolls. Searching runs on the I/O thread against the
+ * quest_fts index. Typing waits SEARCH_DELAY_MS for a pause, cancels a
+ * search that hasn't started yet and ignores results for text that has
+ * changed since.
+ */
+public class QuestSearchActivity extends BaseActivity {
+
+    private static final int REQUEST_CODE_QUEST = 1001;
+    private static final long SEARCH_DELAY_MS = 150;
+    private static final int PAGE_SIZE = 50;
+
+    private DatabaseRepository repository;
+    private QuestSearchAdapter adapter;
+    private RecyclerView resultsRecyclerView;
+    private TextView emptyStateMessage;
+    private EditText searchInput;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable runSearch = this::search;
+
+    // Latest search sent; results from older ones are dropped
+    private int searchSequence;
+    private Future<?> pendingSearch;
+    private String shownText;
+
+    // Browsing: catalog pages loaded so far
+    private List<Quest> browsed = new ArrayList<>();
+    private boolean loadingPage;
+    private boolean catalogComplete = true;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_quest_search);
+
+        repository = DatabaseRepository.get(this);
+
+        ImageView backButton = findViewById(R.id.backButton);
+        searchInput = findViewById(R.id.searchInput);
+        emptyStateMessage = findViewById(R.id.emptyStateMessage);
+        resultsRecyclerView = findViewById(R.id.searchResultsRecyclerView);
+
+        resultsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new QuestSearchAdapter();
+        resultsRecyclerView.setAdapter(adapter);
+        resultsRecyclerView.addOnScrollListener(new LoadMoreScrollListener() {
+            @Override
+            protected void loadMore() {
+                loadNextCatalogPage();
+            }
+        });
+
+        backButton.setOnClickListener(v -> {
+            finish();
+            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+        });
+
+        searchInput.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(runSearch);
+                handler.postDelayed(runSearch, SEARCH_DELAY_MS);
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Progress may have changed in QuestSessionActivity
+        search();
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+
+        if (requestCode == REQUEST_CODE_QUEST && resultCode == QuestSessionActivity.RESULT_QUEST_COMPLETED) {
+            Toast.makeText(this, "Quest completed!", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        handler.removeCallbacks(runSearch);
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
+        super.onDestroy();
+    }
+
+    // ================= SEARCH =================
+
+    /**
+     * Show results for the current text. For the same text again (back
+     * from a quest) the rows are reloaded in place, keeping the scroll
+     * position; only changed rows are redrawn.
+     */
+    private void search() {
+        handler.removeCallbacks(runSearch);
+
+        // A queued search or page for older text is no longer worth running
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
+
+        final int sequence = ++searchSequence;
+        final String text = searchInput.getText().toString();
+        final boolean newText = !text.equals(shownText);
+
+        if (QuestSearchQuery.toMatchExpression(text) == null) {
+            // Browse: reload as many quests as are already on screen (one query)
+            final int count = newText ? PAGE_SIZE : Math.max(PAGE_SIZE, browsed.size());
+            loadingPage = true;
+            pendingSearch = repository.getQuestCatalogPage(0, count, quests -> {
+                if (sequence != searchSequence || isFinishing() || isDestroyed()) {
+                    return;
+                }
+                loadingPage = false;
+                browsed = new ArrayList<>(quests);
+                catalogComplete = quests.size() < count;
+                showResults(text, toResults(browsed), newText);
+            });
+            return;
+        }
+
+        // Search: the best SEARCH_RESULT_LIMIT matches, no paging
+        loadingPage = false;
+        catalogComplete = true;
+        browsed = new ArrayList<>();
+
+        pendingSearch = repository.searchQuests(text, results -> {
+            if (sequence != searchSequence || isFinishing() || isDestroyed()) {
+                return;
+            }
+            showResults(text, results, newText);
+        });
+    }
+
+    /**
+     * Append the next catalog page (browsing only, one page at a time)
+     */
+    private void loadNextCatalogPage() {
+        if (loadingPage || catalogComplete || browsed.isEmpty()) {
+            return;
+        }
+
+        final int sequence = searchSequence;
+        int afterId = browsed.get(browsed.size() - 1).getId();
+        loadingPage = true;
+
+        pendingSearch = repository.getQuestCatalogPage(afterId, PAGE_SIZE, page -> {
+            if (sequence != searchSequence || isFinishing() || isDestroyed()) {
+                return;
+            }
+            loadingPage = false;
+            browsed.addAll(page);
+            catalogComplete = page.size() < PAGE_SIZE;
+            showResults(shownText, toResults(browsed), false);
+        });
+    }
+
+    private static List<QuestSearchResult> toResults(List<Quest> quests) {
+        List<QuestSearchResult> results = new ArrayList<>(quests.size());
+        for (Quest quest : quests) {
+            results.add(new QuestSearchResult(quest, null, null, 0));
+        }
+        return results;
+    }
+
+    private void showResults(String text, List<QuestSearchResult> results, boolean scrollToTop) {
+        shownText = text;
+
+        if (results.isEmpty()) {
+            resultsRecyclerView.setVisibility(View.GONE);
+            emptyStateMessage.setVisibility(View.VISIBLE);
+        } else {
+            emptyStateMessage.setVisibility(View.GONE);
+            resultsRecyclerView.setVisibility(View.VISIBLE);
+        }
+
+        adapter.updateResults(results);
+        if (scrollToTop) {
+            resultsRecyclerView.scrollToPosition(0);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.virtualcompanion;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.StyleSpan;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * QuestSearchAdapter
+ *
+ * The quest cards of QuestsAdapter (same Start Quest dialog), with the
+ * words that matched the search highlighted in title and description.
+ */
+public class QuestSearchAdapter extends QuestsAdapter {
+
+    private static final int HIGHLIGHT_COLOR = 0x66FFC107; // translucent amber
+
+    private List<QuestSearchResult> results = new ArrayList<>();
+
+    // Results being replaced, while updateResults diffs the lists
+    private List<QuestSearchResult> previousResults;
+
+    public QuestSearchAdapter() {
+        super(new ArrayList<>());
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull QuestViewHolder holder, int position) {
+        super.onBindViewHolder(holder, position);
+
+        QuestSearchResult result = results.get(position);
+        if (result.getTitleSnippet() != null) {
+            holder.questTitle.setText(highlight(result.getTitleSnippet()));
+        }
+        if (result.getDescriptionSnippet() != null) {
+            holder.questDescription.setText(highlight(result.getDescriptionSnippet()));
+        }
+    }
+
+    // Method to update the list
+    public void updateResults(List<QuestSearchResult> newResults) {
+        previousResults = results;
+        results = newResults;
+
+        List<Quest> quests = new ArrayList<>(newResults.size());
+        for (QuestSearchResult result : newResults) {
+            quests.add(result.getQuest());
+        }
+        updateQuests(quests);
+
+        previousResults = null;
+    }
+
+    @Override
+    protected boolean sameContents(Quest a, Quest b, int oldPosition, int newPosition) {
+        // Same quest, but other words may be highlighted now
+        QuestSearchResult before = previousResults.get(oldPosition);
+        QuestSearchResult after = results.get(newPosition);
+        return super.sameContents(a, b, oldPosition, newPosition)
+                && Objects.equals(before.getTitleSnippet(), after.getTitleSnippet())
+                && Objects.equals(before.getDescriptionSnippet(), after.getDescriptionSnippet());
+    }
+
+    /**
+     * Drop the MATCH_START / MATCH_END markers, styling the text between them
+     */
+    private static CharSequence highlight(String snippet) {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        int matchStart = -1;
+
+        for (int i = 0; i < snippet.length(); i++) {
+            char ch = snippet.charAt(i);
+            if (ch == QuestSearchResult.MATCH_START) {
+                matchStart = text.length();
+            } else if (ch == QuestSearchResult.MATCH_END && matchStart >= 0) {
+                text.setSpan(new StyleSpan(Typeface.BOLD), matchStart, text.length(),
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                text.setSpan(new BackgroundColorSpan(HIGHLIGHT_COLOR), matchStart, text.length(),
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                matchStart = -1;
+            } else {
+                text.append(ch);
+            }
+        }
+        return text;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.virtualcompanion;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Locale;
+
+/**
+ * QuestSearchQuery
+ *
+ * The two halves of quest search that don't need a database:
+ * - Turning what the user typed into an FTS4 MATCH expression
+ * - Scoring a row from its matchinfo() blob (FTS4 has no built-in rank)
+ *
+ * Kept apart from DatabaseManager so they can be unit tested on the JVM.
+ */
+final class QuestSearchQuery {
+
+    // quest_fts column weights: a hit in the title counts 3x a description hit
+    private static final double[] COLUMN_WEIGHTS = {3.0, 1.0};
+
+    private QuestSearchQuery() {
+    }
+
+    /**
+     * Build a MATCH expression, or null if there is nothing to search for.
+     *
+     * Every word must match. The last word may still be half typed, so it
+     * also matches as a prefix: "box brea" becomes  box brea OR brea*
+     * (OR binds tighter than the implicit AND). Complete words are left
+     * bare so the porter stemmer sees them - "breathing" finds "breathe".
+     *
+     * Only letters and digits are kept, lower-cased, so nothing the user
+     * types can become query syntax (quotes, NEAR, NOT, -, ...).
+     */
+    static String toMatchExpression(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        String[] words = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+
+        StringBuilder match = new StringBuilder();
+        String last = null;
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (last != null) {
+                match.append(last).append(' ');
+            }
+            last = word;
+        }
+
+        if (last == null) {
+            return null;
+        }
+
+        return match.append(last).append(" OR ").append(last).append('*').toString();
+    }
+
+    /**
+     * Relevance of one row from matchinfo(quest_fts, 'pcx'): for every
+     * phrase and column, this row's hits over the hits in all rows, so
+     * rare words weigh more than words every quest uses.
+     *
+     * Layout (native-endian 32-bit ints): phrase count p, column count c,
+     * then for each phrase and column {hits this row, hits all rows, rows with a hit}.
+     */
+    static double score(byte[] matchinfo) {
+        IntBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 2 + 3 * (phrase * columns + column);
+                int hitsThisRow = info.get(base);
+                int hitsAllRows = info.get(base + 1);
+                if (hitsThisRow > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    score += weight * hitsThisRow / hitsAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
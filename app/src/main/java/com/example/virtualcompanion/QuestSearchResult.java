@@ -0,0 +1,48 @@
+package com.example.virtualcompanion;
+
+/**
+ * QuestSearchResult
+ *
+ * One row of DatabaseManager.searchQuests():
+ * - The quest itself (any mood, with its current progress)
+ * - Title and description snippets with the matched words marked
+ * - Its relevance score (0 when browsing without a search)
+ *
+ * Matched words sit between MATCH_START and MATCH_END so the UI can
+ * style them; the snippets are null when browsing.
+ */
+public final class QuestSearchResult {
+
+    public static final char MATCH_START = '\u0002';
+    public static final char MATCH_END = '\u0003';
+
+    private final Quest quest;
+    private final String titleSnippet;
+    private final String descriptionSnippet;
+    private final double score;
+
+    public QuestSearchResult(Quest quest, String titleSnippet, String descriptionSnippet, double score) {
+        this.quest = quest;
+        this.titleSnippet = titleSnippet;
+        this.descriptionSnippet = descriptionSnippet;
+        this.score = score;
+    }
+
+    // ================= GETTERS =================
+
+    public Quest getQuest() {
+        return quest;
+    }
+
+    public String getTitleSnippet() {
+        return titleSnippet;
+    }
+
+    public String getDescriptionSnippet() {
+        return descriptionSnippet;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -8,6 +8,7 @@ import android.graphics.Color;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Bundle;
 import android.os.CountDownTimer;
+import android.os.SystemClock;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
 import android.util.Log;
@@ -41,8 +42,11 @@ public class QuestSessionActivity extends BaseActivity {
 
     private CountDownTimer countDownTimer;
     private long timeLeftInMillis;
+    private long sessionStartedAt = -1; // elapsedRealtime when the timer started, -1 = not started
 
     private Quest currentQuest;
+    private QuestCompletion completion; // Set once the quest is saved as done
+    private boolean completionRequested; // "Yes, I did it!" tapped (save may still be running)
     private int questPosition;
     private String questMood;
 
@@ -261,6 +265,7 @@ public class QuestSessionActivity extends BaseActivity {
         instructionText.startAnimation(fadeIn);
 
         long timerDuration = currentQuest.getTimerMinutes() * 60 * 1000;
+        sessionStartedAt = SystemClock.elapsedRealtime();
         startCountdown(timerDuration);
     }
 
@@ -398,34 +403,16 @@ public class QuestSessionActivity extends BaseActivity {
                 .setTitle("Quest Complete?")
                 .setMessage("Did you complete this quest successfully?")
                 .setPositiveButton("Yes, I did it!", (dialog, which) -> {
-                    markQuestAsCompleted();
-
-                    // ========== CHECK IF ALL QUESTS ARE COMPLETE ==========
-                    DatabaseManager db = DatabaseManager.get(this);
-                    if (db.areAllCurrentQuestsComplete()) {
-                        android.util.Log.d(TAG, "ALL QUESTS COMPLETE! Redirecting to MoodActivity.");
-
-                        // Mark that first quest set was completed today
-                        db.markFirstQuestCompleted();
-
-                        // Clear the quest session
-                        db.clearCurrentQuestSession();
-
-                        // Restore music
-                        MusicManager.restorePreQuestMusic(this);
-
-                        // DIRECTLY GO TO MOOD ACTIVITY
-                        Intent intent = new Intent(this, MoodActivity.class);
-                        intent.putExtra("flow", "QUEST_COMPLETE");
-                        intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-                        startActivity(intent);
-                        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-                        finish();
-                    } else {
-                        // Not all quests done, just go back normally
-                        android.util.Log.d(TAG, "Quest complete, but more quests remaining.");
-                        finish();
-                    }
+                    actionButton.setEnabled(false);
+                    completionRequested = true;
+
+                    // Progress, reward and coins are written in one transaction off the UI thread
+                    long durationMs = sessionStartedAt < 0 ? -1 : SystemClock.elapsedRealtime() - sessionStartedAt;
+                    DatabaseRepository.get(this).completeQuest(
+                            currentQuest.getId(),
+                            durationMs,
+                            this::onQuestCompleted
+                    );
                 })
                 .setNegativeButton("Not yet", (dialog, which) -> {
                     Toast.makeText(this, "Keep going! You can do it!", Toast.LENGTH_SHORT).show();
@@ -434,20 +421,25 @@ public class QuestSessionActivity extends BaseActivity {
                 .show();
     }
 
-    // ================= MARK QUEST AS COMPLETED =================
-    private void markQuestAsCompleted() {
-        DatabaseManager db = DatabaseManager.get(this);
-
-        // Mark quest as done (set progress to 100%)
-        db.updateQuestProgress(currentQuest.getId(), 100);
+    // ================= QUEST COMPLETED =================
+    private void onQuestCompleted(QuestCompletion result) {
+        // Saved either way; a screen closed meanwhile has nothing to show
+        if (isFinishing() || isDestroyed()) return;
 
-        // Mark quest as rewarded
-        db.markQuestRewarded(currentQuest.getId());
+        if (!result.isKnownQuest()) {
+            // Catalog changed under the session - nothing to save it against
+            Toast.makeText(this, "This quest is no longer available", Toast.LENGTH_SHORT).show();
+            finish(); // onDestroy restores the music
+            return;
+        }
 
-        // Add coins
-        db.addCoins(currentQuest.getReward());
+        completion = result;
 
-        Toast.makeText(this, "+" + currentQuest.getReward() + " coins earned!", Toast.LENGTH_SHORT).show();
+        String message = "+" + result.getCoinsAwarded() + " coins earned!";
+        if (result.getStreakDays() > 1) {
+            message += " " + result.getStreakDays() + "-day streak!";
+        }
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
 
         // Return result
         Intent resultIntent = new Intent();
@@ -455,11 +447,26 @@ public class QuestSessionActivity extends BaseActivity {
         resultIntent.putExtra("quest_position", questPosition);
         setResult(RESULT_QUEST_COMPLETED, resultIntent);
 
-        // Restore the music that was playing before the quest (only if not all complete)
-        // If all complete, music will be restored in showCompletionDialog()
-        if (!db.areAllCurrentQuestsComplete()) {
-            Log.d(TAG, "Quest completed, restoring previous music");
-            MusicManager.restorePreQuestMusic(this);
+        // Restore the music that was playing before the quest
+        MusicManager.restorePreQuestMusic(this);
+
+        // ========== CHECK IF ALL QUESTS ARE COMPLETE ==========
+        if (result.isSessionComplete()) {
+            android.util.Log.d(TAG, "ALL QUESTS COMPLETE! Redirecting to MoodActivity.");
+
+            // completeQuest already cleared the session and marked the first quest set done
+
+            // DIRECTLY GO TO MOOD ACTIVITY
+            Intent intent = new Intent(this, MoodActivity.class);
+            intent.putExtra("flow", "QUEST_COMPLETE");
+            intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+            startActivity(intent);
+            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+            finish();
+        } else {
+            // Not all quests done, just go back normally
+            Log.d(TAG, "Quest complete, but more quests remaining.");
+            finish();
         }
     }
 
@@ -493,9 +500,13 @@ public class QuestSessionActivity extends BaseActivity {
         // Stop all animations
         stopAllAlerts();
 
-        // Only restore if quest was not completed (user pressed back)
-        DatabaseManager db = DatabaseManager.get(this);
-        if (!db.areAllCurrentQuestsComplete()) {
+        // Timer started but the quest was left - weighs it down in later draws
+        if (sessionStartedAt >= 0 && !completionRequested && !isChangingConfigurations()) {
+            DatabaseRepository.get(this).recordQuestAbandoned(currentQuest.getId(), null);
+        }
+
+        // Only restore if the session was not finished here (music already restored then)
+        if (completion == null || !completion.isSessionComplete()) {
             Log.d(TAG, "Activity destroyed without completing all quests, restoring previous music");
             MusicManager.restorePreQuestMusic(this);
         }
@@ -11,6 +11,7 @@ import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class QuestsActivity extends BaseActivity {
@@ -18,7 +19,8 @@ public class QuestsActivity extends BaseActivity {
     private RecyclerView questsRecyclerView;
     private QuestsAdapter questsAdapter;
     private DatabaseManager db;
-    private ImageView navHome, navQuests, navCustomize, settingsIcon;
+    private DatabaseRepository repository;
+    private ImageView navHome, navQuests, navCustomize, settingsIcon, searchIcon, historyIcon;
     private TextView emptyStateMessage;
     private int moodIndex;
 
@@ -30,17 +32,21 @@ public class QuestsActivity extends BaseActivity {
         setContentView(R.layout.activity_quests);
 
         db = DatabaseManager.get(this);
-
-        // Get mood index from intent or fallback to latest mood
-        moodIndex = getIntent().getIntExtra("selected_mood", -1);
-        if (moodIndex == -1) {
-            moodIndex = db.getLatestMood();
-        }
+        repository = DatabaseRepository.get(this);
 
         initializeViews();
         setupRecyclerView();
         setupNavigation();
         updateCoinDisplay();
+
+        // Get mood index from intent or fallback to latest mood (read off the UI thread)
+        moodIndex = getIntent().getIntExtra("selected_mood", -1);
+        if (moodIndex == -1) {
+            repository.getLatestMood(latestMood -> {
+                moodIndex = latestMood;
+                refreshQuestList();
+            });
+        }
     }
 
     @Override
@@ -74,6 +80,8 @@ public class QuestsActivity extends BaseActivity {
         navQuests = findViewById(R.id.navQuests);
         navCustomize = findViewById(R.id.navCustomize);
         settingsIcon = findViewById(R.id.settingsIcon);
+        searchIcon = findViewById(R.id.searchIcon);
+        historyIcon = findViewById(R.id.historyIcon);
     }
 
     // ================= RECYCLER VIEW =================
@@ -85,28 +93,8 @@ public class QuestsActivity extends BaseActivity {
 
         questsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        // Check if Happy mood AND first quest already completed today
-        if (moodIndex == 1 && db.hasCompletedFirstQuestToday()) {
-            // Show empty state for Happy mood (after first quest completion today)
-            showEmptyState("You're all done for today! Keep this happiness close!");
-            return;
-        }
-
-        // Get quests for current mood (including happy on first time today)
-        List<Quest> quests = db.getQuestsForMood(moodIndex);
-
-        if (quests.isEmpty()) {
-            showEmptyState("No quests available for your mood today!");
-            return;
-        }
-
-        // Hide empty state and show quest list
-        if (emptyStateMessage != null) {
-            emptyStateMessage.setVisibility(View.GONE);
-        }
-        questsRecyclerView.setVisibility(View.VISIBLE);
-
-        questsAdapter = new QuestsAdapter(quests);
+        // Start empty - quests are filled in by refreshQuestList() once loaded
+        questsAdapter = new QuestsAdapter(new ArrayList<>());
         questsRecyclerView.setAdapter(questsAdapter);
     }
 
@@ -123,29 +111,45 @@ public class QuestsActivity extends BaseActivity {
     }
 
     private void refreshQuestList() {
-        if (db != null) {
-            // Check if Happy mood AND first quest already completed today
-            if (moodIndex == 1 && db.hasCompletedFirstQuestToday()) {
-                showEmptyState("No quests available today!  Cherish your mood! \n Enjoy your day and check back tomorrow!");
-                return;
+        if (repository == null || questsRecyclerView == null || moodIndex == -1) {
+            return;
+        }
+
+        final int requestedMood = moodIndex;
+
+        // Load on the I/O thread; null means Happy mood is already done for today
+        repository.query("getQuestsForMood", () -> {
+            if (requestedMood == 1 && db.hasCompletedFirstQuestToday()) {
+                return null;
             }
+            return db.getQuestsForMood(requestedMood);
+        }, this::showQuests);
+    }
 
+    private void showQuests(List<Quest> updatedQuests) {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+
+        // Check if Happy mood AND first quest already completed today
+        if (updatedQuests == null) {
+            showEmptyState("No quests available today!  Cherish your mood! \n Enjoy your day and check back tomorrow!");
+            return;
+        }
 
-            List<Quest> updatedQuests = db.getQuestsForMood(moodIndex);
+        if (updatedQuests.isEmpty()) {
+            showEmptyState("No quests available for your mood today!");
+            return;
+        }
 
-            if (updatedQuests.isEmpty()) {
-                showEmptyState("No quests available for your mood today!");
-            } else {
-                // Hide empty state and show quest list
-                if (emptyStateMessage != null) {
-                    emptyStateMessage.setVisibility(View.GONE);
-                }
-                questsRecyclerView.setVisibility(View.VISIBLE);
-
-                if (questsAdapter != null) {
-                    questsAdapter.updateQuests(updatedQuests);
-                }
-            }
+        // Hide empty state and show quest list
+        if (emptyStateMessage != null) {
+            emptyStateMessage.setVisibility(View.GONE);
+        }
+        questsRecyclerView.setVisibility(View.VISIBLE);
+
+        if (questsAdapter != null) {
+            questsAdapter.updateQuests(updatedQuests);
         }
     }
 
@@ -163,6 +167,20 @@ public class QuestsActivity extends BaseActivity {
             });
         }
 
+        if (searchIcon != null) {
+            searchIcon.setOnClickListener(v -> {
+                startActivity(new Intent(this, QuestSearchActivity.class));
+                overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+            });
+        }
+
+        if (historyIcon != null) {
+            historyIcon.setOnClickListener(v -> {
+                startActivity(new Intent(this, QuestHistoryActivity.class));
+                overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+            });
+        }
+
         if (navHome != null) {
             navHome.setOnClickListener(v -> {
                 Intent intent = new Intent(this, MoodResultActivity.class);
@@ -199,8 +217,7 @@ public class QuestsActivity extends BaseActivity {
 
             // DEV cheat mode
             coinAmount.setOnLongClickListener(v -> {
-                db.addCoins(100);
-                updateCoinDisplay();
+                repository.addCoins(100, this::updateCoinDisplay);
                 Toast.makeText(this, "[DEV] +100 coins added", Toast.LENGTH_SHORT).show();
                 return true;
             });
@@ -13,11 +13,13 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 
 import java.util.List;
+import java.util.Objects;
 
 public class QuestsAdapter extends RecyclerView.Adapter<QuestsAdapter.QuestViewHolder> {
 
@@ -135,10 +137,46 @@ public class QuestsAdapter extends RecyclerView.Adapter<QuestsAdapter.QuestViewH
         return questsList.size();
     }
 
-    // Method to update the list
+    // Method to update the list - only the rows that changed are rebound
     public void updateQuests(List<Quest> newQuests) {
+        List<Quest> oldQuests = questsList;
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldQuests.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newQuests.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldQuests.get(oldPosition).getId() == newQuests.get(newPosition).getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return sameContents(oldQuests.get(oldPosition), newQuests.get(newPosition), oldPosition, newPosition);
+            }
+        });
+
         this.questsList = newQuests;
-        notifyDataSetChanged();
+        diff.dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Whether a row looks the same after an update (same quest id assumed).
+     * Subclasses that show more than the quest extend this.
+     */
+    protected boolean sameContents(Quest a, Quest b, int oldPosition, int newPosition) {
+        return a.getProgress() == b.getProgress()
+                && a.isRewarded() == b.isRewarded()
+                && a.getReward() == b.getReward()
+                && a.getTimerMinutes() == b.getTimerMinutes()
+                && Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getDescription(), b.getDescription());
     }
 
     // ViewHolder class
@@ -0,0 +1,38 @@
+package com.example.virtualcompanion;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * SchemaMigration
+ *
+ * One step in DatabaseHelper's upgrade path: the schema change that
+ * brings a database to {@link #version}. Steps run oldest first, all in
+ * the one transaction SQLiteOpenHelper opens around onUpgrade.
+ */
+final class SchemaMigration {
+
+    /**
+     * The change itself (no transaction handling - the caller owns it)
+     */
+    interface Step {
+        void apply(SQLiteDatabase db);
+    }
+
+    // Schema version this step upgrades to
+    final int version;
+
+    // Shown in the upgrade log
+    final String description;
+
+    private final Step step;
+
+    SchemaMigration(int version, String description, Step step) {
+        this.version = version;
+        this.description = description;
+        this.step = step;
+    }
+
+    void apply(SQLiteDatabase db) {
+        step.apply(db);
+    }
+}
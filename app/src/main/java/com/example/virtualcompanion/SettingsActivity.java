@@ -1,5 +1,6 @@
 package com.example.virtualcompanion;
 
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
@@ -10,16 +11,49 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.widget.SwitchCompat;
 
 import com.google.android.material.button.MaterialButton;
 
+import java.util.List;
+
 public class SettingsActivity extends BaseActivity {
 
     private boolean letterToastShown = false;
     private boolean maxToastShown = false;
     private boolean isEditing = false;
 
+    // Storage Access Framework pickers for backup / restore files
+    private final ActivityResultLauncher<String> backupPicker = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/octet-stream"),
+            uri -> {
+                if (uri == null) return; // cancelled
+                DatabaseRepository.get(this).exportBackup(uri, ok -> Toast.makeText(
+                        this, ok ? "Backup saved" : "Backup failed", Toast.LENGTH_SHORT).show());
+            });
+
+    private final ActivityResultLauncher<String[]> restorePicker = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if (uri == null) return; // cancelled
+                DatabaseRepository.get(this).restoreBackup(uri, ok -> {
+                    if (!ok) {
+                        Toast.makeText(this, "Not a valid backup - nothing changed", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+
+                    Toast.makeText(this, "Backup restored", Toast.LENGTH_SHORT).show();
+
+                    // Start over from the opening screen with the restored pet
+                    Intent intent = new Intent(this, OpeningActivity.class);
+                    intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TASK | Intent.FLAG_ACTIVITY_NEW_TASK);
+                    startActivity(intent);
+                    finish();
+                });
+            });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -208,18 +242,49 @@ public class SettingsActivity extends BaseActivity {
                 return;
             }
 
-            db.setName(name);
-            db.setGender(currentGender[0]);
+            saveButton.setEnabled(false);
 
-            // Navigate to home (MoodResultActivity) to immediately show updated pet
-            Intent intent = new Intent(this, MoodResultActivity.class);
-            intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-            startActivity(intent);
-            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-            finish();
+            DatabaseRepository repository = DatabaseRepository.get(this);
+            repository.setName(name, null);
+            repository.setGender(currentGender[0], () -> {
+                if (isFinishing() || isDestroyed()) return;
+
+                // Navigate to home (MoodResultActivity) to immediately show updated pet
+                Intent intent = new Intent(this, MoodResultActivity.class);
+                intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+                startActivity(intent);
+                overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+                finish();
+            });
         });
 
 
+        // ================= COMPANIONS =================
+
+        View switchProfileButton = findViewById(R.id.switchProfileButton);
+
+        if (switchProfileButton != null) {
+            switchProfileButton.setOnClickListener(v ->
+                    DatabaseRepository.get(this).getProfiles(this::showProfilePicker));
+        }
+
+
+        // ================= BACKUP =================
+
+        View backupButton = findViewById(R.id.backupButton);
+        View restoreButton = findViewById(R.id.restoreButton);
+
+        if (backupButton != null) {
+            backupButton.setOnClickListener(v ->
+                    backupPicker.launch("echo-backup-" + db.getTodayDate() + ".vcbk"));
+        }
+
+        if (restoreButton != null) {
+            restoreButton.setOnClickListener(v ->
+                    restorePicker.launch(new String[]{"*/*"}));
+        }
+
+
         // ================= SOUND =================
 
         SwitchCompat soundEffectsToggle =
@@ -255,6 +320,14 @@ public class SettingsActivity extends BaseActivity {
                 finish();
                 overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
             });
+
+            // DEV: Long press to see database call metrics (debug builds)
+            if (QueryMetrics.isEnabled()) {
+                backButton.setOnLongClickListener(v -> {
+                    startActivity(new Intent(this, QueryMetricsActivity.class));
+                    return true;
+                });
+            }
         }
 
 
@@ -304,6 +377,57 @@ public class SettingsActivity extends BaseActivity {
     }
 
 
+    // ================= COMPANIONS =================
+
+    /**
+     * Every companion plus "+ New companion"; picking one switches to it
+     */
+    private void showProfilePicker(List<UserState> profiles) {
+        if (isFinishing() || isDestroyed()) return;
+
+        long activeId = DatabaseManager.get(this).getActiveProfileId();
+        String[] names = new String[profiles.size() + 1];
+        for (int i = 0; i < profiles.size(); i++) {
+            UserState profile = profiles.get(i);
+            String name = profile.getName().isEmpty() ? "New companion" : profile.getName().toUpperCase();
+            names[i] = profile.getId() == activeId ? name + " (current)" : name;
+        }
+        names[profiles.size()] = "+ New companion";
+
+        new AlertDialog.Builder(this)
+                .setTitle("Switch companion")
+                .setItems(names, (dialog, which) -> {
+                    DatabaseRepository repository = DatabaseRepository.get(this);
+                    if (which < profiles.size()) {
+                        long profileId = profiles.get(which).getId();
+                        if (profileId != activeId) {
+                            repository.switchProfile(profileId, this::openProfile);
+                        }
+                    } else {
+                        repository.createProfile(profileId ->
+                                repository.switchProfile(profileId, this::openProfile));
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Start over on the switched-to companion's first screen
+     */
+    private void openProfile(StartupPipeline.Result next) {
+        if (isFinishing() || isDestroyed()) return;
+
+        Intent intent = new Intent(this, next.getDestination());
+        if (next.getMoodIndex() != -1) {
+            intent.putExtra("selected_mood", next.getMoodIndex());
+        }
+        intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TASK | Intent.FLAG_ACTIVITY_NEW_TASK);
+        startActivity(intent);
+        overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
+        finish();
+    }
+
     // ================= GENDER UI =================
 
     private void updateGenderButtonStates(
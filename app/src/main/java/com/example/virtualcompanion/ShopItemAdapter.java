@@ -17,7 +17,6 @@ public class ShopItemAdapter extends RecyclerView.Adapter<ShopItemAdapter.ItemVi
 
     private final int[] shopImages;
     private final int[] equipImages;
-    private final String[] prices;
     private final OnItemClickListener listener;
 
     private int selectedPosition = -1;
@@ -27,10 +26,9 @@ public class ShopItemAdapter extends RecyclerView.Adapter<ShopItemAdapter.ItemVi
         void onItemClick(int equipResId, int position);
     }
 
-    public ShopItemAdapter(int[] shopImages, int[] equipImages, String[] prices, OnItemClickListener listener) {
+    public ShopItemAdapter(int[] shopImages, int[] equipImages, OnItemClickListener listener) {
         this.shopImages = shopImages;
         this.equipImages = equipImages;
-        this.prices = prices;
         this.listener = listener;
     }
 
@@ -50,9 +48,10 @@ public class ShopItemAdapter extends RecyclerView.Adapter<ShopItemAdapter.ItemVi
         // Use INVISIBLE (not GONE) so all items keep the same height,
         // ensuring the RecyclerView measures tall enough for price tags
         // on every device regardless of which items are visible first.
-        String price = prices[position].trim();
-        
-        if (price.isEmpty() || price.equals("0")) {
+        // Prices come from ItemRegistry, the same ones purchase() charges.
+        int price = ItemRegistry.priceOf(equipImages[position]);
+
+        if (price == 0) {
             // Free items - keep space but hide price
             holder.priceContainer.setVisibility(View.INVISIBLE);
         } else {
@@ -66,7 +65,7 @@ public class ShopItemAdapter extends RecyclerView.Adapter<ShopItemAdapter.ItemVi
             } else {
                 // Not owned - show price
                 holder.priceContainer.setVisibility(View.VISIBLE);
-                holder.itemPrice.setText(prices[position]);
+                holder.itemPrice.setText(String.valueOf(price));
             }
         }
 
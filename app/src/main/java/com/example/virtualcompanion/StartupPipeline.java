@@ -0,0 +1,105 @@
+package com.example.virtualcompanion;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+
+/**
+ * StartupPipeline
+ *
+ * Everything OpeningActivity needs before it can leave, done off the UI
+ * thread while the "tap anywhere" animation plays:
+ * - (debug builds, on request) wipe all data for testing
+ * - Open the database and load the active profile's user row into
+ *   DatabaseManager's cache
+ * - Load the app state file and the wardrobe the first screens read
+ * - Decide which screen comes next (and its mood, if it needs one)
+ */
+public final class StartupPipeline {
+
+    private static final String TAG = "StartupPipeline";
+
+    /**
+     * Where to go after the opening screen
+     */
+    public static final class Result {
+        private final Class<? extends Activity> destination;
+        private final int moodIndex;
+
+        Result(Class<? extends Activity> destination, int moodIndex) {
+            this.destination = destination;
+            this.moodIndex = moodIndex;
+        }
+
+        public Class<? extends Activity> getDestination() {
+            return destination;
+        }
+
+        /**
+         * Latest mood for MoodResultActivity, -1 otherwise
+         */
+        public int getMoodIndex() {
+            return moodIndex;
+        }
+    }
+
+    private StartupPipeline() {
+    }
+
+    /**
+     * Run the whole pipeline (blocking - call from the I/O thread)
+     */
+    public static Result run(Context context, boolean resetForTesting) {
+        long start = SystemClock.elapsedRealtime();
+        DatabaseManager db = DatabaseManager.get(context);
+
+        if (resetForTesting) {
+            resetAllData(db);
+        }
+
+        // Opens the database (onCreate/onUpgrade/catalog check) and caches the user row
+        db.getUserState();
+
+        // One small file (first run: imports the old prefs XML files)
+        AppStateStore.get(context);
+
+        // Owned + equipped items for the pet layers, in one query
+        db.getWardrobe();
+
+        Result result = nextScreen(db);
+
+        android.util.Log.d(TAG, "Startup ready in " + (SystemClock.elapsedRealtime() - start)
+                + " ms -> " + result.getDestination().getSimpleName());
+        return result;
+    }
+
+    /**
+     * The first screen for the active profile: customization for a new
+     * companion, else the mood picker or today's mood result. Also used
+     * after a profile switch (blocking - call from the I/O thread).
+     */
+    static Result nextScreen(DatabaseManager db) {
+        if (!db.hasCustomized()) {
+            return new Result(CustomizeActivity.class, -1);
+        } else if (db.hasSelectedMoodToday()) {
+            return new Result(MoodResultActivity.class, db.getLatestMood());
+        } else {
+            return new Result(MoodActivity.class, -1);
+        }
+    }
+
+    /**
+     * TESTING ONLY - start over with an empty database and no saved prefs
+     */
+    private static void resetAllData(DatabaseManager db) {
+        android.util.Log.d(TAG, "========== TESTING MODE - FORCE COMPLETE RESET ==========");
+
+        // Fresh database file (tables and quests are recreated on open)
+        db.deleteDatabaseForTesting();
+
+        // Clear ALL saved app state (has_customized included)
+        db.resetAllAppState();
+
+        android.util.Log.d(TAG, "========== RESET COMPLETE ==========");
+    }
+}
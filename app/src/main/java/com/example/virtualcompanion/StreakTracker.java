@@ -0,0 +1,78 @@
+package com.example.virtualcompanion;
+
+/**
+ * StreakTracker
+ *
+ * A profile's quest streak: how many days in a row ended with at least
+ * one completed quest, and the longest such run. It is only a checkpoint
+ * (last day, current, best) - each completion moves it forward in O(1),
+ * so showing a streak never means reading the completion history.
+ *
+ * Instances are immutable. DatabaseManager keeps the profile's tracker in
+ * memory and writes the checkpoint to quest_streak in the same transaction
+ * as the completion that changed it.
+ */
+public final class StreakTracker {
+
+    // lastDay before any completion (never "yesterday" of a real day)
+    static final long NO_DAY = Long.MIN_VALUE / 2;
+
+    private final long lastDay;
+    private final int current;
+    private final int best;
+
+    StreakTracker(long lastDay, int current, int best) {
+        this.lastDay = lastDay;
+        this.current = current;
+        this.best = best;
+    }
+
+    static StreakTracker empty() {
+        return new StreakTracker(NO_DAY, 0, 0);
+    }
+
+    /**
+     * The tracker after a completion on the given epoch day. The same day
+     * again (or an earlier one, if the clock went back) changes nothing;
+     * the next day extends the streak; a later one starts a new streak.
+     */
+    StreakTracker record(long day) {
+        if (day <= lastDay) {
+            return this;
+        }
+
+        int next = day == lastDay + 1 ? current + 1 : 1;
+        return new StreakTracker(day, next, Math.max(best, next));
+    }
+
+    // ================= GETTERS =================
+
+    /**
+     * Days in a row up to today. The streak stays alive through today
+     * while yesterday had a completion; after that it is 0.
+     */
+    public int getCurrent(long today) {
+        return lastDay >= today - 1 ? current : 0;
+    }
+
+    /**
+     * Longest streak ever
+     */
+    public int getBest() {
+        return best;
+    }
+
+    /**
+     * Epoch day of the last completion, NO_DAY if none
+     */
+    long getLastDay() {
+        return lastDay;
+    }
+
+    /**
+     * Streak as of the last completion (what quest_streak stores)
+     */
+    int getStoredCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.virtualcompanion;
+
+/**
+ * UserState
+ *
+ * In-memory snapshot of one profile's user row (id, name, coins, gender).
+ * Instances are immutable - DatabaseManager swaps in a new snapshot
+ * after every write so readers never see a half-updated row.
+ */
+public final class UserState {
+
+    private final long id;
+    private final String name;
+    private final int coins;
+    private final String gender;
+
+    public UserState(long id, String name, int coins, String gender) {
+        this.id = id;
+        this.name = name;
+        this.coins = coins;
+        this.gender = gender;
+    }
+
+    // ================= GETTERS =================
+
+    /**
+     * Profile id (user row id)
+     */
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCoins() {
+        return coins;
+    }
+
+    public String getGender() {
+        return gender;
+    }
+
+    // ================= COPY WITH CHANGE =================
+
+    public UserState withName(String newName) {
+        return new UserState(id, newName, coins, gender);
+    }
+
+    public UserState withCoins(int newCoins) {
+        return new UserState(id, name, newCoins, gender);
+    }
+
+    public UserState withGender(String newGender) {
+        return new UserState(id, name, coins, newGender);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.virtualcompanion;
+
+import java.util.Arrays;
+
+/**
+ * Wardrobe
+ *
+ * Snapshot of the accessory table: which items are owned (one bit per
+ * ItemRegistry ordinal) and which item is equipped per type.
+ * Loaded by DatabaseManager in one query and replaced after every change,
+ * so the shop and the pet layers read it without touching the database.
+ */
+public final class Wardrobe {
+
+    private final long ownedBits;
+    private final int[] equipped; // ordinal per ItemRegistry.TYPES index, -1 = nothing
+
+    Wardrobe(long ownedBits, int[] equipped) {
+        this.ownedBits = ownedBits;
+        this.equipped = equipped;
+    }
+
+    static Wardrobe empty() {
+        int[] equipped = new int[ItemRegistry.TYPES.length];
+        Arrays.fill(equipped, -1);
+        return new Wardrobe(0, equipped);
+    }
+
+    public boolean isOwned(int ordinal) {
+        return (ownedBits & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Ordinal of the item equipped for a type, -1 if none
+     */
+    public int getEquipped(String type) {
+        int index = ItemRegistry.typeIndex(type);
+        return index < 0 ? -1 : equipped[index];
+    }
+
+    /**
+     * Drawable of the item equipped for a type, 0 if none
+     */
+    public int getEquippedDrawable(String type) {
+        int ordinal = getEquipped(type);
+        return ordinal < 0 ? 0 : ItemRegistry.get(ordinal).drawable;
+    }
+
+    // ================= COPIES (used by DatabaseManager after a write) =================
+
+    Wardrobe withOwned(int ordinal) {
+        return new Wardrobe(ownedBits | (1L << ordinal), equipped);
+    }
+
+    Wardrobe withEquipped(String type, int ordinal) {
+        int[] copy = equipped.clone();
+        copy[ItemRegistry.typeIndex(type)] = ordinal;
+        return new Wardrobe(ownedBits, copy);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.virtualcompanion;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives AppClock with a fake time source - no waiting for midnight.
+ */
+public class AppClockTest {
+
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final TimeZone MANILA = TimeZone.getTimeZone("Asia/Manila");     // UTC+8, no DST
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    // 2026-01-01T00:00:00Z
+    private static final long NEW_YEAR_UTC = 1767225600000L;
+
+    private long fakeNow;
+    private TimeZone originalDefault;
+
+    @Before
+    public void setUp() {
+        originalDefault = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(originalDefault);
+    }
+
+    @Test
+    public void todayFollowsLocalMidnight() {
+        AppClock clock = new AppClock(() -> fakeNow, MANILA);
+
+        // 2026-01-01 23:59:59.999 in Manila
+        fakeNow = NEW_YEAR_UTC + 16 * HOUR - 1;
+        assertEquals("2026-01-01", clock.todayKey());
+        long day = clock.today();
+
+        // One millisecond later it's the 2nd
+        fakeNow++;
+        assertEquals("2026-01-02", clock.todayKey());
+        assertEquals(day + 1, clock.today());
+    }
+
+    @Test
+    public void epochDayMatchesKey() {
+        AppClock clock = new AppClock(() -> fakeNow, TimeZone.getTimeZone("UTC"));
+
+        fakeNow = NEW_YEAR_UTC;
+        assertEquals(20454, clock.today()); // 2026-01-01
+        assertEquals("2026-01-01", clock.todayKey());
+        assertEquals(NEW_YEAR_UTC + 24 * HOUR, clock.nextDayStartMillis());
+    }
+
+    @Test
+    public void dstDayIs23Hours() {
+        AppClock clock = new AppClock(() -> fakeNow, NEW_YORK);
+
+        // 2026-03-08 (DST starts) 00:00 EST = 05:00Z
+        long marchEighth = 1772946000000L;
+        fakeNow = marchEighth + HOUR;
+        assertEquals("2026-03-08", clock.todayKey());
+        assertEquals(marchEighth + 23 * HOUR, clock.nextDayStartMillis());
+
+        fakeNow = marchEighth + 23 * HOUR;
+        assertEquals("2026-03-09", clock.todayKey());
+    }
+
+    @Test
+    public void clockGoingBackwardsIsNoticed() {
+        AppClock clock = new AppClock(() -> fakeNow, MANILA);
+
+        fakeNow = NEW_YEAR_UTC + 20 * HOUR; // Jan 2, 04:00 Manila
+        assertEquals("2026-01-02", clock.todayKey());
+
+        fakeNow = NEW_YEAR_UTC; // user sets the clock back to Jan 1
+        assertEquals("2026-01-01", clock.todayKey());
+    }
+
+    @Test
+    public void invalidatePicksUpZoneChange() {
+        TimeZone.setDefault(MANILA);
+        AppClock clock = new AppClock(() -> fakeNow, null);
+
+        fakeNow = NEW_YEAR_UTC + 18 * HOUR; // Jan 2 02:00 Manila, Jan 1 13:00 New York
+        assertEquals("2026-01-02", clock.todayKey());
+
+        // Travel west: the cached day still covers "now" until invalidated
+        TimeZone.setDefault(NEW_YORK);
+        assertEquals("2026-01-02", clock.todayKey());
+
+        clock.invalidate(); // ACTION_TIMEZONE_CHANGED
+        assertEquals("2026-01-01", clock.todayKey());
+    }
+
+    @Test
+    public void keyUsesAsciiDigits() {
+        Locale original = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("ar", "EG"));
+            AppClock clock = new AppClock(() -> NEW_YEAR_UTC, TimeZone.getTimeZone("UTC"));
+            assertEquals("2026-01-01", clock.todayKey());
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.virtualcompanion;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * AppStateStore file format, batching and atomic writes (plain JVM)
+ */
+public class AppStateStoreTest {
+
+    private static final AppStateStore.Key<Boolean> CUSTOMIZED = AppStateStore.booleanKey("has_customized", false);
+    private static final AppStateStore.Key<Integer> TOP = AppStateStore.intKey("outfit.top", 0);
+    private static final AppStateStore.Key<Long> COUNTER = AppStateStore.longKey("counter", -1L);
+    private static final AppStateStore.Key<String> NAME = AppStateStore.stringKey("pet.pet_name", "ECHO");
+    private static final AppStateStore.Key<Set<String>> OWNED = AppStateStore.stringSetKey("inventory.owned_items");
+
+    private File dir;
+    private File file;
+    private ManualFlusher flusher;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("app_state").toFile();
+        file = new File(dir, AppStateStore.FILE_NAME);
+        flusher = new ManualFlusher();
+    }
+
+    @After
+    public void tearDown() {
+        flusher.shutdownNow();
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void defaultsWhenUnset() {
+        AppStateStore store = new AppStateStore(file, flusher);
+        assertFalse(store.load());
+
+        assertEquals(Boolean.FALSE, store.get(CUSTOMIZED));
+        assertEquals(Integer.valueOf(0), store.get(TOP));
+        assertEquals("ECHO", store.get(NAME));
+        assertTrue(store.get(OWNED).isEmpty());
+        assertFalse(store.contains(NAME));
+    }
+
+    @Test
+    public void everyTypeSurvivesReload() throws IOException {
+        AppStateStore store = new AppStateStore(file, flusher);
+        store.edit()
+                .put(CUSTOMIZED, true)
+                .put(TOP, 2131165300)
+                .put(COUNTER, 1L << 40)
+                .put(NAME, "Mochi \u2764")
+                .put(OWNED, new HashSet<>(Arrays.asList("1", "2", "3")))
+                .apply();
+        store.flush();
+
+        AppStateStore reopened = new AppStateStore(file, flusher);
+        assertTrue(reopened.load());
+
+        assertEquals(Boolean.TRUE, reopened.get(CUSTOMIZED));
+        assertEquals(Integer.valueOf(2131165300), reopened.get(TOP));
+        assertEquals(Long.valueOf(1L << 40), reopened.get(COUNTER));
+        assertEquals("Mochi \u2764", reopened.get(NAME));
+        assertEquals(new HashSet<>(Arrays.asList("1", "2", "3")), reopened.get(OWNED));
+    }
+
+    @Test
+    public void burstOfEditsIsOneWrite() {
+        AppStateStore store = new AppStateStore(file, flusher);
+
+        for (int i = 0; i < 100; i++) {
+            store.put(TOP, i);
+        }
+
+        // Readers see the last value at once; the disk sees it once
+        assertEquals(Integer.valueOf(99), store.get(TOP));
+        assertEquals(1, flusher.tasks.size());
+        assertFalse(file.exists());
+
+        flusher.runAll();
+        assertTrue(file.exists());
+        assertTrue(flusher.tasks.isEmpty());
+
+        AppStateStore reopened = new AppStateStore(file, flusher);
+        reopened.load();
+        assertEquals(Integer.valueOf(99), reopened.get(TOP));
+    }
+
+    @Test
+    public void writeReplacesFileAndLeavesNoTemp() throws IOException {
+        AppStateStore store = new AppStateStore(file, flusher);
+        store.put(NAME, "A");
+        store.flush();
+        store.put(NAME, "B");
+        store.flush();
+
+        assertEquals(1, dir.listFiles().length);
+
+        AppStateStore reopened = new AppStateStore(file, flusher);
+        reopened.load();
+        assertEquals("B", reopened.get(NAME));
+    }
+
+    @Test
+    public void storedSetCannotBeChangedByCaller() {
+        AppStateStore store = new AppStateStore(file, flusher);
+        Set<String> owned = new HashSet<>(Arrays.asList("1"));
+        store.put(OWNED, owned);
+
+        owned.add("2");
+        assertEquals(1, store.get(OWNED).size());
+    }
+
+    @Test
+    public void removeAndClear() {
+        AppStateStore store = new AppStateStore(file, flusher);
+        store.edit().put(NAME, "Mochi").put(TOP, 5).apply();
+
+        store.remove(NAME);
+        assertEquals("ECHO", store.get(NAME));
+        assertEquals(Integer.valueOf(5), store.get(TOP));
+
+        store.edit().clear().put(CUSTOMIZED, true).apply();
+        assertEquals(Integer.valueOf(0), store.get(TOP));
+        assertEquals(Boolean.TRUE, store.get(CUSTOMIZED));
+    }
+
+    @Test
+    public void profileKeysAreSeparateExceptProfileOne() {
+        AppStateStore store = new AppStateStore(file, flusher);
+        AppStateStore.Key<Boolean> first = CUSTOMIZED.forProfile(DatabaseHelper.FIRST_PROFILE_ID);
+        AppStateStore.Key<Boolean> second = CUSTOMIZED.forProfile(2);
+
+        // Profile 1 keeps the values saved before there were profiles
+        store.put(CUSTOMIZED, true);
+        assertEquals(Boolean.TRUE, store.get(first));
+        assertEquals(Boolean.FALSE, store.get(second));
+
+        store.put(second, true);
+        store.remove(first);
+        assertEquals(Boolean.FALSE, store.get(CUSTOMIZED));
+        assertEquals(Boolean.TRUE, store.get(second));
+    }
+
+    @Test
+    public void wrongTypeReadsAsDefault() {
+        AppStateStore store = new AppStateStore(file, flusher);
+        store.put(AppStateStore.stringKey("outfit.top", ""), "not a number");
+
+        assertEquals(Integer.valueOf(0), store.get(TOP));
+        assertFalse(store.contains(TOP));
+    }
+
+    @Test(expected = IOException.class)
+    public void damagedFileIsRejected() throws IOException {
+        AppStateStore store = new AppStateStore(file, flusher);
+        store.put(NAME, "Mochi");
+        store.flush();
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length - 1] ^= 0x7F;
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+
+        AppStateStore.read(Files.newInputStream(file.toPath()));
+    }
+
+    /**
+     * Keeps scheduled flushes until the test runs them, so nothing is
+     * written behind the test's back
+     */
+    private static final class ManualFlusher extends ScheduledThreadPoolExecutor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        ManualFlusher() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+            tasks.add(task);
+            return null;
+        }
+
+        void runAll() {
+            List<Runnable> due = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Runnable task : due) {
+                task.run();
+            }
+        }
+    }
+}
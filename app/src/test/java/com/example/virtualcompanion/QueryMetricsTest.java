@@ -0,0 +1,59 @@
+package com.example.virtualcompanion;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * QueryMetrics bookkeeping (plain JVM - no clock or log calls involved)
+ */
+public class QueryMetricsTest {
+
+    @After
+    public void tearDown() {
+        QueryMetrics.setEnabled(false);
+        QueryMetrics.reset();
+    }
+
+    @Test
+    public void disabledCallsShareOneNoOp() {
+        QueryMetrics.setEnabled(false);
+
+        QueryMetrics.Call first = QueryMetrics.begin("getCoins");
+        QueryMetrics.Call second = QueryMetrics.begin("getQuestsForMood");
+        assertSame(first, second);
+        assertSame(first, QueryMetrics.beginStatement("SELECT 1"));
+
+        QueryMetrics.rows(5); // no call open on this thread - ignored
+        first.close();        // records nothing
+    }
+
+    @Test
+    public void latenciesLandInTheirBuckets() {
+        QueryMetrics.Stats stats = new QueryMetrics.Stats();
+
+        stats.add(100_000L, 1);       // 0.1 ms
+        stats.add(250_000L, 1);       // exactly the first limit
+        stats.add(3_000_000L, 5);     // 3 ms
+        stats.add(1_000_000_000L, 0); // 1 s - past the last limit
+
+        assertEquals(4, stats.calls);
+        assertEquals(7, stats.rows);
+        assertEquals(1_000_000_000L, stats.maxNanos);
+
+        assertEquals(2, stats.buckets[0]);
+        assertEquals(1, stats.buckets[4]); // <= 4 ms
+        assertEquals(1, stats.buckets[stats.buckets.length - 1]);
+    }
+
+    @Test
+    public void slowThresholdIsConfigurable() {
+        assertEquals(QueryMetrics.DEFAULT_SLOW_CALL_MS, QueryMetrics.getSlowCallThresholdMs());
+
+        QueryMetrics.setSlowCallThresholdMs(50);
+        assertEquals(50, QueryMetrics.getSlowCallThresholdMs());
+
+        QueryMetrics.setSlowCallThresholdMs(QueryMetrics.DEFAULT_SLOW_CALL_MS);
+    }
+}
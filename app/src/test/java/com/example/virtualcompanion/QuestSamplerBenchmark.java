@@ -0,0 +1,160 @@
+package com.example.virtualcompanion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plan generation (5 quests for each of the 5 moods, as rolloverDay does)
+ * with a long quest history behind it, two ways:
+ * - incremental: the history was fed to one sampler as it happened, and
+ *   a plan only draws from its alias tables
+ * - full recompute: every plan rebuilds the counters from all history rows
+ *   (what the sampler is built to avoid)
+ *
+ * Runs on the JVM, but only when asked for - the default test run skips
+ * every *Benchmark class:
+ *   ./gradlew testDebugUnitTest -Pbenchmarks --tests '*QuestSamplerBenchmark'
+ * Results are logged (java.util.logging) and show up in the test report.
+ * QuestSamplerTest checks that both ways draw the same plans.
+ */
+public class QuestSamplerBenchmark {
+
+    private static final Logger LOG = Logger.getLogger("QuestSamplerBenchmark");
+    private static final String[] MOODS = {"neutral", "happy", "sad", "angry", "anxious"};
+    private static final int QUESTS_PER_MOOD = 21;
+    private static final int SESSION_SIZE = 5;
+    private static final int HISTORY_ROWS = 12_000;
+    private static final int PLANS = 2000;
+    private static final int RECOMPUTED_PLANS = 100;
+    private static final long FIRST_DAY = 20_000; // ~2024-10-04
+    private static final int[] NONE = new int[0];
+
+    // Event kinds in the synthetic history
+    private static final int SHOWN = 0;
+    private static final int COMPLETED = 1;
+    private static final int ABANDONED = 2;
+    private static final int MOOD_GAIN = 3;
+
+    private Map<String, int[]> idsByMood;
+
+    // One row per event: {kind, quest id, day or gain}
+    private long[][] history;
+    private long lastHistoryDay;
+
+    @Before
+    public void setUp() {
+        idsByMood = new HashMap<>();
+        for (int m = 0; m < MOODS.length; m++) {
+            int[] ids = new int[QUESTS_PER_MOOD];
+            for (int i = 0; i < QUESTS_PER_MOOD; i++) {
+                ids[i] = m * QUESTS_PER_MOOD + i + 1;
+            }
+            idsByMood.put(MOODS[m], ids);
+        }
+
+        // ~4 events a day for 8 years; some quests are liked more than others
+        Random random = new Random(7);
+        int questCount = MOODS.length * QUESTS_PER_MOOD;
+        history = new long[HISTORY_ROWS][];
+        long day = FIRST_DAY;
+
+        for (int row = 0; row < HISTORY_ROWS; row++) {
+            if (row % 4 == 0) day++;
+            int questId = 1 + random.nextInt(questCount);
+            int kind = random.nextInt(4);
+            long value = kind == SHOWN ? day : kind == MOOD_GAIN ? (questId % 5) - 2 : 0;
+            history[row] = new long[]{kind, questId, value};
+        }
+        lastHistoryDay = day;
+    }
+
+    @Test
+    public void incrementalPlansVsFullRecompute() {
+        // Incremental: events arrive one at a time
+        long start = System.nanoTime();
+        QuestSampler live = replay(history);
+        long feedNanos = System.nanoTime() - start;
+        long today = lastHistoryDay + 1;
+
+        // Warm up both paths so class loading and JIT aren't measured
+        planDays(live, today, 200);
+        recomputedPlans(today, 10);
+
+        start = System.nanoTime();
+        int drawn = planDays(live, today + 200, PLANS);
+        long planNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        recomputedPlans(today, RECOMPUTED_PLANS);
+        long recomputeNanos = System.nanoTime() - start;
+
+        long perPlan = planNanos / PLANS;
+        long perRecomputed = recomputeNanos / RECOMPUTED_PLANS;
+
+        LOG.info(String.format(Locale.US, "%d history rows%n"
+                        + "  feed events:      %d ns/event%n"
+                        + "  incremental plan: %d ns/plan (5 moods x 5 quests)%n"
+                        + "  full recompute:   %d ns/plan%n"
+                        + "  speedup:          %.1fx",
+                HISTORY_ROWS, feedNanos / HISTORY_ROWS, perPlan, perRecomputed,
+                (double) perRecomputed / perPlan));
+
+        assertEquals(PLANS * MOODS.length * SESSION_SIZE, drawn);
+    }
+
+    /**
+     * Plan every mood for consecutive days, recording the shows like
+     * getQuestsForMood does. Returns the number of quests drawn.
+     */
+    private int planDays(QuestSampler sampler, long firstDay, int days) {
+        int drawn = 0;
+        for (long day = firstDay; day < firstDay + days; day++) {
+            for (String mood : MOODS) {
+                for (int id : sampler.draw(mood, day, NONE, SESSION_SIZE)) {
+                    sampler.recordShown(id, day);
+                    drawn++;
+                }
+            }
+        }
+        return drawn;
+    }
+
+    private void recomputedPlans(long day, int plans) {
+        for (int p = 0; p < plans; p++) {
+            QuestSampler sampler = replay(history);
+            for (String mood : MOODS) {
+                assertEquals(SESSION_SIZE, sampler.draw(mood, day + p, NONE, SESSION_SIZE).length);
+            }
+        }
+    }
+
+    private QuestSampler replay(long[][] rows) {
+        QuestSampler sampler = new QuestSampler(idsByMood);
+        for (long[] row : rows) {
+            int questId = (int) row[1];
+            switch ((int) row[0]) {
+                case SHOWN:
+                    sampler.recordShown(questId, row[2]);
+                    break;
+                case COMPLETED:
+                    sampler.recordCompleted(questId);
+                    break;
+                case ABANDONED:
+                    sampler.recordAbandoned(questId);
+                    break;
+                default:
+                    sampler.recordMoodGain(questId, (int) row[2]);
+                    break;
+            }
+        }
+        return sampler;
+    }
+}
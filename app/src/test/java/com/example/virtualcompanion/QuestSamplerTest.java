@@ -0,0 +1,266 @@
+package com.example.virtualcompanion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulates many days of quest draws against QuestSampler, with and
+ * without history. Runs on the JVM - no device needed.
+ */
+public class QuestSamplerTest {
+
+    private static final String[] MOODS = {"neutral", "happy", "sad", "angry", "anxious"};
+    private static final int QUESTS_PER_MOOD = 21;
+    private static final int SESSION_SIZE = 5;
+    private static final int DAYS = 10_000;
+    private static final long FIRST_DAY = 20_000; // ~2024-10-04
+    private static final int[] NONE = new int[0];
+
+    private Map<String, int[]> idsByMood;
+
+    @Before
+    public void setUp() {
+        // Same layout as the default data: 21 consecutive ids per mood
+        idsByMood = new HashMap<>();
+        for (int m = 0; m < MOODS.length; m++) {
+            int[] ids = new int[QUESTS_PER_MOOD];
+            for (int i = 0; i < QUESTS_PER_MOOD; i++) {
+                ids[i] = m * QUESTS_PER_MOOD + i + 1;
+            }
+            idsByMood.put(MOODS[m], ids);
+        }
+    }
+
+    @Test
+    public void noRepeatsWithinADay() {
+        QuestSampler sampler = new QuestSampler(idsByMood);
+        int sessionsPerRound = QUESTS_PER_MOOD / SESSION_SIZE;
+
+        for (long day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+            for (String mood : MOODS) {
+                Set<Integer> seen = new HashSet<>();
+                Set<Integer> moodIds = toSet(idsByMood.get(mood));
+                List<Integer> used = new ArrayList<>();
+
+                for (int s = 0; s < sessionsPerRound; s++) {
+                    int[] drawn = sampler.draw(mood, day, toArray(used), SESSION_SIZE);
+                    assertEquals(SESSION_SIZE, drawn.length);
+
+                    for (int id : drawn) {
+                        assertTrue("Quest " + id + " is not a " + mood + " quest", moodIds.contains(id));
+                        assertTrue("Quest " + id + " repeated on day " + day, seen.add(id));
+                        used.add(id);
+                        sampler.recordShown(id, day);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void withoutHistoryEveryQuestIsDrawnEvenly() {
+        QuestSampler sampler = new QuestSampler(idsByMood);
+
+        for (String mood : MOODS) {
+            Map<Integer, Integer> counts = new HashMap<>();
+
+            for (long day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+                for (int id : sampler.draw(mood, day, NONE, SESSION_SIZE)) {
+                    counts.merge(id, 1, Integer::sum);
+                }
+            }
+
+            assertEquals(QUESTS_PER_MOOD, counts.size());
+
+            // Each quest should land in the first session ~5/21 of the days.
+            // Binomial sd is ~43 here, so +/-10% is more than 5 sd.
+            double expected = (double) DAYS * SESSION_SIZE / QUESTS_PER_MOOD;
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                double ratio = entry.getValue() / expected;
+                assertTrue("Quest " + entry.getKey() + " drawn " + entry.getValue()
+                        + " times, expected ~" + (int) expected, ratio > 0.9 && ratio < 1.1);
+            }
+        }
+    }
+
+    @Test
+    public void sameDayGivesSameQuests() {
+        QuestSampler first = new QuestSampler(idsByMood);
+        QuestSampler second = new QuestSampler(idsByMood);
+
+        List<Integer> used = new ArrayList<>();
+        for (int s = 0; s < 8; s++) {
+            int[] drawn = first.draw("sad", FIRST_DAY, toArray(used), SESSION_SIZE);
+            assertArrayEquals(drawn, second.draw("sad", FIRST_DAY, toArray(used), SESSION_SIZE));
+            for (int id : drawn) {
+                used.add(id);
+            }
+        }
+
+        // A different day is (almost certainly) a different order
+        assertFalse(Arrays.equals(
+                first.draw("sad", FIRST_DAY, NONE, SESSION_SIZE),
+                first.draw("sad", FIRST_DAY + 1, NONE, SESSION_SIZE)));
+    }
+
+    @Test
+    public void exhaustedPoolStartsNewRound() {
+        QuestSampler sampler = new QuestSampler(idsByMood);
+
+        // 21 quests fit 4 full sessions; the 5th may use any of them again
+        int[] used = new int[4 * SESSION_SIZE];
+        for (int i = 0; i < used.length; i++) {
+            used[i] = idsByMood.get("angry")[i];
+        }
+        int[] fifth = sampler.draw("angry", FIRST_DAY, used, SESSION_SIZE);
+        assertEquals(SESSION_SIZE, fifth.length);
+        assertEquals(SESSION_SIZE, toSet(fifth).size());
+    }
+
+    @Test
+    public void unknownMoodDrawsNothing() {
+        QuestSampler sampler = new QuestSampler(idsByMood);
+        assertEquals(0, sampler.draw("bored", FIRST_DAY, NONE, SESSION_SIZE).length);
+    }
+
+    @Test
+    public void historyShiftsTheDraws() {
+        QuestSampler sampler = new QuestSampler(idsByMood);
+        int[] ids = idsByMood.get("happy");
+        int liked = ids[0];     // always finished, and the mood got better after it
+        int dropped = ids[1];   // always left halfway
+        long day = FIRST_DAY - 30;
+
+        for (int i = 0; i < 20; i++) {
+            sampler.recordShown(liked, day);
+            sampler.recordCompleted(liked);
+            sampler.recordMoodGain(liked, 2);
+
+            sampler.recordShown(dropped, day);
+            sampler.recordAbandoned(dropped);
+        }
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (long d = FIRST_DAY; d < FIRST_DAY + DAYS; d++) {
+            for (int id : sampler.draw("happy", d, NONE, SESSION_SIZE)) {
+                counts.merge(id, 1, Integer::sum);
+            }
+        }
+
+        int neutral = counts.get(ids[2]);
+        assertTrue("Liked quest drawn " + counts.get(liked) + " vs " + neutral,
+                counts.get(liked) > neutral * 1.5);
+        assertTrue("Dropped quest drawn " + counts.get(dropped) + " vs " + neutral,
+                counts.get(dropped) < neutral * 0.75);
+    }
+
+    @Test
+    public void liveCountersDrawLikeReplayedHistory() {
+        // Drawing every day while events arrive (tables built, then made
+        // stale) ends up where a restart that replays the events does
+        QuestSampler live = new QuestSampler(idsByMood);
+        QuestSampler replayed = new QuestSampler(idsByMood);
+        Random random = new Random(7);
+        int questCount = MOODS.length * QUESTS_PER_MOOD;
+        long day = FIRST_DAY;
+
+        for (int event = 0; event < 4_000; event++) {
+            if (event % 4 == 0) {
+                day++;
+                for (String mood : MOODS) {
+                    live.draw(mood, day, NONE, SESSION_SIZE);
+                }
+            }
+
+            int questId = 1 + random.nextInt(questCount);
+            for (QuestSampler sampler : new QuestSampler[]{live, replayed}) {
+                switch (event % 3) {
+                    case 0:
+                        sampler.recordShown(questId, day);
+                        break;
+                    case 1:
+                        sampler.recordCompleted(questId);
+                        break;
+                    default:
+                        sampler.recordMoodGain(questId, questId % 5 - 2);
+                        break;
+                }
+            }
+            if (event % 7 == 0) {
+                live.recordAbandoned(questId);
+                replayed.recordAbandoned(questId);
+            }
+        }
+
+        for (String mood : MOODS) {
+            assertArrayEquals(mood,
+                    replayed.draw(mood, day + 1, NONE, SESSION_SIZE),
+                    live.draw(mood, day + 1, NONE, SESSION_SIZE));
+        }
+    }
+
+    @Test
+    public void recentlyShownQuestsRecover() {
+        QuestSampler sampler = new QuestSampler(idsByMood);
+        int id = idsByMood.get("neutral")[0];
+        sampler.recordShown(id, FIRST_DAY);
+        sampler.recordCompleted(id);
+
+        double full = QuestSampler.weight(1, 1, 0, QuestSampler.RECOVERY_DAYS, 0, 0);
+        assertTrue(sampler.weightOf(id, FIRST_DAY + 1) < full / 2);
+        assertEquals(full, sampler.weightOf(id, FIRST_DAY + QuestSampler.RECOVERY_DAYS), 1e-9);
+    }
+
+    @Test
+    public void moodGainUsesHappyNeutralLow() {
+        assertEquals(2, QuestSampler.moodGain(3, 2));  // sad -> happy
+        assertEquals(1, QuestSampler.moodGain(5, 1));  // anxious -> neutral
+        assertEquals(0, QuestSampler.moodGain(4, 3));  // angry -> sad
+        assertEquals(-1, QuestSampler.moodGain(2, 1)); // happy -> neutral
+    }
+
+    @Test
+    public void aliasTableMatchesWeights() {
+        double[] weights = {1, 0, 3, 6};
+        AliasTable table = new AliasTable(weights);
+        Random random = new Random(42);
+        int[] counts = new int[weights.length];
+
+        int draws = 1_000_000;
+        for (int i = 0; i < draws; i++) {
+            counts[table.sample(random)]++;
+        }
+
+        assertEquals(0, counts[1]);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / 10, (double) counts[i] / draws, 0.005);
+        }
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        int[] array = new int[ids.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        return array;
+    }
+
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
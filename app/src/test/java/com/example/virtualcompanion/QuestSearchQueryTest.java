@@ -0,0 +1,59 @@
+package com.example.virtualcompanion;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * MATCH expressions and matchinfo scoring (plain JVM, no SQLite)
+ */
+public class QuestSearchQueryTest {
+
+    @Test
+    public void lastWordAlsoMatchesAsPrefix() {
+        assertEquals("brea OR brea*", QuestSearchQuery.toMatchExpression("brea"));
+        assertEquals("box brea OR brea*", QuestSearchQuery.toMatchExpression("  Box, BREA"));
+    }
+
+    @Test
+    public void querySyntaxIsNeverPassedThrough() {
+        assertEquals("water not OR not*", QuestSearchQuery.toMatchExpression("\"water\" NOT -"));
+        assertEquals("near 3 OR 3*", QuestSearchQuery.toMatchExpression("NEAR/3*"));
+    }
+
+    @Test
+    public void blankTextMeansBrowse() {
+        assertNull(QuestSearchQuery.toMatchExpression(null));
+        assertNull(QuestSearchQuery.toMatchExpression(""));
+        assertNull(QuestSearchQuery.toMatchExpression(" -*\" "));
+    }
+
+    @Test
+    public void titleHitOutweighsDescriptionHit() {
+        // One phrase; {hits here, hits everywhere, rows} per column
+        byte[] inTitle = matchinfo(1, 2, 1, 4, 4, 0, 10, 8);
+        byte[] inDescription = matchinfo(1, 2, 0, 4, 4, 1, 10, 8);
+
+        assertEquals(3.0 / 4, QuestSearchQuery.score(inTitle), 1e-9);
+        assertEquals(1.0 / 10, QuestSearchQuery.score(inDescription), 1e-9);
+    }
+
+    @Test
+    public void rareWordsOutweighCommonOnes() {
+        byte[] rare = matchinfo(1, 2, 0, 0, 0, 1, 2, 2);
+        byte[] common = matchinfo(1, 2, 0, 0, 0, 1, 50, 40);
+
+        assertTrue(QuestSearchQuery.score(rare) > QuestSearchQuery.score(common));
+    }
+
+    private static byte[] matchinfo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
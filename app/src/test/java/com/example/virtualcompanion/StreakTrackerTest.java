@@ -0,0 +1,67 @@
+package com.example.virtualcompanion;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * StreakTracker is plain arithmetic on epoch days - no database needed.
+ */
+public class StreakTrackerTest {
+
+    // 2026-01-05
+    private static final long DAY = 20458;
+
+    @Test
+    public void consecutiveDaysExtendTheStreak() {
+        StreakTracker streak = StreakTracker.empty()
+                .record(DAY)
+                .record(DAY + 1)
+                .record(DAY + 2);
+
+        assertEquals(3, streak.getCurrent(DAY + 2));
+        assertEquals(3, streak.getBest());
+    }
+
+    @Test
+    public void sameDayAgainChangesNothing() {
+        StreakTracker first = StreakTracker.empty().record(DAY);
+        assertSame(first, first.record(DAY));
+        assertEquals(1, first.getCurrent(DAY));
+    }
+
+    @Test
+    public void gapStartsOverButKeepsBest() {
+        StreakTracker streak = StreakTracker.empty()
+                .record(DAY)
+                .record(DAY + 1)
+                .record(DAY + 4);
+
+        assertEquals(1, streak.getCurrent(DAY + 4));
+        assertEquals(2, streak.getBest());
+    }
+
+    @Test
+    public void streakLastsUntilADayIsMissed() {
+        StreakTracker streak = StreakTracker.empty().record(DAY).record(DAY + 1);
+
+        // Nothing yet today: still alive until today ends
+        assertEquals(2, streak.getCurrent(DAY + 2));
+        assertEquals(0, streak.getCurrent(DAY + 3));
+        assertEquals(2, streak.getBest());
+    }
+
+    @Test
+    public void clockGoingBackIsIgnored() {
+        StreakTracker streak = StreakTracker.empty().record(DAY + 5);
+        assertSame(streak, streak.record(DAY));
+    }
+
+    @Test
+    public void emptyTrackerHasNoStreak() {
+        StreakTracker empty = StreakTracker.empty();
+        assertEquals(0, empty.getCurrent(DAY));
+        assertEquals(0, empty.getBest());
+        assertEquals(1, empty.record(DAY).getCurrent(DAY));
+    }
+}